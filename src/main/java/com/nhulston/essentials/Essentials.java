@@ -23,6 +23,7 @@ import com.nhulston.essentials.commands.shout.ShoutCommand;
 import com.nhulston.essentials.commands.socialspy.SocialSpyCommand;
 import com.nhulston.essentials.commands.top.TopCommand;
 import com.nhulston.essentials.commands.tphere.TphereCommand;
+import com.nhulston.essentials.commands.tpall.TpallCommand;
 import com.nhulston.essentials.commands.trash.TrashCommand;
 import com.nhulston.essentials.commands.spawn.SetSpawnCommand;
 import com.nhulston.essentials.commands.spawn.SpawnCommand;
@@ -36,6 +37,7 @@ import com.nhulston.essentials.events.ChatEvent;
 import com.nhulston.essentials.events.DeathLocationEvent;
 import com.nhulston.essentials.events.JoinLeaveEvent;
 import com.nhulston.essentials.events.MotdEvent;
+import com.nhulston.essentials.events.PlayerDataPrefetchEvent;
 import com.nhulston.essentials.events.PlayerQuitEvent;
 import com.nhulston.essentials.events.SpawnProtectionEvent;
 import com.nhulston.essentials.events.SpawnRegionTitleEvent;
@@ -48,13 +50,18 @@ import com.nhulston.essentials.managers.BackManager;
 import com.nhulston.essentials.managers.ChatManager;
 import com.nhulston.essentials.managers.HomeManager;
 import com.nhulston.essentials.managers.KitManager;
+import com.nhulston.essentials.managers.PlayerPositionRegistry;
+import com.nhulston.essentials.managers.PlayerSpatialIndex;
+import com.nhulston.essentials.managers.RtpManager;
 import com.nhulston.essentials.managers.SpawnManager;
 import com.nhulston.essentials.managers.SpawnProtectionManager;
 import com.nhulston.essentials.managers.TeleportManager;
+import com.nhulston.essentials.managers.TimerService;
 import com.nhulston.essentials.managers.TpaManager;
 import com.nhulston.essentials.managers.WarpManager;
 import com.nhulston.essentials.util.ConfigManager;
 import com.nhulston.essentials.util.Log;
+import com.nhulston.essentials.util.HeightmapCache;
 import com.nhulston.essentials.util.MessageManager;
 import com.nhulston.essentials.util.StorageManager;
 import com.nhulston.essentials.util.VersionChecker;
@@ -75,6 +82,11 @@ public class Essentials extends JavaPlugin {
     private SpawnProtectionManager spawnProtectionManager;
     private TpaManager tpaManager;
     private TeleportManager teleportManager;
+    private TimerService timerService;
+    private RtpManager rtpManager;
+    private HeightmapCache heightmapCache;
+    private PlayerPositionRegistry playerPositionRegistry;
+    private PlayerSpatialIndex playerSpatialIndex;
     private KitManager kitManager;
     private BackManager backManager;
     private VersionChecker versionChecker;
@@ -92,15 +104,20 @@ public class Essentials extends JavaPlugin {
 
         configManager = new ConfigManager(getDataDirectory());
         messageManager = new MessageManager(getDataDirectory());
-        storageManager = new StorageManager(getDataDirectory());
+        storageManager = new StorageManager(getDataDirectory(), configManager);
 
         homeManager = new HomeManager(storageManager, configManager);
-        warpManager = new WarpManager(storageManager);
+        warpManager = new WarpManager(getDataDirectory(), storageManager);
         spawnManager = new SpawnManager(storageManager);
         chatManager = new ChatManager(configManager);
         spawnProtectionManager = new SpawnProtectionManager(configManager, storageManager);
-        tpaManager = new TpaManager(configManager);
-        teleportManager = new TeleportManager(configManager);
+        timerService = new TimerService();
+        heightmapCache = new HeightmapCache();
+        playerPositionRegistry = new PlayerPositionRegistry();
+        playerSpatialIndex = new PlayerSpatialIndex(playerPositionRegistry);
+        rtpManager = new RtpManager(configManager, heightmapCache, timerService);
+        tpaManager = new TpaManager(configManager, timerService);
+        teleportManager = new TeleportManager(configManager, timerService);
         kitManager = new KitManager(getDataDirectory(), storageManager);
         backManager = new BackManager();
         versionChecker = new VersionChecker(VERSION);
@@ -112,6 +129,9 @@ public class Essentials extends JavaPlugin {
         registerEvents();
 
         registerAfkSystem();
+
+        // Start finding RTP destinations before anyone asks for one
+        rtpManager.start();
         
         // Check for updates asynchronously
         versionChecker.checkForUpdatesAsync();
@@ -131,8 +151,8 @@ public class Essentials extends JavaPlugin {
             tpaManager.shutdown();
         }
 
-        if (teleportManager != null) {
-            teleportManager.shutdown();
+        if (rtpManager != null) {
+            rtpManager.shutdown();
         }
 
         Log.info("Essentials shut down.");
@@ -164,7 +184,7 @@ public class Essentials extends JavaPlugin {
         getCommandRegistry().registerCommand(new BackCommand(backManager, teleportManager));
 
         // RTP command
-        getCommandRegistry().registerCommand(new RtpCommand(configManager, storageManager, teleportManager, backManager));
+        getCommandRegistry().registerCommand(new RtpCommand(configManager, storageManager, teleportManager, backManager, rtpManager));
 
         // List command
         getCommandRegistry().registerCommand(new ListCommand());
@@ -187,11 +207,14 @@ public class Essentials extends JavaPlugin {
         // Tphere command
         getCommandRegistry().registerCommand(new TphereCommand());
 
+        // Tpall command
+        getCommandRegistry().registerCommand(new TpallCommand(warpManager, teleportManager, backManager));
+
         // Top command
         getCommandRegistry().registerCommand(new TopCommand());
 
         // Essentials info command
-        getCommandRegistry().registerCommand(new EssentialsCommand());
+        getCommandRegistry().registerCommand(new EssentialsCommand(warpManager, configManager, rtpManager, teleportManager));
 
         // Shout/broadcast command
         getCommandRegistry().registerCommand(new ShoutCommand(configManager));
@@ -210,6 +233,25 @@ public class Essentials extends JavaPlugin {
     }
 
     private void registerEvents() {
+        // Registered first so player data starts loading, and first joins are settled, before other
+        // connect handlers need them
+        new PlayerDataPrefetchEvent(storageManager).register(getEventRegistry());
+
+        // Drives the deadlines of warmups, TPA requests, AFK kicks and RTP pool refills
+        timerService.registerSystems(getEntityStoreRegistry());
+
+        // Keeps cached safe-Y columns in step with block changes
+        heightmapCache.registerSystems(getEntityStoreRegistry());
+
+        // Publishes player positions for cross-world teleports
+        playerPositionRegistry.registerSystems(getEntityStoreRegistry());
+
+        // Indexes players by chunk for nearby-player lookups
+        playerSpatialIndex.registerSystems(getEntityStoreRegistry());
+
+        // Tops up each RTP world's pool of safe destinations from that world's tick
+        rtpManager.registerSystems(getEntityStoreRegistry());
+
         new ChatEvent(chatManager).register(getEventRegistry());
         new BuildProtectionEvent(configManager).register(getEntityStoreRegistry());
         new SpawnProtectionEvent(spawnProtectionManager).register(getEntityStoreRegistry());
@@ -239,7 +281,8 @@ public class Essentials extends JavaPlugin {
         new SleepPercentageEvent(configManager, messageManager).register(getEntityStoreRegistry());
 
         // Player disconnect cleanup
-        new PlayerQuitEvent(storageManager, tpaManager, teleportManager, backManager).register(getEventRegistry());
+        new PlayerQuitEvent(storageManager, tpaManager, backManager, playerPositionRegistry,
+                playerSpatialIndex).register(getEventRegistry());
 
         // Sync spawn provider with world config after all worlds are loaded
         // This updates the spawn marker on the map
@@ -268,7 +311,7 @@ public class Essentials extends JavaPlugin {
 
     private void registerAfkSystem() {
         if (configManager.isAfkKickEnabled()) {
-            AfkSystem afkSystem = new AfkSystem(configManager);
+            AfkSystem afkSystem = new AfkSystem(configManager, timerService);
             AfkSystem.registerComponents(getEntityStoreRegistry());
             afkSystem.registerEvents(getEventRegistry());
             afkSystem.registerSystems(getEntityStoreRegistry());
@@ -291,4 +334,28 @@ public class Essentials extends JavaPlugin {
     public StorageManager getStorageManager() {
         return storageManager;
     }
+
+    /**
+     * Gets the heightmap cache used for safe-position lookups.
+     */
+    @Nonnull
+    public HeightmapCache getHeightmapCache() {
+        return heightmapCache;
+    }
+
+    /**
+     * Gets the registry of published player positions.
+     */
+    @Nonnull
+    public PlayerPositionRegistry getPlayerPositionRegistry() {
+        return playerPositionRegistry;
+    }
+
+    /**
+     * Gets the index of online players by chunk.
+     */
+    @Nonnull
+    public PlayerSpatialIndex getPlayerSpatialIndex() {
+        return playerSpatialIndex;
+    }
 }
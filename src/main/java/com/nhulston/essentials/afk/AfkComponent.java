@@ -3,26 +3,29 @@ package com.nhulston.essentials.afk;
 import com.hypixel.hytale.component.Component;
 import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.nhulston.essentials.util.TimerWheel;
 import org.jetbrains.annotations.Nullable;
 
 public class AfkComponent implements Component<EntityStore> {
 
     private Vector3d lastLocation;
-    private int secondsSinceLastMoved;
+    private long lastActiveNanos;
+    private TimerWheel.Timeout kickTimer;
 
-    public AfkComponent(Vector3d lastLocation, int secondsSinceLastMoved) {
+    public AfkComponent(Vector3d lastLocation, long lastActiveNanos) {
         this.lastLocation = lastLocation;
-        this.secondsSinceLastMoved = secondsSinceLastMoved;
+        this.lastActiveNanos = lastActiveNanos;
     }
 
     public AfkComponent(AfkComponent other) {
         this.lastLocation = other.lastLocation;
-        this.secondsSinceLastMoved = other.secondsSinceLastMoved;
+        this.lastActiveNanos = other.lastActiveNanos;
+        this.kickTimer = other.kickTimer;
     }
 
     public AfkComponent() {
         this.lastLocation = new Vector3d(0, 0, 0);
-        this.secondsSinceLastMoved = 0;
+        this.lastActiveNanos = System.nanoTime();
     }
 
     @Override
@@ -38,11 +41,22 @@ public class AfkComponent implements Component<EntityStore> {
         this.lastLocation = lastLocation;
     }
 
-    public int getSecondsSinceLastMoved() {
-        return secondsSinceLastMoved;
+    public long getLastActiveNanos() {
+        return lastActiveNanos;
     }
 
-    public void setSecondsSinceLastMoved(int secondsSinceLastMoved) {
-        this.secondsSinceLastMoved = secondsSinceLastMoved;
+    public void setLastActiveNanos(long lastActiveNanos) {
+        this.lastActiveNanos = lastActiveNanos;
+    }
+
+    /**
+     * Gets the pending kick check, or null if none is scheduled.
+     */
+    public @Nullable TimerWheel.Timeout getKickTimer() {
+        return kickTimer;
+    }
+
+    public void setKickTimer(@Nullable TimerWheel.Timeout kickTimer) {
+        this.kickTimer = kickTimer;
     }
 }
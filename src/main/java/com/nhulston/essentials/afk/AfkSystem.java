@@ -13,19 +13,30 @@ import com.hypixel.hytale.server.core.modules.entity.damage.DamageEventSystem;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.nhulston.essentials.managers.TimerService;
 import com.nhulston.essentials.util.ConfigManager;
+import com.nhulston.essentials.util.TimerWheel;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kicks players who stay idle for too long. Activity only records a timestamp; the kick is a
+ * {@link TimerService} deadline that, when it comes due, either kicks the player or re-arms
+ * itself for whatever idle time is left.
+ */
 public class AfkSystem {
 
     private static ComponentType<EntityStore, AfkComponent> AFK_COMPONENT;
 
     private final ConfigManager configManager;
+    private final TimerService timerService;
     private static final String BYPASS_PERMISSION = "essentials.afk.bypass";
 
-    public AfkSystem(final @NotNull ConfigManager configManager) {
+    public AfkSystem(final @NotNull ConfigManager configManager, final @NotNull TimerService timerService) {
         this.configManager = configManager;
+        this.timerService = timerService;
     }
 
     public static void registerComponents(@NotNull ComponentRegistryProxy<EntityStore> registry) {
@@ -33,8 +44,8 @@ public class AfkSystem {
     }
 
     public void registerSystems(@NotNull ComponentRegistryProxy<EntityStore> registry) {
-        registry.registerSystem(new PlayerDamageSystem(configManager));
-        registry.registerSystem(new PlayerTickerSystem(configManager));
+        registry.registerSystem(new PlayerDamageSystem(this));
+        registry.registerSystem(new PlayerTickerSystem(this));
     }
 
     public void registerEvents(@NotNull EventRegistry eventRegistry) {
@@ -43,7 +54,9 @@ public class AfkSystem {
             if (!ref.isValid()) return;
 
             Store<EntityStore> store = ref.getStore();
-            store.addComponent(ref, AFK_COMPONENT, new AfkComponent());
+            AfkComponent afk = new AfkComponent();
+            store.addComponent(ref, AFK_COMPONENT, afk);
+            markActive(afk, ref, store.getExternalData().getWorld());
         });
 
         eventRegistry.registerAsyncGlobal(PlayerChatEvent.class, future ->
@@ -55,9 +68,12 @@ public class AfkSystem {
                     World world = store.getExternalData().getWorld();
 
                     world.execute(() -> {
-                        AfkComponent afkComponent = store.getComponent(playerRef.getReference(), AFK_COMPONENT);
+                        Ref<EntityStore> ref = playerRef.getReference();
+                        if (ref == null || !ref.isValid()) return;
+
+                        AfkComponent afkComponent = store.getComponent(ref, AFK_COMPONENT);
                         if (afkComponent != null) {
-                            afkComponent.setSecondsSinceLastMoved(0);
+                            markActive(afkComponent, ref, world);
                         }
                     });
                     return event;
@@ -65,21 +81,65 @@ public class AfkSystem {
         );
     }
 
+    /**
+     * Records activity and makes sure a kick check is scheduled. Runs on the player's world thread.
+     */
+    private void markActive(@NotNull AfkComponent afk, @NotNull Ref<EntityStore> ref, @NotNull World world) {
+        afk.setLastActiveNanos(System.nanoTime());
+        long kickSeconds = configManager.getAfkKickTime();
+        TimerWheel.Timeout timer = afk.getKickTimer();
+        if (kickSeconds <= 0 || (timer != null && !timer.isExpired() && !timer.isCancelled())) {
+            // The pending check sees the new timestamp and re-arms itself
+            return;
+        }
+        afk.setKickTimer(timerService.schedule(world, kickSeconds, TimeUnit.SECONDS, () -> checkIdle(ref, world)));
+    }
+
+    /**
+     * Runs when a player may have been idle for the kick time. Runs on the world thread, outside
+     * of system processing.
+     */
+    private void checkIdle(@NotNull Ref<EntityStore> ref, @NotNull World world) {
+        if (!ref.isValid()) return;
+
+        Store<EntityStore> store = ref.getStore();
+        AfkComponent afk = store.getComponent(ref, AFK_COMPONENT);
+        if (afk == null) return;
+        afk.setKickTimer(null);
+
+        long kickNanos = TimeUnit.SECONDS.toNanos(configManager.getAfkKickTime());
+        if (kickNanos <= 0) return;
+
+        long remaining = afk.getLastActiveNanos() + kickNanos - System.nanoTime();
+        Player player = store.getComponent(ref, Player.getComponentType());
+        if (remaining > 0 || player == null || player.hasPermission(BYPASS_PERMISSION)) {
+            // Active since this was scheduled (or exempt); check again once the rest could pass
+            long delay = remaining > 0 ? remaining : kickNanos;
+            afk.setKickTimer(timerService.schedule(world, delay, TimeUnit.NANOSECONDS, () -> checkIdle(ref, world)));
+            return;
+        }
+
+        PlayerRef playerRef = store.getComponent(ref, PlayerRef.getComponentType());
+        if (playerRef != null) {
+            playerRef.getPacketHandler().disconnect(configManager.getAfkKickMessage());
+        }
+    }
+
     private static class PlayerDamageSystem extends DamageEventSystem {
-        private final ConfigManager configManager;
+        private final AfkSystem afkSystem;
 
-        public PlayerDamageSystem(final @NotNull ConfigManager configManager) {
-            this.configManager = configManager;
+        public PlayerDamageSystem(final @NotNull AfkSystem afkSystem) {
+            this.afkSystem = afkSystem;
         }
 
         @Override
         public void handle(int index, @NotNull ArchetypeChunk<EntityStore> archetypeChunk, @NotNull Store<EntityStore> store, @NotNull CommandBuffer<EntityStore> commandBuffer, @NotNull Damage damage) {
-            if (configManager.getAfkKickTime() <= 0) return;
+            if (afkSystem.configManager.getAfkKickTime() <= 0) return;
 
             AfkComponent afk = archetypeChunk.getComponent(index, AFK_COMPONENT);
             if (afk == null) return;
 
-            afk.setSecondsSinceLastMoved(0);
+            afkSystem.markActive(afk, archetypeChunk.getReferenceTo(index), store.getExternalData().getWorld());
         }
 
         @Override
@@ -92,22 +152,16 @@ public class AfkSystem {
 
         private static final double EPSILON = 0.0000001;
 
-        private final ConfigManager configManager;
+        private final AfkSystem afkSystem;
 
-        public PlayerTickerSystem(final @NotNull ConfigManager configManager) {
+        public PlayerTickerSystem(final @NotNull AfkSystem afkSystem) {
             super(1.0f);
-            this.configManager = configManager;
+            this.afkSystem = afkSystem;
         }
 
         @Override
         public void tick(float dt, int index, @NotNull ArchetypeChunk<EntityStore> archetypeChunk, @NotNull Store<EntityStore> store, @NotNull CommandBuffer<EntityStore> commandBuffer) {
-            if (configManager.getAfkKickTime() <= 0) return;
-
-            PlayerRef playerRef = archetypeChunk.getComponent(index, PlayerRef.getComponentType());
-            if (playerRef == null) return;
-
-            Player player = archetypeChunk.getComponent(index, Player.getComponentType());
-            if (player == null) return;
+            if (afkSystem.configManager.getAfkKickTime() <= 0) return;
 
             AfkComponent afk = archetypeChunk.getComponent(index, AFK_COMPONENT);
             if (afk == null) return;
@@ -115,22 +169,11 @@ public class AfkSystem {
             TransformComponent transform = archetypeChunk.getComponent(index, TransformComponent.getComponentType());
             if (transform == null) return;
 
-            if (player.hasPermission(BYPASS_PERMISSION)) return;
-
-            // Check if player has moved
+            // Only movement is detected here; the kick itself is a deadline
             if (afk.getLastLocation().distanceSquaredTo(transform.getPosition()) > EPSILON) {
                 afk.setLastLocation(transform.getPosition().clone());
-                afk.setSecondsSinceLastMoved(0);
-                return;
+                afkSystem.markActive(afk, archetypeChunk.getReferenceTo(index), store.getExternalData().getWorld());
             }
-
-            afk.setSecondsSinceLastMoved(afk.getSecondsSinceLastMoved() + 1);
-
-            if (afk.getSecondsSinceLastMoved() < configManager.getAfkKickTime()) return;
-
-            // Use commandBuffer to defer disconnect until after tick completes
-            // (cannot modify store while it's processing)
-            commandBuffer.run(_ -> playerRef.getPacketHandler().disconnect(configManager.getAfkKickMessage()));
         }
 
         @Override
@@ -0,0 +1,50 @@
+package com.nhulston.essentials.commands.essentials;
+
+import com.hypixel.hytale.server.core.command.system.AbstractCommand;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.nhulston.essentials.Essentials;
+import com.nhulston.essentials.util.MessageManager;
+import com.nhulston.essentials.util.Msg;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Subcommand to back up the plugin data folder. Only files changed since the last backup are stored.
+ * Usage: /essentials backup
+ * Requires: essentials.backup permission
+ * Can be executed by console or players.
+ */
+public class EssentialsBackupCommand extends AbstractCommand {
+
+    public EssentialsBackupCommand() {
+        super("backup", "Back up the EssentialsCore data");
+        requirePermission("essentials.backup");
+    }
+
+    @Override
+    protected CompletableFuture<Void> execute(@Nonnull CommandContext context) {
+        MessageManager messages = Essentials.getInstance().getMessageManager();
+        Msg.send(context, messages.get("commands.essentials.backup.started"));
+
+        // Runs in the background; the command returns right away
+        Essentials.getInstance().getStorageManager().getBackupStore().createBackup().whenComplete((result, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                String key = cause instanceof IllegalStateException
+                        ? "commands.essentials.backup.running" : "commands.essentials.backup.failed";
+                Msg.send(context, messages.get(key, Map.of("error", String.valueOf(cause.getMessage()))));
+            } else {
+                Msg.send(context, messages.get("commands.essentials.backup.success", Map.of(
+                        "id", result.id(),
+                        "changed", String.valueOf(result.changed()),
+                        "files", String.valueOf(result.files()),
+                        "size", String.valueOf(result.storedBytes() / 1024),
+                        "time", String.valueOf(result.durationMs()))));
+            }
+        });
+        return CompletableFuture.completedFuture(null);
+    }
+}
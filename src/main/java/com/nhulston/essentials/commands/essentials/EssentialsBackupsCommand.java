@@ -0,0 +1,51 @@
+package com.nhulston.essentials.commands.essentials;
+
+import com.hypixel.hytale.server.core.command.system.AbstractCommand;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.nhulston.essentials.Essentials;
+import com.nhulston.essentials.storage.BackupStore;
+import com.nhulston.essentials.util.MessageManager;
+import com.nhulston.essentials.util.Msg;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Subcommand to list the most recent backups.
+ * Usage: /essentials backups
+ * Requires: essentials.backup permission
+ * Can be executed by console or players.
+ */
+public class EssentialsBackupsCommand extends AbstractCommand {
+    private static final int MAX_LISTED = 10;
+
+    public EssentialsBackupsCommand() {
+        super("backups", "List EssentialsCore backups");
+        requirePermission("essentials.backup");
+    }
+
+    @Override
+    protected CompletableFuture<Void> execute(@Nonnull CommandContext context) {
+        MessageManager messages = Essentials.getInstance().getMessageManager();
+        BackupStore backupStore = Essentials.getInstance().getStorageManager().getBackupStore();
+        List<String> ids = backupStore.listSnapshots();
+        if (ids.isEmpty()) {
+            Msg.send(context, messages.get("commands.essentials.backups.none"));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Newest first
+        List<String> listed = ids.reversed().subList(0, Math.min(MAX_LISTED, ids.size()));
+        Msg.send(context, messages.get("commands.essentials.backups.list", Map.of(
+                "count", String.valueOf(ids.size()),
+                "backups", String.join(", ", listed))));
+
+        String pending = backupStore.getPendingRestore();
+        if (pending != null) {
+            Msg.send(context, messages.get("commands.essentials.backups.pending", Map.of("id", pending)));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -5,6 +5,10 @@ import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.command.system.AbstractCommand;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
 import com.nhulston.essentials.Essentials;
+import com.nhulston.essentials.managers.RtpManager;
+import com.nhulston.essentials.managers.TeleportManager;
+import com.nhulston.essentials.managers.WarpManager;
+import com.nhulston.essentials.util.ConfigManager;
 
 import javax.annotation.Nonnull;
 import java.util.concurrent.CompletableFuture;
@@ -13,6 +17,11 @@ import java.util.concurrent.CompletableFuture;
  * Main essentials command.
  * Usage: /essentials - Shows version info with clickable link
  * Usage: /essentials reload - Reloads configuration (requires essentials.reload permission)
+ * Usage: /essentials exportwarps|importwarps <file> - Bulk warp transfer (requires essentials.exportwarps/importwarps)
+ * Usage: /essentials backup|backups - Incremental data backups (requires essentials.backup)
+ * Usage: /essentials restore <backup> | restoreplayer <backup> <player> - Roll data back (requires essentials.restore)
+ * Usage: /essentials storage - Storage metrics (requires essentials.storage)
+ * Usage: /essentials teleports - Teleport metrics (requires essentials.teleports)
  * Can be executed by console or players.
  */
 public class EssentialsCommand extends AbstractCommand {
@@ -20,13 +29,22 @@ public class EssentialsCommand extends AbstractCommand {
     private static final String GREEN = "#55FF55";
     private static final String GRAY = "#AAAAAA";
 
-    public EssentialsCommand() {
+    public EssentialsCommand(@Nonnull WarpManager warpManager, @Nonnull ConfigManager configManager,
+                             @Nonnull RtpManager rtpManager, @Nonnull TeleportManager teleportManager) {
         super("essentials", "Show EssentialsCore version information");
 
         addAliases("ess");
 
         // Add reload subcommand
         addSubCommand(new EssentialsReloadCommand());
+        addSubCommand(new EssentialsExportWarpsCommand(warpManager));
+        addSubCommand(new EssentialsImportWarpsCommand(warpManager));
+        addSubCommand(new EssentialsBackupCommand());
+        addSubCommand(new EssentialsBackupsCommand());
+        addSubCommand(new EssentialsRestoreCommand());
+        addSubCommand(new EssentialsRestorePlayerCommand());
+        addSubCommand(new EssentialsStorageCommand());
+        addSubCommand(new EssentialsTeleportsCommand(configManager, rtpManager, teleportManager));
     }
 
     @Override
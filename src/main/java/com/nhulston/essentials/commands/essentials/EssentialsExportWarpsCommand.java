@@ -0,0 +1,65 @@
+package com.nhulston.essentials.commands.essentials;
+
+import com.hypixel.hytale.server.core.command.system.AbstractCommand;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.FlagArg;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.nhulston.essentials.Essentials;
+import com.nhulston.essentials.managers.WarpManager;
+import com.nhulston.essentials.util.MessageManager;
+import com.nhulston.essentials.util.Msg;
+
+import javax.annotation.Nonnull;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Subcommand for bulk warp transfer. Writes every warp to a JSON file in the warp-exports folder.
+ * Usage: /essentials exportwarps <file> [--overwrite]
+ * Requires: essentials.exportwarps permission
+ * Can be executed by console or players.
+ */
+public class EssentialsExportWarpsCommand extends AbstractCommand {
+    private final WarpManager warpManager;
+    private final RequiredArg<String> fileArg;
+    private final FlagArg overwriteArg;
+
+    public EssentialsExportWarpsCommand(@Nonnull WarpManager warpManager) {
+        super("exportwarps", "Export all warps to a JSON file");
+        this.warpManager = warpManager;
+        this.fileArg = withRequiredArg("file", "JSON file name in the warp-exports folder", ArgTypes.STRING);
+        this.overwriteArg = withFlagArg("overwrite", "Replace the file if it already exists");
+        requirePermission("essentials.exportwarps");
+    }
+
+    @Override
+    protected CompletableFuture<Void> execute(@Nonnull CommandContext context) {
+        MessageManager messages = Essentials.getInstance().getMessageManager();
+        String fileName = context.get(fileArg);
+        Path file = warpManager.resolveTransferFile(fileName);
+        if (file == null) {
+            Msg.send(context, messages.get("commands.essentials.exportwarps.invalid-file"));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return warpManager.exportWarps(file, context.get(overwriteArg)).handle((count, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof FileAlreadyExistsException) {
+                    Msg.send(context, messages.get("commands.essentials.exportwarps.exists", Map.of("file", fileName)));
+                    return null;
+                }
+                Msg.send(context, messages.get("commands.essentials.exportwarps.failed",
+                        Map.of("error", String.valueOf(cause.getMessage()))));
+            } else {
+                Msg.send(context, messages.get("commands.essentials.exportwarps.success",
+                        Map.of("count", String.valueOf(count), "file", fileName)));
+            }
+            return null;
+        });
+    }
+}
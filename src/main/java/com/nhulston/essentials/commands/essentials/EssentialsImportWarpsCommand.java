@@ -0,0 +1,57 @@
+package com.nhulston.essentials.commands.essentials;
+
+import com.hypixel.hytale.server.core.command.system.AbstractCommand;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.nhulston.essentials.Essentials;
+import com.nhulston.essentials.managers.WarpManager;
+import com.nhulston.essentials.util.MessageManager;
+import com.nhulston.essentials.util.Msg;
+
+import javax.annotation.Nonnull;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Subcommand for bulk warp transfer. Adds the warps from a JSON file in the warp-exports folder (as written by exportwarps) in a single save.
+ * Usage: /essentials importwarps <file>
+ * Requires: essentials.importwarps permission
+ * Can be executed by console or players.
+ */
+public class EssentialsImportWarpsCommand extends AbstractCommand {
+    private final WarpManager warpManager;
+    private final RequiredArg<String> fileArg;
+
+    public EssentialsImportWarpsCommand(@Nonnull WarpManager warpManager) {
+        super("importwarps", "Import warps from a JSON file");
+        this.warpManager = warpManager;
+        this.fileArg = withRequiredArg("file", "JSON file name in the warp-exports folder", ArgTypes.STRING);
+        requirePermission("essentials.importwarps");
+    }
+
+    @Override
+    protected CompletableFuture<Void> execute(@Nonnull CommandContext context) {
+        MessageManager messages = Essentials.getInstance().getMessageManager();
+        String fileName = context.get(fileArg);
+        Path file = warpManager.resolveTransferFile(fileName);
+        if (file == null) {
+            Msg.send(context, messages.get("commands.essentials.importwarps.invalid-file"));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return warpManager.importWarps(file).handle((count, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                Msg.send(context, messages.get("commands.essentials.importwarps.failed",
+                        Map.of("error", String.valueOf(cause.getMessage()))));
+            } else {
+                Msg.send(context, messages.get("commands.essentials.importwarps.success",
+                        Map.of("count", String.valueOf(count), "file", fileName)));
+            }
+            return null;
+        });
+    }
+}
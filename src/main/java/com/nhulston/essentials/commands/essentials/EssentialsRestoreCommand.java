@@ -0,0 +1,52 @@
+package com.nhulston.essentials.commands.essentials;
+
+import com.hypixel.hytale.server.core.command.system.AbstractCommand;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.nhulston.essentials.Essentials;
+import com.nhulston.essentials.storage.BackupStore;
+import com.nhulston.essentials.util.MessageManager;
+import com.nhulston.essentials.util.Msg;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Subcommand to roll all plugin data back to a backup. The data is swapped on the next server start.
+ * Usage: /essentials restore <backup|latest>
+ * Requires: essentials.restore permission
+ * Can be executed by console or players.
+ */
+public class EssentialsRestoreCommand extends AbstractCommand {
+    private final RequiredArg<String> backupArg;
+
+    public EssentialsRestoreCommand() {
+        super("restore", "Restore all EssentialsCore data from a backup on the next start");
+        this.backupArg = withRequiredArg("backup", "Backup id, or latest", ArgTypes.STRING);
+        requirePermission("essentials.restore");
+    }
+
+    @Override
+    protected CompletableFuture<Void> execute(@Nonnull CommandContext context) {
+        MessageManager messages = Essentials.getInstance().getMessageManager();
+        BackupStore backupStore = Essentials.getInstance().getStorageManager().getBackupStore();
+        String id = backupStore.resolveSnapshot(context.get(backupArg));
+        if (id == null) {
+            Msg.send(context, messages.get("commands.essentials.restore.not-found",
+                    Map.of("id", context.get(backupArg))));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        try {
+            backupStore.stageRestore(id);
+            Msg.send(context, messages.get("commands.essentials.restore.staged", Map.of("id", id)));
+        } catch (IOException e) {
+            Msg.send(context, messages.get("commands.essentials.restore.failed",
+                    Map.of("error", String.valueOf(e.getMessage()))));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,73 @@
+package com.nhulston.essentials.commands.essentials;
+
+import com.hypixel.hytale.server.core.command.system.AbstractCommand;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.nhulston.essentials.Essentials;
+import com.nhulston.essentials.util.MessageManager;
+import com.nhulston.essentials.util.Msg;
+import com.nhulston.essentials.util.StorageManager;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Subcommand to roll a single player's data (homes, cooldowns) back to a backup, immediately.
+ * Usage: /essentials restoreplayer <backup|latest> <player>
+ * Requires: essentials.restore permission
+ * Can be executed by console or players.
+ */
+public class EssentialsRestorePlayerCommand extends AbstractCommand {
+    private final RequiredArg<String> backupArg;
+    private final RequiredArg<String> playerArg;
+
+    public EssentialsRestorePlayerCommand() {
+        super("restoreplayer", "Restore one player's EssentialsCore data from a backup");
+        this.backupArg = withRequiredArg("backup", "Backup id, or latest", ArgTypes.STRING);
+        this.playerArg = withRequiredArg("player", "Player name or UUID", ArgTypes.STRING);
+        requirePermission("essentials.restore");
+    }
+
+    @Override
+    protected CompletableFuture<Void> execute(@Nonnull CommandContext context) {
+        MessageManager messages = Essentials.getInstance().getMessageManager();
+        StorageManager storageManager = Essentials.getInstance().getStorageManager();
+        String id = storageManager.getBackupStore().resolveSnapshot(context.get(backupArg));
+        if (id == null) {
+            Msg.send(context, messages.get("commands.essentials.restore.not-found",
+                    Map.of("id", context.get(backupArg))));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String playerName = context.get(playerArg);
+        UUID playerUuid = storageManager.getUuidByUsername(playerName);
+        if (playerUuid == null) {
+            try {
+                playerUuid = UUID.fromString(playerName);
+            } catch (IllegalArgumentException e) {
+                Msg.send(context, messages.get("commands.essentials.restoreplayer.unknown-player",
+                        Map.of("player", playerName)));
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+
+        return storageManager.restorePlayer(id, playerUuid).handle((restored, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                Msg.send(context, messages.get("commands.essentials.restore.failed",
+                        Map.of("error", String.valueOf(cause.getMessage()))));
+            } else if (!restored) {
+                Msg.send(context, messages.get("commands.essentials.restoreplayer.not-in-backup",
+                        Map.of("player", playerName, "id", id)));
+            } else {
+                Msg.send(context, messages.get("commands.essentials.restoreplayer.success",
+                        Map.of("player", playerName, "id", id)));
+            }
+            return null;
+        });
+    }
+}
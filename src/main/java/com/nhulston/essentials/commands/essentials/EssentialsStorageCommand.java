@@ -0,0 +1,64 @@
+package com.nhulston.essentials.commands.essentials;
+
+import com.hypixel.hytale.server.core.command.system.AbstractCommand;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.nhulston.essentials.Essentials;
+import com.nhulston.essentials.storage.OfflinePlayerCache;
+import com.nhulston.essentials.storage.StorageMetrics;
+import com.nhulston.essentials.util.MessageManager;
+import com.nhulston.essentials.util.Msg;
+import com.nhulston.essentials.util.StorageManager;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Subcommand to show storage metrics: load/save latency and failures per file type,
+ * I/O queue depth, write volume, cache sizes and damaged data counts.
+ * Usage: /essentials storage
+ * Requires: essentials.storage permission
+ * Can be executed by console or players.
+ */
+public class EssentialsStorageCommand extends AbstractCommand {
+
+    public EssentialsStorageCommand() {
+        super("storage", "Show EssentialsCore storage metrics");
+        requirePermission("essentials.storage");
+    }
+
+    @Override
+    protected CompletableFuture<Void> execute(@Nonnull CommandContext context) {
+        MessageManager messages = Essentials.getInstance().getMessageManager();
+        StorageManager storageManager = Essentials.getInstance().getStorageManager();
+        StorageMetrics metrics = storageManager.getMetrics();
+
+        Msg.send(context, messages.get("commands.essentials.storage.header"));
+        for (StorageMetrics.FileType type : StorageMetrics.FileType.values()) {
+            Msg.send(context, messages.get("commands.essentials.storage.type", Map.of(
+                    "type", type.getLabel(),
+                    "load", metrics.getLoadLatency(type).summary(),
+                    "save", metrics.getSaveLatency(type).summary(),
+                    "failures", String.valueOf(metrics.getLoadFailures(type) + metrics.getSaveFailures(type)))));
+        }
+
+        Msg.send(context, messages.get("commands.essentials.storage.queue", Map.of(
+                "pending", String.valueOf(storageManager.getIoExecutor().getPendingCount()),
+                "peak", String.valueOf(metrics.getPeakQueueLastMinute()))));
+        Msg.send(context, messages.get("commands.essentials.storage.written", Map.of(
+                "minute", String.valueOf(metrics.getBytesLastMinute() / 1024),
+                "total", String.valueOf(metrics.getBytesWritten() / 1024))));
+
+        OfflinePlayerCache offlineCache = storageManager.getOfflineCache();
+        Msg.send(context, messages.get("commands.essentials.storage.cache", Map.of(
+                "online", String.valueOf(storageManager.getOnlineCacheSize()),
+                "offline", String.valueOf(offlineCache.size()),
+                "capacity", String.valueOf(offlineCache.getCapacity()),
+                "hitrate", String.format("%.1f", offlineCache.getHitRate() * 100))));
+        Msg.send(context, messages.get("commands.essentials.storage.damaged", Map.of(
+                "found", String.valueOf(storageManager.getCorruptLoads()),
+                "recovered", String.valueOf(storageManager.getRecoveredLoads()),
+                "lost", String.valueOf(storageManager.getLostLoads()))));
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,77 @@
+package com.nhulston.essentials.commands.essentials;
+
+import com.hypixel.hytale.server.core.command.system.AbstractCommand;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.nhulston.essentials.Essentials;
+import com.nhulston.essentials.managers.ArrivalGate;
+import com.nhulston.essentials.managers.RtpManager;
+import com.nhulston.essentials.managers.TeleportManager;
+import com.nhulston.essentials.util.ConfigManager;
+import com.nhulston.essentials.util.MessageManager;
+import com.nhulston.essentials.util.Msg;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Subcommand to show teleport metrics: RTP searches, what they cost in attempts and
+ * chunk loads, the destination pool of each RTP world, and the busiest teleport destinations.
+ * Usage: /essentials teleports
+ * Requires: essentials.teleports permission
+ * Can be executed by console or players.
+ */
+public class EssentialsTeleportsCommand extends AbstractCommand {
+    private static final int MAX_DESTINATIONS = 5;
+
+    private final ConfigManager configManager;
+    private final RtpManager rtpManager;
+    private final TeleportManager teleportManager;
+
+    public EssentialsTeleportsCommand(@Nonnull ConfigManager configManager, @Nonnull RtpManager rtpManager,
+                                      @Nonnull TeleportManager teleportManager) {
+        super("teleports", "Show EssentialsCore teleport metrics");
+        this.configManager = configManager;
+        this.rtpManager = rtpManager;
+        this.teleportManager = teleportManager;
+        requirePermission("essentials.teleports");
+    }
+
+    @Override
+    protected CompletableFuture<Void> execute(@Nonnull CommandContext context) {
+        MessageManager messages = Essentials.getInstance().getMessageManager();
+
+        Msg.send(context, messages.get("commands.essentials.teleports.header"));
+        Msg.send(context, messages.get("commands.essentials.teleports.rtp", Map.of(
+                "searches", String.valueOf(rtpManager.getSearches()),
+                "poolhits", String.valueOf(rtpManager.getPoolHits()),
+                "failures", String.valueOf(rtpManager.getSearchFailures()))));
+        Msg.send(context, messages.get("commands.essentials.teleports.rtp-cost", Map.of(
+                "attempts", String.format("%.1f", rtpManager.getAverageAttempts()),
+                "loads", String.format("%.1f", rtpManager.getAverageChunkLoads()),
+                "max", String.valueOf(rtpManager.getMaxAttempts()),
+                "skipped", String.valueOf(rtpManager.getSkippedSamples()))));
+
+        for (String world : configManager.getRtpWorlds().keySet()) {
+            Msg.send(context, messages.get("commands.essentials.teleports.rtp-world", Map.of(
+                    "world", world,
+                    "ready", String.valueOf(rtpManager.getReadyCount(world)),
+                    "size", String.valueOf(configManager.getRtpPoolSize()),
+                    "failed", String.valueOf(rtpManager.getFailedRegionCount(world)))));
+        }
+
+        List<ArrivalGate.Stats> destinations = teleportManager.getArrivalStats();
+        for (ArrivalGate.Stats stats : destinations.subList(0, Math.min(MAX_DESTINATIONS, destinations.size()))) {
+            Msg.send(context, messages.get("commands.essentials.teleports.destination", Map.of(
+                    "world", stats.worldName(),
+                    "chunk", stats.chunkX() + "," + stats.chunkZ(),
+                    "arrivals", String.valueOf(stats.arrivals()),
+                    "queued", String.valueOf(stats.queued()),
+                    "delayed", String.valueOf(stats.delayed()),
+                    "avg", String.format("%.0f", stats.averageWaitMillis()),
+                    "max", String.valueOf(stats.maxWaitMillis()))));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
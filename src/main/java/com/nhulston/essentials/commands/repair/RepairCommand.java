@@ -99,8 +99,7 @@ public class RepairCommand extends AbstractPlayerCommand {
         }
 
         // Set cooldown before repair
-        data.setLastRepairTime(System.currentTimeMillis());
-        storageManager.savePlayerData(playerUuid);
+        storageManager.setLastRepairTime(playerUuid, System.currentTimeMillis());
 
         // Create repaired item and replace in hotbar
         ItemStack repairedItem = heldItem.withDurability(maxDurability);
@@ -5,8 +5,6 @@ import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.math.util.ChunkUtil;
 import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.math.vector.Vector3f;
-import com.hypixel.hytale.protocol.BlockMaterial;
-import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
 import com.hypixel.hytale.server.core.command.system.basecommands.AbstractPlayerCommand;
 import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
@@ -16,6 +14,7 @@ import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import com.nhulston.essentials.Essentials;
+import com.nhulston.essentials.util.HeightmapCache;
 import com.nhulston.essentials.util.MessageManager;
 import com.nhulston.essentials.util.Msg;
 import com.nhulston.essentials.util.TeleportUtil;
@@ -27,12 +26,13 @@ import javax.annotation.Nonnull;
  * Usage: /top
  */
 public class TopCommand extends AbstractPlayerCommand {
-    private static final int MAX_HEIGHT = 256;
     private final MessageManager messages;
+    private final HeightmapCache heightmapCache;
 
     public TopCommand() {
         super("top", "Teleport to the highest block");
         this.messages = Essentials.getInstance().getMessageManager();
+        this.heightmapCache = Essentials.getInstance().getHeightmapCache();
         requirePermission("essentials.top");
     }
 
@@ -58,9 +58,9 @@ public class TopCommand extends AbstractPlayerCommand {
             return;
         }
 
-        // Find highest solid block from top down
-        Integer topY = findHighestSolidBlock(chunk, blockX, blockZ);
-        if (topY == null) {
+        // Find highest solid block
+        int topY = heightmapCache.getColumn(world, chunk, blockX, blockZ).getTopSolid();
+        if (topY < 0) {
             Msg.send(context, messages.get("commands.top.no-ground"));
             return;
         }
@@ -81,18 +81,4 @@ public class TopCommand extends AbstractPlayerCommand {
 
         Msg.send(context, messages.get("commands.top.teleported"));
     }
-
-    /**
-     * Finds the highest solid block at the given X/Z position.
-     * @return Y coordinate of highest solid block, or null if none found
-     */
-    private Integer findHighestSolidBlock(WorldChunk chunk, int x, int z) {
-        for (int y = MAX_HEIGHT; y >= 0; y--) {
-            BlockType blockType = chunk.getBlockType(x, y, z);
-            if (blockType != null && blockType.getMaterial() == BlockMaterial.Solid) {
-                return y;
-            }
-        }
-        return null;
-    }
 }
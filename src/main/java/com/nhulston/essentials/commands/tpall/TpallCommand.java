@@ -0,0 +1,147 @@
+package com.nhulston.essentials.commands.tpall;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.math.vector.Vector3f;
+import com.hypixel.hytale.server.core.command.system.AbstractCommand;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractPlayerCommand;
+import com.hypixel.hytale.server.core.modules.entity.component.HeadRotation;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.nhulston.essentials.Essentials;
+import com.nhulston.essentials.managers.BackManager;
+import com.nhulston.essentials.managers.TeleportManager;
+import com.nhulston.essentials.managers.WarpManager;
+import com.nhulston.essentials.models.Warp;
+import com.nhulston.essentials.util.MessageManager;
+import com.nhulston.essentials.util.Msg;
+import com.nhulston.essentials.util.TeleportUtil;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Command to teleport every online player to yourself or to a warp, a few players per tick.
+ * Usage: /tpall - Teleport all other players to you
+ * Usage: /tpall <warp> - Teleport all players to a warp (console or players)
+ * Requires: essentials.tpall permission
+ */
+public class TpallCommand extends AbstractPlayerCommand {
+    private final TeleportManager teleportManager;
+    private final BackManager backManager;
+    private final MessageManager messages;
+
+    public TpallCommand(@Nonnull WarpManager warpManager, @Nonnull TeleportManager teleportManager,
+                        @Nonnull BackManager backManager) {
+        super("tpall", "Teleport all players to you");
+        this.teleportManager = teleportManager;
+        this.backManager = backManager;
+        this.messages = Essentials.getInstance().getMessageManager();
+
+        requirePermission("essentials.tpall");
+        addUsageVariant(new TpallWarpCommand(warpManager, teleportManager, backManager));
+    }
+
+    @Override
+    protected void execute(@Nonnull CommandContext context, @Nonnull Store<EntityStore> store,
+                           @Nonnull Ref<EntityStore> ref, @Nonnull PlayerRef playerRef, @Nonnull World world) {
+        UUID senderUuid = playerRef.getUuid();
+        List<PlayerRef> players = Universe.get().getPlayers().stream()
+                .filter(player -> !player.getUuid().equals(senderUuid))
+                .toList();
+        if (players.isEmpty()) {
+            Msg.send(context, messages.get("commands.tpall.no-players"));
+            return;
+        }
+
+        Vector3d position = TeleportUtil.getStartPosition(store, ref);
+        if (position == null) {
+            Msg.send(context, messages.get("errors.generic"));
+            return;
+        }
+        HeadRotation headRotation = store.getComponent(ref, HeadRotation.getComponentType());
+        Vector3f rotation = (headRotation != null) ? headRotation.getRotation() : new Vector3f(0.0F, 0.0F, 0.0F);
+
+        start(context, teleportManager, backManager, players, world.getName(),
+                position.getX(), position.getY(), position.getZ(), rotation.getY(), rotation.getX(),
+                messages.get("commands.tpall.teleported", Map.of("player", playerRef.getUsername())));
+    }
+
+    /**
+     * Starts a mass teleport and reports its progress and completion to the sender.
+     */
+    private static void start(@Nonnull CommandContext context, @Nonnull TeleportManager teleportManager,
+                              @Nonnull BackManager backManager, @Nonnull List<PlayerRef> players,
+                              @Nonnull String worldName, double x, double y, double z, float yaw, float pitch,
+                              @Nonnull String successMessage) {
+        MessageManager messages = Essentials.getInstance().getMessageManager();
+        Msg.send(context, messages.get("commands.tpall.started", Map.of("count", String.valueOf(players.size()))));
+
+        teleportManager.teleportAll(players, backManager, worldName, x, y, z, yaw, pitch, successMessage,
+                progress -> Msg.send(context, messages.get("commands.tpall.progress", Map.of(
+                        "done", String.valueOf(progress.teleported() + progress.failed()),
+                        "total", String.valueOf(progress.total())))))
+                .thenAccept(progress -> Msg.send(context, messages.get("commands.tpall.done", Map.of(
+                        "teleported", String.valueOf(progress.teleported()),
+                        "total", String.valueOf(progress.total()),
+                        "seconds", String.format("%.1f", progress.elapsedMillis() / 1000.0)))));
+    }
+
+    /**
+     * Variant for teleporting all players to a warp.
+     * Usage: /tpall <warp>
+     */
+    private static class TpallWarpCommand extends AbstractCommand {
+        private final WarpManager warpManager;
+        private final TeleportManager teleportManager;
+        private final BackManager backManager;
+        private final RequiredArg<String> warpArg;
+
+        TpallWarpCommand(@Nonnull WarpManager warpManager, @Nonnull TeleportManager teleportManager,
+                         @Nonnull BackManager backManager) {
+            super("Teleport all players to a warp");
+            this.warpManager = warpManager;
+            this.teleportManager = teleportManager;
+            this.backManager = backManager;
+            this.warpArg = withRequiredArg("warp", "Warp name", ArgTypes.STRING);
+            requirePermission("essentials.tpall");
+        }
+
+        @Override
+        protected CompletableFuture<Void> execute(@Nonnull CommandContext context) {
+            MessageManager messages = Essentials.getInstance().getMessageManager();
+            String warpName = context.get(warpArg);
+            Warp warp = warpManager.getWarp(warpName);
+
+            if (warp == null) {
+                Msg.send(context, messages.get("commands.warp.not-found", Map.of("warp", warpName)));
+                return CompletableFuture.completedFuture(null);
+            }
+
+            if (Universe.get().getWorld(warp.getWorld()) == null) {
+                Msg.send(context, messages.get("teleport.world-not-loaded", Map.of("world", warp.getWorld())));
+                return CompletableFuture.completedFuture(null);
+            }
+
+            List<PlayerRef> players = Universe.get().getPlayers();
+            if (players.isEmpty()) {
+                Msg.send(context, messages.get("commands.tpall.no-players"));
+                return CompletableFuture.completedFuture(null);
+            }
+
+            start(context, teleportManager, backManager, players, warp.getWorld(),
+                    warp.getX(), warp.getY(), warp.getZ(), warp.getYaw(), warp.getPitch(),
+                    messages.get("commands.tpall.teleported-warp", Map.of("warp", warpName)));
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
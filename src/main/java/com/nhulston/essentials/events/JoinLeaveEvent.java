@@ -45,7 +45,7 @@ public class JoinLeaveEvent {
                 return;
             }
 
-            boolean isFirstJoin = !storageManager.hasPlayerJoined(playerRef.getUuid());
+            boolean isFirstJoin = storageManager.isFirstJoin(playerRef.getUuid());
 
             // Choose appropriate message
             String message;
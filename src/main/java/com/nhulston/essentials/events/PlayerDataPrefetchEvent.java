@@ -0,0 +1,30 @@
+package com.nhulston.essentials.events;
+
+import com.hypixel.hytale.event.EventRegistry;
+import com.hypixel.hytale.server.core.event.events.player.PlayerConnectEvent;
+import com.nhulston.essentials.util.StorageManager;
+
+import javax.annotation.Nonnull;
+import java.util.UUID;
+
+/**
+ * Starts loading a player's data in the background as soon as they connect,
+ * so the first command or event that needs it doesn't block a world thread on disk I/O.
+ * Also records whether the player is new. This is registered before the other connect handlers,
+ * so the answer is settled before spawn teleport marks the player as joined.
+ */
+public class PlayerDataPrefetchEvent {
+    private final StorageManager storageManager;
+
+    public PlayerDataPrefetchEvent(@Nonnull StorageManager storageManager) {
+        this.storageManager = storageManager;
+    }
+
+    public void register(@Nonnull EventRegistry eventRegistry) {
+        eventRegistry.registerGlobal(PlayerConnectEvent.class, event -> {
+            UUID uuid = event.getPlayerRef().getUuid();
+            storageManager.beginSession(uuid);
+            storageManager.prefetchPlayerData(uuid);
+        });
+    }
+}
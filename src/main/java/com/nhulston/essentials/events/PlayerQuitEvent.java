@@ -6,7 +6,8 @@ import com.nhulston.essentials.commands.freecam.FreecamCommand;
 import com.nhulston.essentials.commands.msg.MsgCommand;
 import com.nhulston.essentials.commands.socialspy.SocialSpyCommand;
 import com.nhulston.essentials.managers.BackManager;
-import com.nhulston.essentials.managers.TeleportManager;
+import com.nhulston.essentials.managers.PlayerPositionRegistry;
+import com.nhulston.essentials.managers.PlayerSpatialIndex;
 import com.nhulston.essentials.managers.TpaManager;
 import com.nhulston.essentials.util.Log;
 import com.nhulston.essentials.util.StorageManager;
@@ -21,17 +22,20 @@ import java.util.UUID;
 public class PlayerQuitEvent {
     private final StorageManager storageManager;
     private final TpaManager tpaManager;
-    private final TeleportManager teleportManager;
     private final BackManager backManager;
+    private final PlayerPositionRegistry positionRegistry;
+    private final PlayerSpatialIndex spatialIndex;
 
     public PlayerQuitEvent(@Nonnull StorageManager storageManager,
                            @Nonnull TpaManager tpaManager,
-                           @Nonnull TeleportManager teleportManager,
-                           @Nonnull BackManager backManager) {
+                           @Nonnull BackManager backManager,
+                           @Nonnull PlayerPositionRegistry positionRegistry,
+                           @Nonnull PlayerSpatialIndex spatialIndex) {
         this.storageManager = storageManager;
         this.tpaManager = tpaManager;
-        this.teleportManager = teleportManager;
         this.backManager = backManager;
+        this.positionRegistry = positionRegistry;
+        this.spatialIndex = spatialIndex;
     }
 
     public void register(@Nonnull EventRegistry eventRegistry) {
@@ -42,8 +46,9 @@ public class PlayerQuitEvent {
             storageManager.savePlayerData(playerUuid);
             storageManager.unloadPlayer(playerUuid);
             tpaManager.onPlayerQuit(playerUuid);
-            teleportManager.onPlayerQuit(playerUuid);
             backManager.onPlayerQuit(playerUuid);
+            positionRegistry.onPlayerQuit(playerUuid);
+            spatialIndex.onPlayerQuit(playerUuid);
 
             // Clean up static command/event data
             MsgCommand.onPlayerQuit(playerUuid);
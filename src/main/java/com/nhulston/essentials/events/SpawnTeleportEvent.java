@@ -56,15 +56,16 @@ public class SpawnTeleportEvent {
             PlayerRef playerRef = event.getPlayerRef();
             UUID uuid = playerRef.getUuid();
             
-            boolean hasJoined = storageManager.hasPlayerJoined(uuid);
+            // Decided when the player connected, so marking them below doesn't hide it from other handlers
+            boolean isFirstJoin = storageManager.isFirstJoin(uuid);
             
             // Mark player as joined if this is their first time
-            if (!hasJoined) {
+            if (isFirstJoin && !storageManager.hasPlayerJoined(uuid)) {
                 storageManager.markPlayerJoined(uuid);
             }
             
             // Check if we should teleport to spawn
-            if (everyJoin || !hasJoined) {
+            if (everyJoin || isFirstJoin) {
                 Spawn spawn = spawnManager.getSpawn();
                 if (spawn != null) {
                     World targetWorld = Universe.get().getWorld(spawn.getWorld());
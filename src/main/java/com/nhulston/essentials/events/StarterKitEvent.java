@@ -41,7 +41,7 @@ public class StarterKitEvent {
     }
 
     public void register(@Nonnull EventRegistry eventRegistry) {
-        // Phase 1: Detect first-time joins before SpawnTeleportEvent marks them as joined
+        // Phase 1: Detect first-time joins
         eventRegistry.registerGlobal(PlayerConnectEvent.class, event -> {
             if (!configManager.isStarterKitEnabled()) {
                 return;
@@ -55,8 +55,8 @@ public class StarterKitEvent {
             PlayerRef playerRef = event.getPlayerRef();
             UUID uuid = playerRef.getUuid();
 
-            // Check if this is a first-time join (before SpawnTeleportEvent marks them)
-            if (storageManager.hasPlayerJoined(uuid)) {
+            // Check if this is a first-time join (decided when the player connected)
+            if (!storageManager.isFirstJoin(uuid)) {
                 return;
             }
 
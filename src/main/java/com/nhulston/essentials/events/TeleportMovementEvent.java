@@ -7,16 +7,17 @@ import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.component.query.Query;
 import com.hypixel.hytale.component.system.tick.EntityTickingSystem;
-import com.hypixel.hytale.math.vector.Vector3d;
-import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import com.nhulston.essentials.managers.TeleportManager;
+import com.nhulston.essentials.managers.TeleportWarmupComponent;
 import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.Nonnull;
 
 /**
  * Checks player movement each tick and cancels pending teleports if they move too far.
+ * Only entities with a {@link TeleportWarmupComponent} are visited.
  */
 public class TeleportMovementEvent {
     private final TeleportManager teleportManager;
@@ -26,6 +27,7 @@ public class TeleportMovementEvent {
     }
 
     public void register(@Nonnull ComponentRegistryProxy<EntityStore> registry) {
+        TeleportWarmupComponent.registerComponent(registry);
         registry.registerSystem(new TeleportMovementCheckSystem(teleportManager));
     }
 
@@ -41,27 +43,21 @@ public class TeleportMovementEvent {
 
         @Override
         public Query<EntityStore> getQuery() {
-            return Query.any();
+            return Query.and(TransformComponent.getComponentType(), TeleportWarmupComponent.getComponentType());
         }
 
         @Override
         public void tick(float deltaTime, int index, ArchetypeChunk<EntityStore> chunk,
                          @NotNull Store<EntityStore> store, @NotNull CommandBuffer<EntityStore> buffer) {
-            PlayerRef playerRef = chunk.getComponent(index, PlayerRef.getComponentType());
-            if (playerRef == null) {
-                return;
-            }
-
-            // Only check if player has a pending teleport
-            if (!teleportManager.hasPendingTeleport(playerRef.getUuid())) {
+            TeleportWarmupComponent warmup = chunk.getComponent(index, TeleportWarmupComponent.getComponentType());
+            TransformComponent transform = chunk.getComponent(index, TransformComponent.getComponentType());
+            if (warmup == null || transform == null) {
                 return;
             }
 
             // Get the current entity ref from this tick (not the stored one from command time)
             Ref<EntityStore> currentRef = chunk.getReferenceTo(index);
-            
-            Vector3d currentPosition = playerRef.getTransform().getPosition();
-            teleportManager.tick(playerRef.getUuid(), currentRef, currentPosition, deltaTime, buffer);
+            teleportManager.tick(currentRef, warmup, transform.getPosition(), buffer);
         }
     }
 }
@@ -0,0 +1,169 @@
+package com.nhulston.essentials.managers;
+
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.nhulston.essentials.Essentials;
+import com.nhulston.essentials.util.ConfigManager;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Limits how many teleports arrive in the same destination chunk per tick.
+ * <p>
+ * Each arrival reserves a slot in its destination's next tick with room
+ * (teleport.arrivals-per-tick); if that tick is later than the current one, the teleport waits
+ * for it in the {@link TimerService} of the player's own world. Reservations are handed out in
+ * order, so arrivals keep the order in which their warmups finished, and a burst of arrivals at
+ * one destination is spread across ticks while other destinations are unaffected.
+ */
+public class ArrivalGate {
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final int CHUNK_SHIFT = 5;
+
+    /** An arrival within this long of the previous one at the same destination counts as crowded */
+    private static final long CROWDED_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /** So does one while somebody is standing this close to the landing spot */
+    private static final double CROWDED_RADIUS = 1.5;
+
+    /** Idle destinations are forgotten after this long */
+    private static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final int PRUNE_THRESHOLD = 256;
+
+    private final ConfigManager configManager;
+    private final TimerService timerService;
+    private final ConcurrentHashMap<Key, Destination> destinations = new ConcurrentHashMap<>();
+
+    /**
+     * Arrival metrics of one destination chunk.
+     *
+     * @param queued arrivals waiting for a later tick right now
+     * @param arrivals arrivals counted so far
+     * @param delayed arrivals that had to wait; the wait times are over these
+     */
+    public record Stats(@Nonnull String worldName, int chunkX, int chunkZ, int queued, long arrivals, long delayed,
+                        double averageWaitMillis, long maxWaitMillis) {}
+
+    private record Key(@Nonnull String worldName, int chunkX, int chunkZ) {}
+
+    /**
+     * Reservations and metrics of one destination chunk. Guarded by its own lock.
+     */
+    private static final class Destination {
+        private long slotTick = Long.MIN_VALUE;
+        private int slotCount;
+        private long lastReservedNanos;
+        private int queued;
+        private long arrivals;
+        private long delayed;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+    }
+
+    ArrivalGate(@Nonnull ConfigManager configManager, @Nonnull TimerService timerService) {
+        this.configManager = configManager;
+        this.timerService = timerService;
+    }
+
+    /**
+     * Lets a teleport arrive at a destination now or on a later tick. Called on the player's
+     * world thread; the arrival always runs on that thread.
+     *
+     * @param world the world the player is in
+     * @param arrival runs the teleport; given true if other players arrived at the same
+     *                destination just before or are standing on it, so the landing spot may be taken
+     */
+    public void admit(@Nonnull World world, @Nonnull String worldName, double x, double y, double z,
+                      @Nonnull Consumer<Boolean> arrival) {
+        long now = System.nanoTime();
+        Key key = new Key(worldName, (int) Math.floor(x) >> CHUNK_SHIFT, (int) Math.floor(z) >> CHUNK_SHIFT);
+        if (destinations.size() > PRUNE_THRESHOLD) {
+            prune(now);
+        }
+        Destination destination = destinations.computeIfAbsent(key, _ -> new Destination());
+
+        int limit = configManager.getTeleportArrivalsPerTick();
+        long tick = now / TICK_NANOS;
+        long delayTicks;
+        boolean crowded;
+        synchronized (destination) {
+            crowded = destination.arrivals > 0 && now - destination.lastReservedNanos < CROWDED_NANOS;
+            destination.lastReservedNanos = now;
+            destination.arrivals++;
+
+            if (destination.slotTick < tick) {
+                destination.slotTick = tick;
+                destination.slotCount = 0;
+            }
+            if (limit > 0 && destination.slotCount >= limit) {
+                destination.slotTick++;
+                destination.slotCount = 0;
+            }
+            destination.slotCount++;
+
+            delayTicks = destination.slotTick - tick;
+            if (delayTicks > 0) {
+                destination.queued++;
+                destination.delayed++;
+            }
+        }
+
+        if (delayTicks == 0) {
+            arrival.accept(crowded || isOccupied(worldName, x, y, z));
+            return;
+        }
+
+        long delayMillis = TimeUnit.NANOSECONDS.toMillis(delayTicks * TICK_NANOS);
+        timerService.schedule(world, delayMillis, TimeUnit.MILLISECONDS, () -> {
+            long waitNanos = System.nanoTime() - now;
+            synchronized (destination) {
+                destination.queued--;
+                destination.totalWaitNanos += waitNanos;
+                destination.maxWaitNanos = Math.max(destination.maxWaitNanos, waitNanos);
+            }
+            arrival.accept(true);
+        });
+    }
+
+    /**
+     * Gets metrics of the destinations that saw arrivals recently, busiest first.
+     */
+    @Nonnull
+    public List<Stats> getStats() {
+        long now = System.nanoTime();
+        List<Stats> stats = new ArrayList<>();
+        destinations.forEach((key, destination) -> {
+            synchronized (destination) {
+                if (destination.queued == 0 && now - destination.lastReservedNanos > IDLE_NANOS) {
+                    return;
+                }
+                double averageWait = destination.delayed > 0
+                        ? destination.totalWaitNanos / (double) destination.delayed / 1_000_000.0
+                        : 0.0;
+                stats.add(new Stats(key.worldName(), key.chunkX(), key.chunkZ(), destination.queued,
+                        destination.arrivals, destination.delayed, averageWait,
+                        TimeUnit.NANOSECONDS.toMillis(destination.maxWaitNanos)));
+            }
+        });
+        stats.sort(Comparator.comparingLong(Stats::arrivals).reversed());
+        return stats;
+    }
+
+    private static boolean isOccupied(@Nonnull String worldName, double x, double y, double z) {
+        return !Essentials.getInstance().getPlayerSpatialIndex()
+                .getPlayersInRange(worldName, x, y, z, CROWDED_RADIUS).isEmpty();
+    }
+
+    private void prune(long now) {
+        destinations.values().removeIf(destination -> {
+            synchronized (destination) {
+                return destination.queued == 0 && now - destination.lastReservedNanos > IDLE_NANOS;
+            }
+        });
+    }
+}
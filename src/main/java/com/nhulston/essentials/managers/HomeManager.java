@@ -92,8 +92,7 @@ public class HomeManager {
         }
 
         Home home = new Home(world, x, y, z, yaw, pitch, System.currentTimeMillis());
-        data.setHome(lowerName, home);
-        storageManager.savePlayerData(playerUuid);
+        storageManager.setHome(playerUuid, lowerName, home);
 
         return null;
     }
@@ -113,8 +112,7 @@ public class HomeManager {
         if (data.getHome(name) == null) {
             return false;
         }
-        data.deleteHome(name);
-        storageManager.savePlayerData(playerUuid);
+        storageManager.deleteHome(playerUuid, name);
         return true;
     }
 }
@@ -11,6 +11,7 @@ import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import com.nhulston.essentials.models.Kit;
 import com.nhulston.essentials.models.KitItem;
 import com.nhulston.essentials.models.PlayerData;
+import com.nhulston.essentials.storage.AtomicFiles;
 import com.nhulston.essentials.util.Log;
 import com.nhulston.essentials.util.StorageManager;
 import org.tomlj.Toml;
@@ -22,6 +23,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -30,7 +32,6 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * Manages kit loading, saving, and application.
@@ -162,36 +163,13 @@ public class KitManager {
      * Saves a kit to kits.toml (appends to existing file)
      */
     private void saveKitAsync(@Nonnull Kit kit) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                StringBuilder toml = new StringBuilder();
-                
-                // Read existing content
-                String existing = "";
-                if (Files.exists(kitsPath)) {
-                    existing = Files.readString(kitsPath);
-                }
-                
-                // Build kit TOML
-                toml.append("\n[kits.").append(kit.getId()).append("]\n");
-                toml.append("display-name = \"").append(escapeToml(kit.getDisplayName())).append("\"\n");
-                toml.append("cooldown = ").append(kit.getCooldown()).append("\n");
-                toml.append("type = \"").append(kit.getType()).append("\"\n");
-                
-                for (KitItem item : kit.getItems()) {
-                    toml.append("\n[[kits.").append(kit.getId()).append(".items]]\n");
-                    toml.append("item-id = \"").append(escapeToml(item.itemId())).append("\"\n");
-                    toml.append("quantity = ").append(item.quantity()).append("\n");
-                    toml.append("section = \"").append(item.section()).append("\"\n");
-                    toml.append("slot = ").append(item.slot()).append("\n");
-                }
-                
-                // Append to file
-                Files.writeString(kitsPath, existing + toml);
-                Log.info("Saved kit: " + kit.getId());
-            } catch (IOException e) {
-                Log.error("Failed to save kit " + kit.getId() + ": " + e.getMessage());
-            }
+        String toml = "\n" + toToml(kit);
+
+        // Read inside the file's lane so an earlier queued rewrite is already on disk
+        storageManager.getIoExecutor().execute(kitsPath, () -> {
+            String existing = Files.exists(kitsPath) ? Files.readString(kitsPath) : "";
+            AtomicFiles.writeString(kitsPath, existing + toml);
+            Log.info("Saved kit: " + kit.getId());
         });
     }
 
@@ -226,33 +204,34 @@ public class KitManager {
      * Saves all kits to kits.toml (rewrites entire file)
      */
     private void saveAllKitsAsync() {
-        CompletableFuture.runAsync(() -> {
-            try {
-                StringBuilder toml = new StringBuilder();
-                toml.append(fileHeader);
-                toml.append("[kits]\n");
-
-                for (Kit kit : kits.values()) {
-                    toml.append("\n[kits.").append(kit.getId()).append("]\n");
-                    toml.append("display-name = \"").append(escapeToml(kit.getDisplayName())).append("\"\n");
-                    toml.append("cooldown = ").append(kit.getCooldown()).append("\n");
-                    toml.append("type = \"").append(kit.getType()).append("\"\n");
-
-                    for (KitItem item : kit.getItems()) {
-                        toml.append("\n[[kits.").append(kit.getId()).append(".items]]\n");
-                        toml.append("item-id = \"").append(escapeToml(item.itemId())).append("\"\n");
-                        toml.append("quantity = ").append(item.quantity()).append("\n");
-                        toml.append("section = \"").append(item.section()).append("\"\n");
-                        toml.append("slot = ").append(item.slot()).append("\n");
-                    }
-                }
+        StringBuilder toml = new StringBuilder();
+        toml.append(fileHeader);
+        toml.append("[kits]\n");
 
-                Files.writeString(kitsPath, toml.toString());
-                Log.info("Saved all kits to kits.toml");
-            } catch (IOException e) {
-                Log.error("Failed to save kits: " + e.getMessage());
-            }
-        });
+        for (Kit kit : kits.values()) {
+            toml.append("\n").append(toToml(kit));
+        }
+
+        storageManager.getIoExecutor().write(kitsPath, toml.toString().getBytes(StandardCharsets.UTF_8))
+                .thenRun(() -> Log.info("Saved all kits to kits.toml"));
+    }
+
+    @Nonnull
+    private static String toToml(@Nonnull Kit kit) {
+        StringBuilder toml = new StringBuilder();
+        toml.append("[kits.").append(kit.getId()).append("]\n");
+        toml.append("display-name = \"").append(escapeToml(kit.getDisplayName())).append("\"\n");
+        toml.append("cooldown = ").append(kit.getCooldown()).append("\n");
+        toml.append("type = \"").append(kit.getType()).append("\"\n");
+
+        for (KitItem item : kit.getItems()) {
+            toml.append("\n[[kits.").append(kit.getId()).append(".items]]\n");
+            toml.append("item-id = \"").append(escapeToml(item.itemId())).append("\"\n");
+            toml.append("quantity = ").append(item.quantity()).append("\n");
+            toml.append("section = \"").append(item.section()).append("\"\n");
+            toml.append("slot = ").append(item.slot()).append("\n");
+        }
+        return toml.toString();
     }
 
     /**
@@ -280,9 +259,7 @@ public class KitManager {
      * Sets the cooldown timestamp for a player's kit usage
      */
     public void setKitUsed(@Nonnull UUID playerUuid, @Nonnull String kitId) {
-        PlayerData data = storageManager.getPlayerData(playerUuid);
-        data.setKitCooldown(kitId.toLowerCase(), System.currentTimeMillis());
-        storageManager.savePlayerData(playerUuid);
+        storageManager.setKitCooldown(playerUuid, kitId, System.currentTimeMillis());
     }
 
     /**
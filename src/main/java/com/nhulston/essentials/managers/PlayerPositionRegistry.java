@@ -0,0 +1,139 @@
+package com.nhulston.essentials.managers;
+
+import com.hypixel.hytale.component.ArchetypeChunk;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.ComponentRegistryProxy;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
+import com.hypixel.hytale.component.system.tick.EntityTickingSystem;
+import com.hypixel.hytale.component.system.tick.TickingSystem;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latest known position of every online player, readable from any thread.
+ * <p>
+ * Each world's tick publishes an immutable {@link Snapshot} for a player whenever their position,
+ * facing or world changed, by swapping it into a concurrent map, so readers never lock and never
+ * see a half-written position. A player standing still keeps their old snapshot; it still counts
+ * as current as long as their world keeps ticking, so freshness is judged by the world's last
+ * tick rather than by the snapshot's age.
+ */
+public class PlayerPositionRegistry {
+    /** How long a world may go without ticking before its snapshots are no longer trusted */
+    private static final long MAX_STALENESS_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final ConcurrentHashMap<UUID, Snapshot> positions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> worldTicks = new ConcurrentHashMap<>();
+
+    /**
+     * A player's position as of one tick of their world.
+     */
+    public record Snapshot(@Nonnull World world, @Nonnull Vector3d position, float yaw, long publishedNanos) {}
+
+    public void registerSystems(@Nonnull ComponentRegistryProxy<EntityStore> registry) {
+        registry.registerSystem(new WorldTickSystem(this));
+        registry.registerSystem(new PositionPublishSystem(this));
+    }
+
+    /**
+     * Gets a player's snapshot if it's current: the player is still in the given world and that
+     * world ticked recently.
+     *
+     * @param world the world the player is in right now
+     * @return null if there's no current snapshot; read the position on the world thread instead
+     */
+    @Nullable
+    public Snapshot getCurrent(@Nonnull UUID playerUuid, @Nonnull World world) {
+        Snapshot snapshot = positions.get(playerUuid);
+        if (snapshot == null || snapshot.world() != world) {
+            // Not published yet, or not since the player changed worlds
+            return null;
+        }
+
+        Long lastTick = worldTicks.get(world.getName());
+        if (lastTick == null || System.nanoTime() - lastTick > MAX_STALENESS_NANOS) {
+            return null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Gets a player's last published snapshot, however old. Good enough for proximity checks,
+     * where a tick-old position doesn't matter.
+     */
+    @Nullable
+    public Snapshot getLatest(@Nonnull UUID playerUuid) {
+        return positions.get(playerUuid);
+    }
+
+    public void onPlayerQuit(@Nonnull UUID playerUuid) {
+        positions.remove(playerUuid);
+    }
+
+    private void publish(@Nonnull UUID playerUuid, @Nonnull World world, @Nonnull Vector3d position, float yaw) {
+        Snapshot current = positions.get(playerUuid);
+        if (current != null && current.world() == world && current.yaw() == yaw
+                && current.position().x == position.x && current.position().y == position.y
+                && current.position().z == position.z) {
+            return;
+        }
+        // The transform's vector is mutated in place by the world, so publish a copy
+        positions.put(playerUuid, new Snapshot(world, position.clone(), yaw, System.nanoTime()));
+    }
+
+    /**
+     * Records that a world ticked, once per world tick.
+     */
+    private static class WorldTickSystem extends TickingSystem<EntityStore> {
+        private final PlayerPositionRegistry registry;
+
+        WorldTickSystem(@Nonnull PlayerPositionRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public void tick(float deltaTime, int systemIndex, @NotNull Store<EntityStore> store) {
+            registry.worldTicks.put(store.getExternalData().getWorld().getName(), System.nanoTime());
+        }
+    }
+
+    /**
+     * Publishes player positions that changed this tick.
+     */
+    private static class PositionPublishSystem extends EntityTickingSystem<EntityStore> {
+        private final PlayerPositionRegistry registry;
+
+        PositionPublishSystem(@Nonnull PlayerPositionRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public Query<EntityStore> getQuery() {
+            return Query.and(PlayerRef.getComponentType(), TransformComponent.getComponentType());
+        }
+
+        @Override
+        public void tick(float deltaTime, int index, ArchetypeChunk<EntityStore> chunk,
+                         @NotNull Store<EntityStore> store, @NotNull CommandBuffer<EntityStore> buffer) {
+            PlayerRef playerRef = chunk.getComponent(index, PlayerRef.getComponentType());
+            TransformComponent transform = chunk.getComponent(index, TransformComponent.getComponentType());
+            if (playerRef == null || transform == null) {
+                return;
+            }
+
+            registry.publish(playerRef.getUuid(), store.getExternalData().getWorld(),
+                    transform.getPosition(), transform.getRotation().y);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.nhulston.essentials.managers;
+
+import com.hypixel.hytale.component.ArchetypeChunk;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.ComponentRegistryProxy;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
+import com.hypixel.hytale.component.system.tick.EntityTickingSystem;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which online players are in which chunk, per world, for "players near X" lookups that
+ * shouldn't go through every online player.
+ * <p>
+ * Players are bucketed by chunk (one cell per 32x32 column). A single ticking system checks each
+ * player's cell every tick but only touches the index when the player crosses into another
+ * cell or world, so standing and walking around inside a chunk costs a map lookup. Exact
+ * distances come from the {@link PlayerPositionRegistry}. Lookups are safe from any thread.
+ */
+public class PlayerSpatialIndex {
+    private static final int CELL_SHIFT = 5;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+    private final PlayerPositionRegistry positionRegistry;
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Long, Set<UUID>>> worlds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * A player found by a lookup, with their position as last published.
+     */
+    public record Nearby(@Nonnull PlayerRef player, @Nonnull Vector3d position, double distance) {}
+
+    /**
+     * The cell a player is indexed under.
+     */
+    private record Entry(@Nonnull PlayerRef player, @Nonnull String worldName, long cell) {}
+
+    public PlayerSpatialIndex(@Nonnull PlayerPositionRegistry positionRegistry) {
+        this.positionRegistry = positionRegistry;
+    }
+
+    public void registerSystems(@Nonnull ComponentRegistryProxy<EntityStore> registry) {
+        registry.registerSystem(new CellTrackingSystem(this));
+    }
+
+    /**
+     * Gets the players in a chunk.
+     */
+    @Nonnull
+    public List<PlayerRef> getPlayersInChunk(@Nonnull String worldName, int chunkX, int chunkZ) {
+        List<PlayerRef> players = new ArrayList<>();
+        ConcurrentHashMap<Long, Set<UUID>> cells = worlds.get(worldName);
+        if (cells == null) {
+            return players;
+        }
+        Set<UUID> cell = cells.get(cellKey(chunkX, chunkZ));
+        if (cell != null) {
+            for (UUID uuid : cell) {
+                Entry entry = entries.get(uuid);
+                if (entry != null) {
+                    players.add(entry.player());
+                }
+            }
+        }
+        return players;
+    }
+
+    /**
+     * Gets the players within a distance of a position, nearest first. Only the cells the
+     * radius overlaps are looked at.
+     */
+    @Nonnull
+    public List<Nearby> getPlayersInRange(@Nonnull String worldName, double x, double y, double z, double radius) {
+        List<Nearby> found = new ArrayList<>();
+        ConcurrentHashMap<Long, Set<UUID>> cells = worlds.get(worldName);
+        if (cells == null || radius < 0) {
+            return found;
+        }
+
+        int minX = cellCoord(x - radius);
+        int maxX = cellCoord(x + radius);
+        int minZ = cellCoord(z - radius);
+        int maxZ = cellCoord(z + radius);
+        if ((long) (maxX - minX + 1) * (maxZ - minZ + 1) > cells.size()) {
+            // Radius covers more cells than are occupied; look at the occupied ones instead
+            cells.forEach((key, cell) -> {
+                if (inRange(cellX(key), minX, maxX) && inRange(cellZ(key), minZ, maxZ)) {
+                    collect(cell, worldName, x, y, z, radius, found);
+                }
+            });
+        } else {
+            for (int cellX = minX; cellX <= maxX; cellX++) {
+                for (int cellZ = minZ; cellZ <= maxZ; cellZ++) {
+                    Set<UUID> cell = cells.get(cellKey(cellX, cellZ));
+                    if (cell != null) {
+                        collect(cell, worldName, x, y, z, radius, found);
+                    }
+                }
+            }
+        }
+
+        found.sort(Comparator.comparingDouble(Nearby::distance));
+        return found;
+    }
+
+    /**
+     * Gets up to {@code count} players nearest to a position, nearest first. Searches outward
+     * ring by ring and stops once no unvisited cell can hold anyone closer.
+     */
+    @Nonnull
+    public List<Nearby> getNearest(@Nonnull String worldName, double x, double y, double z, int count) {
+        List<Nearby> found = new ArrayList<>();
+        ConcurrentHashMap<Long, Set<UUID>> cells = worlds.get(worldName);
+        if (cells == null || count <= 0) {
+            return found;
+        }
+
+        int centerX = cellCoord(x);
+        int centerZ = cellCoord(z);
+        for (int ring = 0; ; ring++) {
+            long side = 2L * ring + 1;
+            if (side * side > cells.size()) {
+                // The rings would cover more cells than are occupied; finish with the occupied ones
+                int visited = ring;
+                cells.forEach((key, cell) -> {
+                    int distance = Math.max(Math.abs(cellX(key) - centerX), Math.abs(cellZ(key) - centerZ));
+                    if (distance >= visited) {
+                        collect(cell, worldName, x, y, z, Double.MAX_VALUE, found);
+                    }
+                });
+                break;
+            }
+
+            for (int cellX = centerX - ring; cellX <= centerX + ring; cellX++) {
+                // Only the border of the ring; the inside was visited before
+                int step = (cellX == centerX - ring || cellX == centerX + ring) ? 1 : 2 * ring;
+                for (int cellZ = centerZ - ring; cellZ <= centerZ + ring; cellZ += Math.max(1, step)) {
+                    Set<UUID> cell = cells.get(cellKey(cellX, cellZ));
+                    if (cell != null) {
+                        collect(cell, worldName, x, y, z, Double.MAX_VALUE, found);
+                    }
+                }
+            }
+
+            if (found.size() >= count) {
+                // Anything in a further ring is at least this far away horizontally
+                found.sort(Comparator.comparingDouble(Nearby::distance));
+                if (found.get(count - 1).distance() <= (double) ring * CELL_SIZE) {
+                    break;
+                }
+            }
+        }
+
+        found.sort(Comparator.comparingDouble(Nearby::distance));
+        return found.size() > count ? new ArrayList<>(found.subList(0, count)) : found;
+    }
+
+    public void onPlayerQuit(@Nonnull UUID playerUuid) {
+        Entry entry = entries.remove(playerUuid);
+        if (entry != null) {
+            removeFromCell(entry, playerUuid);
+        }
+    }
+
+    /**
+     * Moves a player to the cell of their current position if they left their old one.
+     * Called on the world thread every tick.
+     */
+    private void track(@Nonnull PlayerRef player, @Nonnull String worldName, @Nonnull Vector3d position) {
+        UUID uuid = player.getUuid();
+        long cell = cellKey(cellCoord(position.x), cellCoord(position.z));
+        Entry current = entries.get(uuid);
+        if (current != null && current.cell() == cell && current.worldName().equals(worldName)
+                && current.player() == player) {
+            return;
+        }
+
+        Entry entry = new Entry(player, worldName, cell);
+        entries.put(uuid, entry);
+        if (current != null) {
+            removeFromCell(current, uuid);
+        }
+        worlds.computeIfAbsent(worldName, _ -> new ConcurrentHashMap<>())
+                .computeIfAbsent(cell, _ -> ConcurrentHashMap.newKeySet())
+                .add(uuid);
+    }
+
+    private void removeFromCell(@Nonnull Entry entry, @Nonnull UUID uuid) {
+        ConcurrentHashMap<Long, Set<UUID>> cells = worlds.get(entry.worldName());
+        if (cells == null) {
+            return;
+        }
+        cells.computeIfPresent(entry.cell(), (_, cell) -> {
+            cell.remove(uuid);
+            return cell.isEmpty() ? null : cell;
+        });
+    }
+
+    private void collect(@Nonnull Set<UUID> cell, @Nonnull String worldName, double x, double y, double z,
+                         double radius, @Nonnull List<Nearby> found) {
+        for (UUID uuid : cell) {
+            Entry entry = entries.get(uuid);
+            PlayerPositionRegistry.Snapshot snapshot = positionRegistry.getLatest(uuid);
+            if (entry == null || snapshot == null || !snapshot.world().getName().equals(worldName)) {
+                continue;
+            }
+            Vector3d position = snapshot.position();
+            double dx = position.x - x;
+            double dy = position.y - y;
+            double dz = position.z - z;
+            double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            if (distance <= radius) {
+                found.add(new Nearby(entry.player(), position, distance));
+            }
+        }
+    }
+
+    private static boolean inRange(int value, int min, int max) {
+        return value >= min && value <= max;
+    }
+
+    private static int cellCoord(double blockCoord) {
+        return (int) Math.floor(blockCoord) >> CELL_SHIFT;
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private static int cellX(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int cellZ(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Re-indexes players whose cell changed this tick.
+     */
+    private static class CellTrackingSystem extends EntityTickingSystem<EntityStore> {
+        private final PlayerSpatialIndex index;
+
+        CellTrackingSystem(@Nonnull PlayerSpatialIndex index) {
+            this.index = index;
+        }
+
+        @Override
+        public Query<EntityStore> getQuery() {
+            return Query.and(PlayerRef.getComponentType(), TransformComponent.getComponentType());
+        }
+
+        @Override
+        public void tick(float deltaTime, int index, ArchetypeChunk<EntityStore> chunk,
+                         @NotNull Store<EntityStore> store, @NotNull CommandBuffer<EntityStore> buffer) {
+            PlayerRef playerRef = chunk.getComponent(index, PlayerRef.getComponentType());
+            TransformComponent transform = chunk.getComponent(index, TransformComponent.getComponentType());
+            if (playerRef == null || transform == null) {
+                return;
+            }
+
+            this.index.track(playerRef, store.getExternalData().getWorld().getName(), transform.getPosition());
+        }
+    }
+}
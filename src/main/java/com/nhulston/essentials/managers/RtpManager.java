@@ -0,0 +1,487 @@
+package com.nhulston.essentials.managers;
+
+import com.hypixel.hytale.component.ComponentRegistryProxy;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.system.tick.TickingSystem;
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.nhulston.essentials.util.ConfigManager;
+import com.nhulston.essentials.util.HeightmapCache;
+import com.nhulston.essentials.util.Log;
+import com.nhulston.essentials.util.TimerWheel;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds safe RTP destinations.
+ * <p>
+ * A pool of verified destinations is kept for every RTP-enabled world, so /rtp can usually
+ * teleport right away. Each world's pool is topped up with {@link World#getChunkAsync} by a
+ * {@link TimerService} task on that world's thread, so the filler needs no thread of its own.
+ * Chunk loads are limited to a configured number per second, shared evenly between the RTP
+ * worlds. When a pool is empty, several candidates are probed at once and the first safe one wins.
+ * <p>
+ * Regions where a probe found water or no ground are remembered for a while, and new
+ * candidates are drawn elsewhere.
+ */
+public class RtpManager {
+    private static final long FILL_INTERVAL_MILLIS = 100;
+
+    // Failed regions are 64x64 block cells, remembered for 10 minutes
+    private static final int REGION_SHIFT = 6;
+    private static final long FAILED_REGION_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final int MAX_FAILED_REGIONS = 4096;
+    private static final int MAX_SAMPLES = 8;
+
+    private final ConfigManager configManager;
+    private final HeightmapCache heightmapCache;
+    private final TimerService timerService;
+    private final ConcurrentHashMap<String, Pool> pools = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Long, Long>> failedRegions = new ConcurrentHashMap<>();
+    private volatile boolean running;
+
+    // Per-RTP metrics
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder poolHits = new LongAdder();
+    private final LongAdder searchFailures = new LongAdder();
+    private final LongAdder searchAttempts = new LongAdder();
+    private final LongAdder searchChunkLoads = new LongAdder();
+    private final LongAccumulator maxAttempts = new LongAccumulator(Long::max, 0);
+    private final LongAdder skippedSamples = new LongAdder();
+
+    /**
+     * A destination that was safe when it was found.
+     *
+     * @param radius the world's RTP radius at the time, so a changed radius drops old entries
+     */
+    public record Destination(double x, double y, double z, int radius) {}
+
+    private static final class Pool {
+        private final ConcurrentLinkedQueue<Destination> ready = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicInteger probing = new AtomicInteger();
+        private final AtomicBoolean filling = new AtomicBoolean();
+        private volatile int radius;
+        private volatile TimerWheel.Timeout nextFill;
+
+        // Only touched on the world's thread
+        private double loadBudget;
+        private long lastFillNanos;
+    }
+
+    /**
+     * Counts what one RTP search cost.
+     */
+    private static final class Search {
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final AtomicInteger chunkLoads = new AtomicInteger();
+    }
+
+    public RtpManager(@Nonnull ConfigManager configManager, @Nonnull HeightmapCache heightmapCache,
+                      @Nonnull TimerService timerService) {
+        this.configManager = configManager;
+        this.heightmapCache = heightmapCache;
+        this.timerService = timerService;
+    }
+
+    public void registerSystems(@Nonnull ComponentRegistryProxy<EntityStore> registry) {
+        registry.registerSystem(new FillerTickSystem(this));
+    }
+
+    /**
+     * Starts filling the pools. Each RTP world's filler starts on that world's next tick.
+     */
+    public void start() {
+        running = true;
+    }
+
+    public void shutdown() {
+        running = false;
+        for (Pool pool : pools.values()) {
+            TimerWheel.Timeout nextFill = pool.nextFill;
+            if (nextFill != null) {
+                nextFill.cancel();
+            }
+        }
+        pools.clear();
+        failedRegions.clear();
+    }
+
+    /**
+     * Finds a safe destination in a world. A pooled destination is rechecked and used if it's
+     * still safe; otherwise the configured number of candidates are probed concurrently.
+     * Safe to call from any thread; the future may complete on any thread.
+     *
+     * @return a future with the destination, or null if no candidate was safe
+     */
+    @Nonnull
+    public CompletableFuture<Destination> findDestination(@Nonnull World world, int radius) {
+        Search search = new Search();
+        Destination pooled = poll(world.getName(), radius);
+
+        CompletableFuture<Destination> result;
+        if (pooled == null) {
+            result = probeConcurrently(world, radius, search);
+        } else {
+            // Terrain may have changed since the destination was found
+            result = check(world, pooled.x(), pooled.z(), radius, search).future
+                    .thenCompose(destination -> destination != null
+                            ? CompletableFuture.completedFuture(destination)
+                            : probeConcurrently(world, radius, search));
+        }
+
+        return result.whenComplete((destination, ex) -> {
+            int attempts = search.attempts.get();
+            searches.increment();
+            searchAttempts.add(attempts);
+            searchChunkLoads.add(search.chunkLoads.get());
+            maxAttempts.accumulate(attempts);
+            if (destination == null) {
+                searchFailures.increment();
+            } else if (pooled != null && attempts == 1) {
+                poolHits.increment();
+            }
+        });
+    }
+
+    /**
+     * Takes a ready destination for a world.
+     *
+     * @param radius the world's current RTP radius
+     * @return null if the pool is empty
+     */
+    @Nullable
+    private Destination poll(@Nonnull String worldName, int radius) {
+        Pool pool = pools.get(worldName);
+        if (pool == null) {
+            return null;
+        }
+
+        Destination destination;
+        while ((destination = pool.ready.poll()) != null) {
+            pool.size.decrementAndGet();
+            if (destination.radius() == radius) {
+                return destination;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number of ready destinations for a world.
+     */
+    public int getReadyCount(@Nonnull String worldName) {
+        Pool pool = pools.get(worldName);
+        return pool != null ? pool.size.get() : 0;
+    }
+
+    /**
+     * Gets the number of regions currently avoided in a world.
+     */
+    public int getFailedRegionCount(@Nonnull String worldName) {
+        ConcurrentHashMap<Long, Long> regions = failedRegions.get(worldName);
+        return regions != null ? regions.size() : 0;
+    }
+
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    public long getPoolHits() {
+        return poolHits.sum();
+    }
+
+    public long getSearchFailures() {
+        return searchFailures.sum();
+    }
+
+    /**
+     * Gets the average number of candidate positions checked per RTP.
+     */
+    public double getAverageAttempts() {
+        long count = searches.sum();
+        return count > 0 ? (double) searchAttempts.sum() / count : 0;
+    }
+
+    /**
+     * Gets the average number of chunks per RTP that weren't resident yet and had to be loaded.
+     */
+    public double getAverageChunkLoads() {
+        long count = searches.sum();
+        return count > 0 ? (double) searchChunkLoads.sum() / count : 0;
+    }
+
+    public long getMaxAttempts() {
+        return maxAttempts.get();
+    }
+
+    /**
+     * Gets the number of random samples dropped because they fell in a failed region.
+     */
+    public long getSkippedSamples() {
+        return skippedSamples.sum();
+    }
+
+    /**
+     * Probes several random candidates at once; the first safe one completes the result and
+     * the rest are canceled.
+     */
+    @Nonnull
+    private CompletableFuture<Destination> probeConcurrently(@Nonnull World world, int radius, @Nonnull Search search) {
+        int candidates = Math.max(1, configManager.getRtpProbeCandidates());
+        CompletableFuture<Destination> result = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(candidates);
+        List<Probe> started = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; i++) {
+            double[] candidate = sample(world.getName(), radius);
+            started.add(check(world, candidate[0], candidate[1], radius, search));
+        }
+
+        // Callbacks run on chunk loader threads, so they only see the finished list
+        List<Probe> probes = List.copyOf(started);
+        for (Probe probe : probes) {
+            probe.future.whenComplete((destination, ex) -> {
+                if (destination != null) {
+                    if (result.complete(destination)) {
+                        for (Probe other : probes) {
+                            other.cancel();
+                        }
+                    }
+                } else if (remaining.decrementAndGet() == 0) {
+                    result.complete(null);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * One candidate being checked.
+     */
+    private static final class Probe {
+        private final CompletableFuture<Destination> future;
+
+        private Probe(@Nonnull CompletableFuture<Destination> future) {
+            this.future = future;
+        }
+
+        /**
+         * Stops waiting for the candidate. Only the probe's own future is canceled: the server's
+         * chunk future may be shared with other callers, so the load still finishes and the
+         * result is just ignored.
+         */
+        private void cancel() {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Loads the chunk at a candidate and checks whether its surface is safe. Unsafe candidates
+     * mark their region as failed. The probe's future completes with null if it's unsafe or
+     * the chunk couldn't be loaded.
+     */
+    @Nonnull
+    private Probe check(@Nonnull World world, double x, double z, int radius, @Nonnull Search search) {
+        int blockX = (int) Math.floor(x);
+        int blockZ = (int) Math.floor(z);
+
+        search.attempts.incrementAndGet();
+        CompletableFuture<WorldChunk> chunk = world.getChunkAsync(ChunkUtil.indexChunkFromBlock(blockX, blockZ));
+        if (!chunk.isDone()) {
+            // A resident chunk comes back already completed; only the others cost a load. Checked
+            // on the future rather than with getChunk, since this may run off the world thread.
+            search.chunkLoads.incrementAndGet();
+        }
+
+        CompletableFuture<Destination> future = new CompletableFuture<>();
+        chunk.whenComplete((loaded, ex) -> {
+            if (future.isDone()) {
+                // Canceled; another candidate already won
+                return;
+            }
+            if (ex != null || loaded == null) {
+                future.complete(null);
+                return;
+            }
+            try {
+                Integer surfaceY = heightmapCache.getColumn(world, loaded, blockX, blockZ).getSurfaceY();
+                if (surfaceY == null) {
+                    markFailed(world.getName(), blockX, blockZ);
+                    future.complete(null);
+                    return;
+                }
+                future.complete(new Destination(x, surfaceY, z, radius));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return new Probe(future);
+    }
+
+    /**
+     * Draws a random position within the radius, avoiding failed regions where possible.
+     *
+     * @return {x, z}
+     */
+    @Nonnull
+    private double[] sample(@Nonnull String worldName, int radius) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ConcurrentHashMap<Long, Long> regions = failedRegions.get(worldName);
+        long now = System.currentTimeMillis();
+
+        double x = 0;
+        double z = 0;
+        for (int i = 0; i < MAX_SAMPLES; i++) {
+            x = random.nextDouble(-radius, radius);
+            z = random.nextDouble(-radius, radius);
+            Long expiresAt = regions != null ? regions.get(regionKey((int) Math.floor(x), (int) Math.floor(z))) : null;
+            if (expiresAt == null || expiresAt <= now) {
+                break;
+            }
+            // Still probe the last sample if every try was in a failed region
+            skippedSamples.increment();
+        }
+        return new double[]{x, z};
+    }
+
+    private void markFailed(@Nonnull String worldName, int blockX, int blockZ) {
+        ConcurrentHashMap<Long, Long> regions = failedRegions.computeIfAbsent(worldName, _ -> new ConcurrentHashMap<>());
+        long now = System.currentTimeMillis();
+        regions.put(regionKey(blockX, blockZ), now + FAILED_REGION_TTL_MILLIS);
+
+        if (regions.size() > MAX_FAILED_REGIONS) {
+            regions.values().removeIf(expiresAt -> expiresAt <= now);
+            if (regions.size() > MAX_FAILED_REGIONS) {
+                regions.clear();
+            }
+        }
+    }
+
+    private static long regionKey(int blockX, int blockZ) {
+        return ((long) (blockX >> REGION_SHIFT) << 32) | ((blockZ >> REGION_SHIFT) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Starts a world's filler unless it's running already. Called on the world's thread every tick,
+     * so worlds loaded later or added to the config on reload are picked up.
+     */
+    private void startFilling(@Nonnull World world) {
+        if (!running) {
+            return;
+        }
+        Pool pool = pools.get(world.getName());
+        if (pool != null && pool.filling.get()) {
+            return;
+        }
+        if (configManager.getRtpRadius(world.getName()) == null) {
+            return;
+        }
+
+        pool = pools.computeIfAbsent(world.getName(), _ -> new Pool());
+        if (pool.filling.compareAndSet(false, true)) {
+            scheduleFill(world, pool);
+        }
+    }
+
+    private void scheduleFill(@Nonnull World world, @Nonnull Pool pool) {
+        pool.nextFill = timerService.schedule(world, FILL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS, () -> {
+            if (!running || configManager.getRtpRadius(world.getName()) == null) {
+                // Stopped, or RTP was turned off for this world on reload
+                pool.filling.set(false);
+                return;
+            }
+            try {
+                fill(world, pool);
+            } catch (Exception e) {
+                Log.error("RTP pool refill failed in world " + world.getName() + ": " + e.getMessage());
+            }
+            scheduleFill(world, pool);
+        });
+    }
+
+    /**
+     * Spends the world's share of the chunk load budget on background probes. Runs on the
+     * world's thread.
+     */
+    private void fill(@Nonnull World world, @Nonnull Pool pool) {
+        long now = System.nanoTime();
+        double elapsedSeconds = pool.lastFillNanos != 0
+                ? (now - pool.lastFillNanos) / 1_000_000_000.0
+                : FILL_INTERVAL_MILLIS / 1000.0;
+        pool.lastFillNanos = now;
+
+        Integer radius = configManager.getRtpRadius(world.getName());
+        int poolSize = configManager.getRtpPoolSize();
+        int loadsPerSecond = configManager.getRtpPoolChunkLoads();
+        if (radius == null || poolSize <= 0 || loadsPerSecond <= 0) {
+            return;
+        }
+
+        // An even share per world, so one world's misses (e.g. ocean) don't starve the others
+        double share = (double) loadsPerSecond / Math.max(1, configManager.getRtpWorlds().size());
+        pool.loadBudget = Math.min(Math.max(1, share), pool.loadBudget + share * elapsedSeconds);
+        while (pool.loadBudget >= 1 && refill(world, pool, radius, poolSize)) {
+            pool.loadBudget--;
+        }
+    }
+
+    /**
+     * Starts one background probe for a world if its pool isn't full.
+     *
+     * @return true if a probe was started
+     */
+    private boolean refill(@Nonnull World world, @Nonnull Pool pool, int radius, int poolSize) {
+        if (pool.radius != radius) {
+            // Radius changed on reload; what's ready may be out of range now
+            pool.radius = radius;
+            while (pool.ready.poll() != null) {
+                pool.size.decrementAndGet();
+            }
+        }
+        if (pool.size.get() + pool.probing.get() >= poolSize) {
+            return false;
+        }
+
+        double[] candidate = sample(world.getName(), radius);
+        pool.probing.incrementAndGet();
+        check(world, candidate[0], candidate[1], radius, new Search()).future.whenComplete((destination, ex) -> {
+            if (destination != null) {
+                pool.ready.add(destination);
+                pool.size.incrementAndGet();
+            }
+            pool.probing.decrementAndGet();
+        });
+        return true;
+    }
+
+    /**
+     * Starts the filler of each RTP world from that world's tick.
+     */
+    private static class FillerTickSystem extends TickingSystem<EntityStore> {
+        private final RtpManager manager;
+
+        FillerTickSystem(@Nonnull RtpManager manager) {
+            this.manager = manager;
+        }
+
+        @Override
+        public void tick(float deltaTime, int systemIndex, @NotNull Store<EntityStore> store) {
+            manager.startFilling(store.getExternalData().getWorld());
+        }
+    }
+}
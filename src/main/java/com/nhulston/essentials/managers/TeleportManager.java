@@ -6,6 +6,7 @@ import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.server.core.permissions.PermissionsModule;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import com.nhulston.essentials.Essentials;
 import com.nhulston.essentials.util.ConfigManager;
@@ -17,27 +18,54 @@ import com.nhulston.essentials.util.TeleportUtil;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Manages delayed teleports with movement cancellation.
  * Players must stand still during the teleport delay or the teleport is canceled.
- * Teleport destinations are stored as data and executed via buffer.run() callback.
+ * A pending teleport is a {@link TeleportWarmupComponent} on the player's entity, added when it's
+ * queued and removed when it runs or is canceled. The delay itself is a deadline in the
+ * {@link TimerService}, which runs the teleport on the player's world thread.
+ * Coordinate teleports then pass through an {@link ArrivalGate}, so players arriving at the same
+ * place together are spread across ticks and, optionally, around the destination.
  */
 public class TeleportManager {
     private static final String BYPASS_PERMISSION = "essentials.teleport.bypass";
     private static final double CANCEL_DISTANCE = 2.0;
     private static final String TELEPORT_SOUND = "SFX_Portal_Neutral_Teleport_Local";
+    private static final long BULK_INTERVAL_MILLIS = 50;
+    private static final long BULK_REPORT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int SCATTER_ATTEMPTS = 4;
 
     private final ConfigManager configManager;
+    private final TimerService timerService;
     private final MessageManager messages;
-    private final ConcurrentHashMap<UUID, PendingTeleport> pendingTeleports = new ConcurrentHashMap<>();
+    private final ArrivalGate arrivalGate;
 
-    public TeleportManager(@Nonnull ConfigManager configManager) {
+    public TeleportManager(@Nonnull ConfigManager configManager, @Nonnull TimerService timerService) {
         this.configManager = configManager;
+        this.timerService = timerService;
         this.messages = Essentials.getInstance().getMessageManager();
+        this.arrivalGate = new ArrivalGate(configManager, timerService);
+    }
+
+    /**
+     * Gets arrival metrics of recently used destinations, busiest first.
+     */
+    @Nonnull
+    public List<ArrivalGate.Stats> getArrivalStats() {
+        return arrivalGate.getStats();
     }
 
     /**
@@ -63,33 +91,215 @@ public class TeleportManager {
 
         // Check bypass permission or if delay is 0
         if (delay <= 0 || PermissionsModule.get().hasPermission(playerUuid, BYPASS_PERMISSION)) {
-            // Execute immediately
-            String error = TeleportUtil.teleportSafe(store, entityRef, worldName, x, y, z, yaw, pitch);
-            if (error != null) {
-                Msg.send(playerRef, error);
-            } else {
-                SoundUtil.playSound(playerRef, TELEPORT_SOUND);
-                if (successMessage != null) {
-                    Msg.send(playerRef, successMessage);
+            // Execute immediately, unless too many players are arriving there this tick
+            arrivalGate.admit(store.getExternalData().getWorld(), worldName, x, y, z, crowded -> {
+                if (!entityRef.isValid()) {
+                    return;
                 }
-                if (onSuccess != null) {
-                    onSuccess.run();
+                String error = teleportToDestination(store, entityRef, worldName, x, y, z, yaw, pitch, null, crowded);
+                if (error != null) {
+                    Msg.send(playerRef, error);
+                } else {
+                    SoundUtil.playSound(playerRef, TELEPORT_SOUND);
+                    if (successMessage != null) {
+                        Msg.send(playerRef, successMessage);
+                    }
+                    if (onSuccess != null) {
+                        onSuccess.run();
+                    }
                 }
-            }
+            });
             return;
         }
 
-        // Create pending teleport and add atomically
-        TeleportDestination destination = new TeleportDestination(worldName, x, y, z, yaw, pitch);
-        PendingTeleport pending = new PendingTeleport(playerRef, startPosition, destination, successMessage, delay, onSuccess);
-        PendingTeleport existing = pendingTeleports.putIfAbsent(playerUuid, pending);
-        
-        if (existing != null) {
-            Msg.send(playerRef, messages.get("teleport.already-pending"));
-            return;
+        TeleportWarmupComponent.TeleportDestination destination =
+                new TeleportWarmupComponent.TeleportDestination(worldName, x, y, z, yaw, pitch);
+        startWarmup(playerRef, entityRef, store, delay,
+                new TeleportWarmupComponent(playerRef, startPosition, destination, successMessage, onSuccess));
+    }
+
+    /**
+     * Progress of a mass teleport.
+     *
+     * @param total players in the batch
+     * @param teleported players moved so far
+     * @param failed players that couldn't be moved (they left, or the teleport failed)
+     * @param elapsedMillis time since the batch started
+     */
+    public record BulkProgress(int total, int teleported, int failed, long elapsedMillis) {}
+
+    /**
+     * Teleports many players to one position at once, without a warmup, saving each player's
+     * /back location. The landing Y is found once for the whole batch. Players are grouped by the
+     * world they're in and admitted a few per tick on that world's thread (teleport.bulk-per-tick),
+     * so a large batch is spread over several ticks instead of landing in one.
+     * Safe to call from any thread.
+     *
+     * @param successMessage sent to each player once they're moved (optional)
+     * @param onProgress called about once a second while the batch runs (optional)
+     * @return completes with the final progress once every player was handled; every player
+     *         counts as failed if the destination world isn't loaded
+     */
+    @Nonnull
+    public CompletableFuture<BulkProgress> teleportAll(@Nonnull Collection<PlayerRef> players,
+                                                       @Nonnull BackManager backManager,
+                                                       @Nonnull String worldName, double x, double y, double z,
+                                                       float yaw, float pitch, @Nullable String successMessage,
+                                                       @Nullable Consumer<BulkProgress> onProgress) {
+        List<PlayerRef> batchPlayers = List.copyOf(players);
+        CompletableFuture<BulkProgress> result = new CompletableFuture<>();
+        long startNanos = System.nanoTime();
+
+        TeleportUtil.findSafeYAsync(worldName, x, y, z).whenComplete((safeY, error) -> {
+            if (error != null) {
+                Log.error("Failed to find a landing position for mass teleport: " + error.getMessage());
+            }
+            BulkTeleport batch = new BulkTeleport(batchPlayers.size(), startNanos, backManager, worldName,
+                    x, safeY != null ? safeY : y, z, yaw, pitch, successMessage, onProgress, result);
+            if (safeY == null) {
+                batch.failed.addAndGet(batchPlayers.size());
+                batch.checkDone();
+                return;
+            }
+
+            Map<World, ArrayDeque<PlayerRef>> byWorld = new HashMap<>();
+            for (PlayerRef player : batchPlayers) {
+                World world = getWorld(player);
+                if (world == null) {
+                    batch.failed.incrementAndGet();
+                    continue;
+                }
+                byWorld.computeIfAbsent(world, _ -> new ArrayDeque<>()).add(player);
+            }
+            batch.checkDone();
+
+            byWorld.forEach((world, queue) -> world.execute(() -> drainBulk(batch, world, queue)));
+        });
+        return result;
+    }
+
+    /**
+     * Admits the next few players of a batch from one world, then schedules itself for the next
+     * tick until the world's queue is empty. Called on that world's thread.
+     */
+    private void drainBulk(@Nonnull BulkTeleport batch, @Nonnull World world, @Nonnull ArrayDeque<PlayerRef> queue) {
+        int budget = configManager.getTeleportBulkPerTick();
+        for (int i = 0; i < budget && !queue.isEmpty(); i++) {
+            PlayerRef player = queue.poll();
+            World current = getWorld(player);
+            if (current == null) {
+                batch.failed.incrementAndGet();
+            } else if (current != world) {
+                // Changed worlds since the batch started; the entity now belongs to another thread
+                current.execute(() -> admitBulk(batch, player));
+            } else {
+                admitBulk(batch, player);
+            }
         }
+        batch.checkDone();
 
-        Msg.send(playerRef, messages.get("teleport.countdown", Map.of("delay", String.valueOf(delay))));
+        if (!queue.isEmpty()) {
+            timerService.schedule(world, BULK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS,
+                    () -> drainBulk(batch, world, queue));
+        }
+    }
+
+    /**
+     * Teleports one player of a batch. Called on the player's world thread.
+     */
+    private void admitBulk(@Nonnull BulkTeleport batch, @Nonnull PlayerRef player) {
+        String error;
+        try {
+            error = TeleportUtil.saveLocationAndTeleportExact(player, batch.backManager, batch.worldName,
+                    batch.x, batch.y, batch.z, batch.yaw, batch.pitch);
+        } catch (Exception e) {
+            Log.error("Failed to execute teleport for " + player.getUuid() + ": " + e.getMessage());
+            error = messages.get("teleport.failed");
+        }
+
+        if (error != null) {
+            batch.failed.incrementAndGet();
+            Msg.send(player, error);
+        } else {
+            batch.teleported.incrementAndGet();
+            SoundUtil.playSound(player, TELEPORT_SOUND);
+            if (batch.successMessage != null) {
+                Msg.send(player, batch.successMessage);
+            }
+        }
+        batch.checkDone();
+    }
+
+    @Nullable
+    private static World getWorld(@Nonnull PlayerRef player) {
+        Ref<EntityStore> ref = player.getReference();
+        if (ref == null || !ref.isValid()) {
+            return null;
+        }
+        return ref.getStore().getExternalData().getWorld();
+    }
+
+    /**
+     * State of one mass teleport, shared by the worlds draining it.
+     */
+    private static final class BulkTeleport {
+        private final int total;
+        private final long startNanos;
+        private final BackManager backManager;
+        private final String worldName;
+        private final double x;
+        private final double y;
+        private final double z;
+        private final float yaw;
+        private final float pitch;
+        private final String successMessage;
+        private final Consumer<BulkProgress> onProgress;
+        private final CompletableFuture<BulkProgress> result;
+        private final AtomicInteger teleported = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicLong lastReportNanos;
+
+        private BulkTeleport(int total, long startNanos, @Nonnull BackManager backManager, @Nonnull String worldName,
+                             double x, double y, double z, float yaw, float pitch,
+                             @Nullable String successMessage, @Nullable Consumer<BulkProgress> onProgress,
+                             @Nonnull CompletableFuture<BulkProgress> result) {
+            this.total = total;
+            this.startNanos = startNanos;
+            this.backManager = backManager;
+            this.worldName = worldName;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.yaw = yaw;
+            this.pitch = pitch;
+            this.successMessage = successMessage;
+            this.onProgress = onProgress;
+            this.result = result;
+            this.lastReportNanos = new AtomicLong(startNanos);
+        }
+
+        @Nonnull
+        private BulkProgress progress() {
+            return new BulkProgress(total, teleported.get(), failed.get(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+
+        /**
+         * Completes the batch once every player was handled, otherwise reports progress if it's due.
+         */
+        private void checkDone() {
+            BulkProgress progress = progress();
+            if (progress.teleported() + progress.failed() >= total) {
+                result.complete(progress);
+                return;
+            }
+
+            long now = System.nanoTime();
+            long last = lastReportNanos.get();
+            if (onProgress != null && now - last >= BULK_REPORT_NANOS && lastReportNanos.compareAndSet(last, now)) {
+                onProgress.accept(progress);
+            }
+        }
     }
 
     /**
@@ -112,94 +322,100 @@ public class TeleportManager {
             return;
         }
 
-        // Create pending teleport with target player UUID and add atomically
-        PendingTeleport pending = new PendingTeleport(playerRef, startPosition, targetPlayer.getUuid(), 
-                                                       targetPlayer.getUsername(), successMessage, delay);
-        PendingTeleport existing = pendingTeleports.putIfAbsent(playerUuid, pending);
-        
-        if (existing != null) {
+        startWarmup(playerRef, entityRef, store, delay,
+                new TeleportWarmupComponent(playerRef, startPosition, targetPlayer.getUuid(), successMessage));
+    }
+
+    /**
+     * Attaches a warmup to the player and schedules its deadline, unless one is already running.
+     * Called on the player's world thread.
+     */
+    private void startWarmup(@Nonnull PlayerRef playerRef, @Nonnull Ref<EntityStore> entityRef,
+                             @Nonnull Store<EntityStore> store, int delay, @Nonnull TeleportWarmupComponent warmup) {
+        if (!entityRef.isValid()) {
+            return;
+        }
+        if (store.getComponent(entityRef, TeleportWarmupComponent.getComponentType()) != null) {
             Msg.send(playerRef, messages.get("teleport.already-pending"));
             return;
         }
 
+        TeleportWarmupComponent.TeleportDestination dest = warmup.getDestination();
+        if (dest != null) {
+            // Load the destination chunk and find the landing Y during the countdown
+            warmup.setSafeY(TeleportUtil.findSafeYAsync(dest.worldName, dest.x, dest.y, dest.z));
+        }
+
+        World world = store.getExternalData().getWorld();
+        long warmupId = warmup.getId();
+        warmup.setDeadline(timerService.schedule(world, delay, TimeUnit.SECONDS,
+                () -> finishWarmup(entityRef, warmupId)));
+        store.addComponent(entityRef, TeleportWarmupComponent.getComponentType(), warmup);
         Msg.send(playerRef, messages.get("teleport.countdown", Map.of("delay", String.valueOf(delay))));
     }
 
     /**
-     * Ticks pending teleports. Called from the tick system.
+     * Checks a pending teleport for movement. Called from the tick system for entities carrying a warmup.
      */
-    public void tick(@Nonnull UUID playerUuid, @Nonnull Ref<EntityStore> currentRef,
-                     @Nonnull Vector3d currentPosition, float deltaTime,
-                     @Nonnull CommandBuffer<EntityStore> buffer) {
-        PendingTeleport pending = pendingTeleports.get(playerUuid);
-        if (pending == null) {
-            return;
-        }
-
-        // Check movement
+    public void tick(@Nonnull Ref<EntityStore> currentRef, @Nonnull TeleportWarmupComponent pending,
+                     @Nonnull Vector3d currentPosition, @Nonnull CommandBuffer<EntityStore> buffer) {
         double distanceSquared = pending.getStartPosition().distanceSquaredTo(currentPosition);
         double maxDistanceSquared = CANCEL_DISTANCE * CANCEL_DISTANCE;
 
         if (distanceSquared > maxDistanceSquared) {
-            cancelTeleport(playerUuid, messages.get("teleport.cancelled-moved"));
-            return;
-        }
-
-        // Update elapsed time and check if ready to teleport
-        pending.addElapsedTime(deltaTime);
-        if (pending.isReady()) {
-            executeTeleport(playerUuid, currentRef, buffer);
+            pending.cancel();
+            buffer.removeComponent(currentRef, TeleportWarmupComponent.getComponentType());
+            Msg.send(pending.getPlayerRef(), messages.get("teleport.cancelled-moved"));
         }
     }
 
     /**
-     * Executes a pending teleport using buffer.run() to defer execution.
+     * Runs a warmup whose deadline passed. Called on the player's world thread, outside of system
+     * processing. Does nothing if the player left the world or the warmup was replaced.
      */
-    private void executeTeleport(@Nonnull UUID playerUuid, @Nonnull Ref<EntityStore> currentRef,
-                                 @Nonnull CommandBuffer<EntityStore> buffer) {
-        PendingTeleport pending = pendingTeleports.remove(playerUuid);
-        if (pending == null) {
+    private void finishWarmup(@Nonnull Ref<EntityStore> entityRef, long warmupId) {
+        if (!entityRef.isValid()) {
+            return;
+        }
+        Store<EntityStore> store = entityRef.getStore();
+        TeleportWarmupComponent pending = store.getComponent(entityRef, TeleportWarmupComponent.getComponentType());
+        if (pending == null || pending.getId() != warmupId) {
             return;
         }
 
-        // Use buffer.run() to execute after the tick system finishes processing
-        buffer.run(store -> {
-            try {
-                if (!currentRef.isValid()) {
-                    Msg.send(pending.getPlayerRef(), messages.get("teleport.failed"));
-                    return;
-                }
+        store.removeComponent(entityRef, TeleportWarmupComponent.getComponentType());
 
-                if (pending.isPlayerTeleport()) {
-                    // Teleport to another player (async, handles cross-world)
-                    TeleportUtil.teleportToPlayerByUuid(
-                        store, 
-                        currentRef, 
-                        pending.getTargetPlayerUuid(),
-                        () -> {
-                            // Success callback
-                            SoundUtil.playSound(pending.getPlayerRef(), TELEPORT_SOUND);
-                            if (pending.getSuccessMessage() != null) {
-                                Msg.send(pending.getPlayerRef(), pending.getSuccessMessage());
-                            }
-                            if (pending.getOnSuccess() != null) {
-                                pending.getOnSuccess().run();
-                            }
-                        },
-                        error -> {
-                            // Error callback
-                            Msg.send(pending.getPlayerRef(), error);
-                        }
-                    );
-                } else {
-                    // Teleport to coordinates
-                    TeleportDestination dest = pending.getDestination();
-                    String error = TeleportUtil.teleportSafe(store, currentRef, dest.worldName,
-                            dest.x, dest.y, dest.z, dest.yaw, dest.pitch);
+        TeleportWarmupComponent.TeleportDestination dest = pending.getDestination();
+        if (dest == null) {
+            executeTeleport(pending, entityRef, store, false);
+            return;
+        }
+        arrivalGate.admit(store.getExternalData().getWorld(), dest.worldName, dest.x, dest.y, dest.z,
+                crowded -> executeTeleport(pending, entityRef, store, crowded));
+    }
 
-                    if (error != null) {
-                        Msg.send(pending.getPlayerRef(), error);
-                    } else {
+    /**
+     * Executes a pending teleport.
+     *
+     * @param crowded whether other players just arrived at the destination
+     */
+    private void executeTeleport(@Nonnull TeleportWarmupComponent pending, @Nonnull Ref<EntityStore> currentRef,
+                                 @Nonnull Store<EntityStore> store, boolean crowded) {
+        UUID playerUuid = pending.getPlayerRef().getUuid();
+        try {
+            if (!currentRef.isValid()) {
+                Msg.send(pending.getPlayerRef(), messages.get("teleport.failed"));
+                return;
+            }
+
+            if (pending.isPlayerTeleport()) {
+                // Teleport to another player (async, handles cross-world)
+                TeleportUtil.teleportToPlayerByUuid(
+                    store, 
+                    currentRef, 
+                    pending.getTargetPlayerUuid(),
+                    () -> {
+                        // Success callback
                         SoundUtil.playSound(pending.getPlayerRef(), TELEPORT_SOUND);
                         if (pending.getSuccessMessage() != null) {
                             Msg.send(pending.getPlayerRef(), pending.getSuccessMessage());
@@ -207,143 +423,84 @@ public class TeleportManager {
                         if (pending.getOnSuccess() != null) {
                             pending.getOnSuccess().run();
                         }
+                    },
+                    error -> {
+                        // Error callback
+                        Msg.send(pending.getPlayerRef(), error);
+                    }
+                );
+            } else {
+                // Teleport to coordinates; normally the landing Y was found during the warmup
+                TeleportWarmupComponent.TeleportDestination dest = pending.getDestination();
+                String error = teleportToDestination(store, currentRef, dest.worldName,
+                        dest.x, dest.y, dest.z, dest.yaw, dest.pitch, pending.getSafeY(), crowded);
+
+                if (error != null) {
+                    Msg.send(pending.getPlayerRef(), error);
+                } else {
+                    SoundUtil.playSound(pending.getPlayerRef(), TELEPORT_SOUND);
+                    if (pending.getSuccessMessage() != null) {
+                        Msg.send(pending.getPlayerRef(), pending.getSuccessMessage());
+                    }
+                    if (pending.getOnSuccess() != null) {
+                        pending.getOnSuccess().run();
                     }
                 }
-            } catch (Exception e) {
-                Log.error("Failed to execute teleport for " + playerUuid + ": " + e.getMessage());
-                Msg.send(pending.getPlayerRef(), messages.get("teleport.failed"));
             }
-        });
-    }
-
-    /**
-     * Cancels a pending teleport for a player.
-     */
-    public void cancelTeleport(@Nonnull UUID playerUuid, @Nullable String reason) {
-        PendingTeleport pending = pendingTeleports.remove(playerUuid);
-        if (pending != null && reason != null) {
-            Msg.send(pending.getPlayerRef(), reason);
+        } catch (Exception e) {
+            Log.error("Failed to execute teleport for " + playerUuid + ": " + e.getMessage());
+            Msg.send(pending.getPlayerRef(), messages.get("teleport.failed"));
         }
     }
 
     /**
-     * Checks if a player has a pending teleport.
-     */
-    public boolean hasPendingTeleport(@Nonnull UUID playerUuid) {
-        return pendingTeleports.containsKey(playerUuid);
-    }
-
-    /**
-     * Cleans up pending teleport for a player when they disconnect.
-     */
-    public void onPlayerQuit(@Nonnull UUID playerUuid) {
-        pendingTeleports.remove(playerUuid);
-    }
-
-    /**
-     * Shuts down the manager.
-     */
-    public void shutdown() {
-        pendingTeleports.clear();
-    }
-
-    /**
-     * Stores teleport destination data.
+     * Teleports to coordinates, landing next to the destination instead of on it when it's
+     * crowded and a scatter radius is configured.
+     *
+     * @param safeY the landing Y if it's already known
+     * @return null if successful, error message if failed
      */
-    private static class TeleportDestination {
-        final String worldName;
-        final double x, y, z;
-        final float yaw, pitch;
-
-        TeleportDestination(String worldName, double x, double y, double z, float yaw, float pitch) {
-            this.worldName = worldName;
-            this.x = x;
-            this.y = y;
-            this.z = z;
-            this.yaw = yaw;
-            this.pitch = pitch;
+    @Nullable
+    private String teleportToDestination(@Nonnull Store<EntityStore> store, @Nonnull Ref<EntityStore> ref,
+                                         @Nonnull String worldName, double x, double y, double z,
+                                         float yaw, float pitch, @Nullable Double safeY, boolean crowded) {
+        if (crowded) {
+            Vector3d scattered = findScatterPosition(worldName, x, y, z);
+            if (scattered != null) {
+                return TeleportUtil.teleportExact(store, ref, worldName,
+                        scattered.x, scattered.y, scattered.z, yaw, pitch);
+            }
         }
+        return safeY != null
+                ? TeleportUtil.teleportExact(store, ref, worldName, x, safeY, z, yaw, pitch)
+                : TeleportUtil.teleportSafe(store, ref, worldName, x, y, z, yaw, pitch);
     }
 
     /**
-     * Represents a pending teleport.
+     * Picks a random landing spot within the scatter radius that's level with the destination.
+     *
+     * @return null if scattering is disabled or no nearby spot qualified
      */
-    private static class PendingTeleport {
-        private final PlayerRef playerRef;
-        private final Vector3d startPosition;
-        private final TeleportDestination destination; // For coordinate teleports
-        private final UUID targetPlayerUuid;           // For player teleports
-        private final String targetPlayerName;         // For player teleports
-        private final String successMessage;
-        private final Runnable onSuccess;
-        private final float delaySeconds;
-        private float elapsedTime;
-
-        // Constructor for coordinate teleport
-        PendingTeleport(@Nonnull PlayerRef playerRef, @Nonnull Vector3d startPosition,
-                        @Nonnull TeleportDestination destination, @Nullable String successMessage, 
-                        int delaySeconds, @Nullable Runnable onSuccess) {
-            this.playerRef = playerRef;
-            this.startPosition = startPosition.clone(); // Clone to prevent mutation
-            this.destination = destination;
-            this.targetPlayerUuid = null;
-            this.targetPlayerName = null;
-            this.successMessage = successMessage;
-            this.onSuccess = onSuccess;
-            this.delaySeconds = delaySeconds;
-            this.elapsedTime = 0f;
-        }
-
-        // Constructor for player teleport
-        PendingTeleport(@Nonnull PlayerRef playerRef, @Nonnull Vector3d startPosition,
-                        @Nonnull UUID targetPlayerUuid, @Nonnull String targetPlayerName,
-                        @Nullable String successMessage, int delaySeconds) {
-            this.playerRef = playerRef;
-            this.startPosition = startPosition.clone(); // Clone to prevent mutation
-            this.destination = null;
-            this.targetPlayerUuid = targetPlayerUuid;
-            this.targetPlayerName = targetPlayerName;
-            this.successMessage = successMessage;
-            this.onSuccess = null;
-            this.delaySeconds = delaySeconds;
-            this.elapsedTime = 0f;
-        }
-
-        PlayerRef getPlayerRef() {
-            return playerRef;
-        }
-
-        Vector3d getStartPosition() {
-            return startPosition;
+    @Nullable
+    private Vector3d findScatterPosition(@Nonnull String worldName, double x, double y, double z) {
+        int radius = configManager.getTeleportScatterRadius();
+        if (radius <= 0) {
+            return null;
         }
 
-        TeleportDestination getDestination() {
-            return destination;
-        }
-
-        UUID getTargetPlayerUuid() {
-            return targetPlayerUuid;
-        }
-
-        boolean isPlayerTeleport() {
-            return targetPlayerUuid != null;
-        }
-
-        String getSuccessMessage() {
-            return successMessage;
-        }
-
-        Runnable getOnSuccess() {
-            return onSuccess;
-        }
-
-        void addElapsedTime(float deltaTime) {
-            this.elapsedTime += deltaTime;
-        }
-
-        boolean isReady() {
-            return elapsedTime >= delaySeconds;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < SCATTER_ATTEMPTS; attempt++) {
+            // Uniform over the disc, keeping the player centered on a block
+            double distance = radius * Math.sqrt(random.nextDouble());
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double scatterX = Math.floor(x + distance * Math.cos(angle)) + 0.5;
+            double scatterZ = Math.floor(z + distance * Math.sin(angle)) + 0.5;
+
+            Double scatterY = TeleportUtil.findScatterY(worldName, x, y, z, scatterX, scatterZ);
+            if (scatterY != null) {
+                return new Vector3d(scatterX, scatterY, scatterZ);
+            }
         }
-
+        return null;
     }
 }
@@ -0,0 +1,181 @@
+package com.nhulston.essentials.managers;
+
+import com.hypixel.hytale.component.Component;
+import com.hypixel.hytale.component.ComponentRegistryProxy;
+import com.hypixel.hytale.component.ComponentType;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.nhulston.essentials.util.TimerWheel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A teleport waiting out its warmup. Only players with one carry this component, so the
+ * system checking movement never visits anyone else. It isn't saved with the entity.
+ * The warmup's end is a {@link TimerService} deadline rather than a per-tick countdown.
+ * For coordinate teleports, the safe landing Y is looked up while the warmup runs.
+ */
+public class TeleportWarmupComponent implements Component<EntityStore> {
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+    private static ComponentType<EntityStore, TeleportWarmupComponent> componentType;
+
+    private final long id;  // tells the deadline whether this warmup is still the one attached
+    private final PlayerRef playerRef;
+    private final Vector3d startPosition;
+    private final TeleportDestination destination; // For coordinate teleports
+    private final UUID targetPlayerUuid;           // For player teleports
+    private final String successMessage;
+    private final Runnable onSuccess;
+    private TimerWheel.Timeout deadline;
+    private CompletableFuture<Double> safeY;  // null until prefetched, or for player teleports
+
+    /**
+     * Stores teleport destination data.
+     */
+    public static class TeleportDestination {
+        final String worldName;
+        final double x, y, z;
+        final float yaw, pitch;
+
+        TeleportDestination(String worldName, double x, double y, double z, float yaw, float pitch) {
+            this.worldName = worldName;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.yaw = yaw;
+            this.pitch = pitch;
+        }
+    }
+
+    public static void registerComponent(@Nonnull ComponentRegistryProxy<EntityStore> registry) {
+        componentType = registry.registerComponent(TeleportWarmupComponent.class, TeleportWarmupComponent::new);
+    }
+
+    @Nonnull
+    public static ComponentType<EntityStore, TeleportWarmupComponent> getComponentType() {
+        return componentType;
+    }
+
+    // Constructor for coordinate teleport
+    TeleportWarmupComponent(@Nonnull PlayerRef playerRef, @Nonnull Vector3d startPosition,
+                            @Nonnull TeleportDestination destination, @Nullable String successMessage,
+                            @Nullable Runnable onSuccess) {
+        this.id = NEXT_ID.incrementAndGet();
+        this.playerRef = playerRef;
+        this.startPosition = startPosition.clone(); // Clone to prevent mutation
+        this.destination = destination;
+        this.targetPlayerUuid = null;
+        this.successMessage = successMessage;
+        this.onSuccess = onSuccess;
+    }
+
+    // Constructor for player teleport
+    TeleportWarmupComponent(@Nonnull PlayerRef playerRef, @Nonnull Vector3d startPosition,
+                            @Nonnull UUID targetPlayerUuid, @Nullable String successMessage) {
+        this.id = NEXT_ID.incrementAndGet();
+        this.playerRef = playerRef;
+        this.startPosition = startPosition.clone(); // Clone to prevent mutation
+        this.destination = null;
+        this.targetPlayerUuid = targetPlayerUuid;
+        this.successMessage = successMessage;
+        this.onSuccess = null;
+    }
+
+    private TeleportWarmupComponent(@Nonnull TeleportWarmupComponent other) {
+        this.id = other.id;
+        this.playerRef = other.playerRef;
+        this.startPosition = other.startPosition.clone();
+        this.destination = other.destination;
+        this.targetPlayerUuid = other.targetPlayerUuid;
+        this.successMessage = other.successMessage;
+        this.onSuccess = other.onSuccess;
+        this.deadline = other.deadline;
+        this.safeY = other.safeY;
+    }
+
+    /**
+     * Only used by the registry's factory; a warmup is always created with its destination.
+     */
+    private TeleportWarmupComponent() {
+        this.id = 0;
+        this.playerRef = null;
+        this.startPosition = new Vector3d(0, 0, 0);
+        this.destination = null;
+        this.targetPlayerUuid = null;
+        this.successMessage = null;
+        this.onSuccess = null;
+    }
+
+    @Override
+    public @Nullable Component<EntityStore> clone() {
+        return new TeleportWarmupComponent(this);
+    }
+
+    long getId() {
+        return id;
+    }
+
+    PlayerRef getPlayerRef() {
+        return playerRef;
+    }
+
+    Vector3d getStartPosition() {
+        return startPosition;
+    }
+
+    TeleportDestination getDestination() {
+        return destination;
+    }
+
+    UUID getTargetPlayerUuid() {
+        return targetPlayerUuid;
+    }
+
+    boolean isPlayerTeleport() {
+        return targetPlayerUuid != null;
+    }
+
+    String getSuccessMessage() {
+        return successMessage;
+    }
+
+    Runnable getOnSuccess() {
+        return onSuccess;
+    }
+
+    void setDeadline(@Nonnull TimerWheel.Timeout deadline) {
+        this.deadline = deadline;
+    }
+
+    void setSafeY(@Nonnull CompletableFuture<Double> safeY) {
+        this.safeY = safeY;
+    }
+
+    /**
+     * Gets the prefetched safe landing Y, or null if it isn't known (yet).
+     */
+    @Nullable
+    Double getSafeY() {
+        if (safeY == null || !safeY.isDone() || safeY.isCompletedExceptionally()) {
+            return null;
+        }
+        return safeY.join();
+    }
+
+    /**
+     * Stops the deadline and any destination lookup still running.
+     */
+    void cancel() {
+        if (deadline != null) {
+            deadline.cancel();
+        }
+        if (safeY != null) {
+            safeY.cancel(false);
+        }
+    }
+}
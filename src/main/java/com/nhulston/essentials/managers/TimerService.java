@@ -0,0 +1,153 @@
+package com.nhulston.essentials.managers;
+
+import com.hypixel.hytale.component.ComponentRegistryProxy;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.system.tick.TickingSystem;
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.nhulston.essentials.util.Log;
+import com.nhulston.essentials.util.TimerWheel;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shared deadlines for teleport warmups, TPA expiry, AFK kicks and RTP pool refills. Each world
+ * has its own {@link TimerWheel}, advanced by that world's tick, so a task always runs on the
+ * thread of the world it was scheduled for, and no extra scheduler thread is needed.
+ * <p>
+ * Deadlines that don't belong to a world go on a global wheel that every world's tick advances,
+ * so they still fire if the world they were started from goes away. Wheels of removed worlds are
+ * dropped and their tasks canceled.
+ */
+public class TimerService {
+    private static final long TICK_MILLIS = 50;
+    private static final long PRUNE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final ConcurrentHashMap<String, TimerWheel> wheels = new ConcurrentHashMap<>();
+    private final TimerWheel globalWheel = new TimerWheel(TICK_MILLIS, TimeUnit.MILLISECONDS);
+    private final AtomicBoolean advancingGlobal = new AtomicBoolean();
+    private long lastPruneNanos = System.nanoTime();  // only touched while holding advancingGlobal
+
+    public void registerSystems(@Nonnull ComponentRegistryProxy<EntityStore> registry) {
+        registry.registerSystem(new TimerTickSystem(this));
+    }
+
+    /**
+     * Runs a task on the world's thread once the delay has passed. Safe to call from any thread.
+     * Tasks run outside of system processing, so they may change the entity store.
+     */
+    @Nonnull
+    public TimerWheel.Timeout schedule(@Nonnull World world, long delay, @Nonnull TimeUnit unit,
+                                       @Nonnull Runnable task) {
+        return wheel(world).schedule(delay, unit, task);
+    }
+
+    /**
+     * Runs a task once the delay has passed, on whichever world thread ticks first. Safe to call
+     * from any thread. Tasks run while systems are processing, so they must not touch any entity
+     * store; use this for bookkeeping such as expiring requests.
+     */
+    @Nonnull
+    public TimerWheel.Timeout scheduleGlobal(long delay, @Nonnull TimeUnit unit, @Nonnull Runnable task) {
+        return globalWheel.schedule(delay, unit, task);
+    }
+
+    /**
+     * Gets the number of pending deadlines across all worlds.
+     */
+    public int size() {
+        int size = globalWheel.size();
+        for (TimerWheel wheel : wheels.values()) {
+            size += wheel.size();
+        }
+        return size;
+    }
+
+    @Nonnull
+    private TimerWheel wheel(@Nonnull World world) {
+        return wheels.computeIfAbsent(world.getName(), _ -> new TimerWheel(TICK_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Advances the global wheel, unless another world's tick is already doing so, and now and
+     * then drops the wheels of worlds that no longer exist.
+     */
+    private void advanceGlobal(long now) {
+        if (!advancingGlobal.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            globalWheel.advance(now, task -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    Log.error("Global timer task failed: " + e.getMessage());
+                }
+            });
+
+            if (now - lastPruneNanos >= PRUNE_INTERVAL_NANOS) {
+                lastPruneNanos = now;
+                pruneRemovedWorlds();
+            }
+        } finally {
+            advancingGlobal.set(false);
+        }
+    }
+
+    private void pruneRemovedWorlds() {
+        for (Map.Entry<String, TimerWheel> entry : wheels.entrySet()) {
+            if (Universe.get().getWorld(entry.getKey()) != null || !wheels.remove(entry.getKey(), entry.getValue())) {
+                continue;
+            }
+            TimerWheel wheel = entry.getValue();
+            int canceled;
+            // Locks out an advance still running on the world's last tick
+            synchronized (wheel) {
+                canceled = wheel.cancelAll();
+            }
+            if (canceled > 0) {
+                Log.info("Canceled " + canceled + " timer(s) of removed world " + entry.getKey() + ".");
+            }
+        }
+    }
+
+    /**
+     * Advances the world's wheel, and the global one, once per world tick.
+     */
+    private static class TimerTickSystem extends TickingSystem<EntityStore> {
+        private final TimerService service;
+
+        TimerTickSystem(@Nonnull TimerService service) {
+            this.service = service;
+        }
+
+        @Override
+        public void tick(float deltaTime, int systemIndex, @NotNull Store<EntityStore> store) {
+            World world = store.getExternalData().getWorld();
+            long now = System.nanoTime();
+            service.advanceGlobal(now);
+
+            TimerWheel wheel = service.wheels.get(world.getName());
+            if (wheel == null) {
+                return;
+            }
+
+            synchronized (wheel) {
+                // Queued behind the tick, since the store can't be changed while systems run
+                wheel.advance(now, task -> world.execute(() -> {
+                    try {
+                        task.run();
+                    } catch (Exception e) {
+                        Log.error("Timer task failed in world " + world.getName() + ": " + e.getMessage());
+                    }
+                }));
+            }
+        }
+    }
+}
@@ -7,12 +7,14 @@ import com.nhulston.essentials.util.ConfigManager;
 import com.nhulston.essentials.util.Log;
 import com.nhulston.essentials.util.MessageManager;
 import com.nhulston.essentials.util.Msg;
+import com.nhulston.essentials.util.TimerWheel;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages teleport requests between players.
@@ -21,13 +23,14 @@ import java.util.concurrent.*;
 public class TpaManager {
     // Map of target player UUID -> Map of requester UUID -> request
     private final ConcurrentHashMap<UUID, ConcurrentHashMap<UUID, TpaRequest>> pendingRequests = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final TimerService timerService;
     private final MessageManager messages;
     private final ConfigManager configManager;
     
-    public TpaManager(ConfigManager configManager) {
+    public TpaManager(ConfigManager configManager, TimerService timerService) {
         this.messages = Essentials.getInstance().getMessageManager();
         this.configManager = configManager;
+        this.timerService = timerService;
     }
 
     /**
@@ -56,10 +59,11 @@ public class TpaManager {
         
         // Schedule expiration
         long expirationSeconds = configManager.getTpaExpiration();
-        ScheduledFuture<?> future = scheduler.schedule(() -> {
+        // Not tied to the requester's world, so the request still expires if that world goes away
+        TimerWheel.Timeout timeout = timerService.scheduleGlobal(expirationSeconds, TimeUnit.SECONDS, () -> {
             expireRequest(targetUuid, requesterUuid);
-        }, expirationSeconds, TimeUnit.SECONDS);
-        request.setExpirationFuture(future);
+        });
+        request.setExpiration(timeout);
         
         Log.info("TPA request created: " + requester.getUsername() + " -> " + target.getUsername());
         return true;
@@ -192,7 +196,11 @@ public class TpaManager {
      * Shuts down the manager and cancels all pending requests.
      */
     public void shutdown() {
-        scheduler.shutdownNow();
+        for (ConcurrentHashMap<UUID, TpaRequest> requests : pendingRequests.values()) {
+            for (TpaRequest request : requests.values()) {
+                request.cancel();
+            }
+        }
         pendingRequests.clear();
     }
 
@@ -204,7 +212,7 @@ public class TpaManager {
         private final String requesterName;
         private final String targetName;
         private final long timestamp;
-        private ScheduledFuture<?> expirationFuture;
+        private TimerWheel.Timeout expiration;
 
         public TpaRequest(UUID requesterUuid, String requesterName, String targetName) {
             this.requesterUuid = requesterUuid;
@@ -229,13 +237,13 @@ public class TpaManager {
             return timestamp;
         }
 
-        void setExpirationFuture(ScheduledFuture<?> future) {
-            this.expirationFuture = future;
+        void setExpiration(TimerWheel.Timeout expiration) {
+            this.expiration = expiration;
         }
 
         void cancel() {
-            if (expirationFuture != null) {
-                expirationFuture.cancel(false);
+            if (expiration != null) {
+                expiration.cancel();
             }
         }
     }
@@ -1,23 +1,43 @@
 package com.nhulston.essentials.managers;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
 import com.nhulston.essentials.Essentials;
 import com.nhulston.essentials.models.Warp;
+import com.nhulston.essentials.storage.AtomicFiles;
+import com.nhulston.essentials.util.Log;
 import com.nhulston.essentials.util.MessageManager;
 import com.nhulston.essentials.util.StorageManager;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
 
 public class WarpManager {
     private static final Pattern VALID_NAME_PATTERN = Pattern.compile("^[a-zA-Z0-9]+$");
     private static final int MAX_NAME_LENGTH = 16;
+    private static final Type WARPS_TYPE = new TypeToken<Map<String, Warp>>(){}.getType();
+    private static final Gson TRANSFER_GSON = new GsonBuilder().setPrettyPrinting().create();
+    // Transfer files are plain names in their own folder, so they can never point at the plugin's own files
+    private static final String TRANSFER_FOLDER = "warp-exports";
+    private static final Pattern TRANSFER_FILE_PATTERN = Pattern.compile("^[a-zA-Z0-9_-][a-zA-Z0-9._-]*\\.json$");
 
+    private final Path transferFolder;
     private final StorageManager storageManager;
     private final MessageManager messages;
 
-    public WarpManager(@Nonnull StorageManager storageManager) {
+    public WarpManager(@Nonnull Path dataFolder, @Nonnull StorageManager storageManager) {
+        this.transferFolder = dataFolder.toAbsolutePath().normalize().resolve(TRANSFER_FOLDER);
         this.storageManager = storageManager;
         this.messages = Essentials.getInstance().getMessageManager();
     }
@@ -62,4 +82,64 @@ public class WarpManager {
     public boolean deleteWarp(@Nonnull String name) {
         return storageManager.deleteWarp(name);
     }
+
+    // Bulk import/export
+
+    /**
+     * Resolves a file name given to the import/export commands to a file in the warp-exports folder.
+     *
+     * @return null unless it's a plain file name ending in .json
+     */
+    @Nullable
+    public Path resolveTransferFile(@Nonnull String fileName) {
+        if (!TRANSFER_FILE_PATTERN.matcher(fileName).matches()) {
+            return null;
+        }
+        return transferFolder.resolve(fileName);
+    }
+
+    /**
+     * Writes every warp to a JSON file.
+     *
+     * @param overwrite whether to replace an existing file; if false, the export fails with
+     *                  {@link FileAlreadyExistsException} instead
+     * @return the number of warps written
+     */
+    @Nonnull
+    public CompletableFuture<Integer> exportWarps(@Nonnull Path file, boolean overwrite) {
+        Map<String, Warp> snapshot = new TreeMap<>(storageManager.getWarps());
+        byte[] json = TRANSFER_GSON.toJson(snapshot, WARPS_TYPE).getBytes(StandardCharsets.UTF_8);
+        return storageManager.getIoExecutor().execute(file, () -> {
+            Files.createDirectories(file.getParent());
+            if (!overwrite && Files.exists(file)) {
+                throw new FileAlreadyExistsException(file.getFileName().toString());
+            }
+            AtomicFiles.write(file, json);
+        }).thenApply(_ -> snapshot.size());
+    }
+
+    /**
+     * Loads warps from a JSON file in the export format and adds them in a single write,
+     * replacing warps with the same name. Entries with invalid names are skipped.
+     *
+     * @return the number of warps imported
+     */
+    @Nonnull
+    public CompletableFuture<Integer> importWarps(@Nonnull Path file) {
+        return storageManager.getIoExecutor().supply(file, () -> Files.readString(file)).thenCompose(json -> {
+            Map<String, Warp> loaded = TRANSFER_GSON.fromJson(json, WARPS_TYPE);
+            Map<String, Warp> valid = new HashMap<>();
+            if (loaded != null) {
+                for (Map.Entry<String, Warp> entry : loaded.entrySet()) {
+                    Warp warp = entry.getValue();
+                    if (warp == null || warp.getWorld() == null || validateWarpName(entry.getKey()) != null) {
+                        Log.warning("Skipping invalid warp '" + entry.getKey() + "' in " + file.getFileName() + ".");
+                        continue;
+                    }
+                    valid.put(entry.getKey(), warp);
+                }
+            }
+            return storageManager.importWarps(valid).thenApply(_ -> valid.size());
+        });
+    }
 }
@@ -2,89 +2,277 @@ package com.nhulston.essentials.models;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
+/**
+ * A player's stored data. The state is an immutable {@link Snapshot}; every change swaps in a
+ * copy with the version bumped, so readers and savers never see a half-applied change and
+ * never need a lock.
+ */
 public class PlayerData {
-    private Map<String, Home> homes;
-    private Map<String, Long> kitCooldowns;  // kitId -> lastUsedTimestamp
-    private Long lastRepairTime;
-    private Long lastRtpTime;
 
-    public PlayerData() {
-        this.homes = new HashMap<>();
-        this.kitCooldowns = new HashMap<>();
-    }
+    /**
+     * Immutable state of a player's data at one version.
+     */
+    public static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), null, null, 0);
+
+        private final Map<String, Home> homes;
+        private final Map<String, Long> kitCooldowns;  // kitId -> lastUsedTimestamp
+        private final Long lastRepairTime;
+        private final Long lastRtpTime;
+        private final long version;
+
+        private Snapshot(@Nonnull Map<String, Home> homes, @Nonnull Map<String, Long> kitCooldowns,
+                         @Nullable Long lastRepairTime, @Nullable Long lastRtpTime, long version) {
+            this.homes = homes;
+            this.kitCooldowns = kitCooldowns;
+            this.lastRepairTime = lastRepairTime;
+            this.lastRtpTime = lastRtpTime;
+            this.version = version;
+        }
+
+        @Nonnull
+        public Map<String, Home> getHomes() {
+            return homes;
+        }
 
-    // Ensure maps are initialized after Gson deserialization
-    private void ensureInitialized() {
-        if (homes == null) {
-            homes = new HashMap<>();
+        @Nonnull
+        public Map<String, Long> getKitCooldowns() {
+            return kitCooldowns;
         }
-        if (kitCooldowns == null) {
-            kitCooldowns = new HashMap<>();
+
+        @Nullable
+        public Long getLastRepairTime() {
+            return lastRepairTime;
         }
+
+        @Nullable
+        public Long getLastRtpTime() {
+            return lastRtpTime;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        @Nonnull
+        private Snapshot withHomes(@Nonnull Map<String, Home> homes) {
+            return new Snapshot(homes, kitCooldowns, lastRepairTime, lastRtpTime, version + 1);
+        }
+
+        @Nonnull
+        private Snapshot withKitCooldowns(@Nonnull Map<String, Long> kitCooldowns) {
+            return new Snapshot(homes, kitCooldowns, lastRepairTime, lastRtpTime, version + 1);
+        }
+
+        @Nonnull
+        private Snapshot withLastRepairTime(long lastRepairTime) {
+            return new Snapshot(homes, kitCooldowns, lastRepairTime, lastRtpTime, version + 1);
+        }
+
+        @Nonnull
+        private Snapshot withLastRtpTime(long lastRtpTime) {
+            return new Snapshot(homes, kitCooldowns, lastRepairTime, lastRtpTime, version + 1);
+        }
+    }
+
+    private final AtomicReference<Snapshot> current;
+    private final AtomicLong savedVersion;  // newest version written or queued for writing, -1 if none
+    private volatile long storedGeneration;  // generation of the stored copy this was loaded from
+    private final boolean readOnly;
+
+    /**
+     * Creates empty data for a player that has nothing stored yet.
+     */
+    public PlayerData() {
+        this(false);
+    }
+
+    private PlayerData(boolean readOnly) {
+        this.current = new AtomicReference<>(Snapshot.EMPTY);
+        this.savedVersion = new AtomicLong(-1);
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Creates empty stand-in data for a player whose stored data couldn't be read right now.
+     * It's never saved, so it can't overwrite what's stored.
+     */
+    @Nonnull
+    public static PlayerData unreadable() {
+        return new PlayerData(true);
+    }
+
+    /**
+     * Creates data read back from storage, which counts as saved.
+     */
+    public PlayerData(@Nullable Map<String, Home> homes, @Nullable Map<String, Long> kitCooldowns,
+                      @Nullable Long lastRepairTime, @Nullable Long lastRtpTime) {
+        this.current = new AtomicReference<>(new Snapshot(
+                homes != null ? Collections.unmodifiableMap(lowerCaseKeys(homes)) : Map.of(),
+                kitCooldowns != null ? Collections.unmodifiableMap(lowerCaseKeys(kitCooldowns)) : Map.of(),
+                lastRepairTime, lastRtpTime, 0));
+        this.savedVersion = new AtomicLong(0);
+        this.readOnly = false;
+    }
+
+    /**
+     * Gets the current state. It never changes, so it can be serialized on any thread.
+     */
+    @Nonnull
+    public Snapshot snapshot() {
+        return current.get();
     }
 
     // Home methods
 
+    @Nonnull
     public Map<String, Home> getHomes() {
-        ensureInitialized();
-        return homes;
+        return current.get().homes;
     }
 
     public Home getHome(String name) {
-        ensureInitialized();
-        return homes.get(name.toLowerCase());
+        return current.get().homes.get(name.toLowerCase());
     }
 
     public void setHome(String name, Home home) {
-        ensureInitialized();
-        homes.put(name.toLowerCase(), home);
+        update(s -> s.withHomes(copyWith(s.homes, name.toLowerCase(), home)));
     }
 
     public void deleteHome(String name) {
-        ensureInitialized();
-        homes.remove(name.toLowerCase());
+        update(s -> s.withHomes(copyWith(s.homes, name.toLowerCase(), null)));
     }
 
     public int getHomeCount() {
-        ensureInitialized();
-        return homes.size();
+        return current.get().homes.size();
     }
 
     // Kit cooldown methods
 
+    @Nonnull
+    public Map<String, Long> getKitCooldowns() {
+        return current.get().kitCooldowns;
+    }
+
     @Nullable
     public Long getKitCooldown(@Nonnull String kitId) {
-        ensureInitialized();
-        return kitCooldowns.get(kitId.toLowerCase());
+        return current.get().kitCooldowns.get(kitId.toLowerCase());
     }
 
     public void setKitCooldown(@Nonnull String kitId, long timestamp) {
-        ensureInitialized();
-        kitCooldowns.put(kitId.toLowerCase(), timestamp);
+        update(s -> s.withKitCooldowns(copyWith(s.kitCooldowns, kitId.toLowerCase(), timestamp)));
     }
 
     // Repair cooldown methods
 
     @Nullable
     public Long getLastRepairTime() {
-        return lastRepairTime;
+        return current.get().lastRepairTime;
     }
 
     public void setLastRepairTime(long timestamp) {
-        this.lastRepairTime = timestamp;
+        update(s -> s.withLastRepairTime(timestamp));
     }
 
     // RTP cooldown methods
 
     @Nullable
     public Long getLastRtpTime() {
-        return lastRtpTime;
+        return current.get().lastRtpTime;
     }
 
     public void setLastRtpTime(long timestamp) {
-        this.lastRtpTime = timestamp;
+        update(s -> s.withLastRtpTime(timestamp));
+    }
+
+    // Save tracking
+
+    /**
+     * Checks if this is a stand-in from {@link #unreadable}, which is never saved.
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Checks if there are changes that haven't been written or queued for writing yet.
+     */
+    public boolean isDirty() {
+        return !readOnly && current.get().version > savedVersion.get();
+    }
+
+    /**
+     * Claims a version for saving.
+     *
+     * @return false if that version (or a newer one) was already written or queued, or the data
+     *         is read-only, so the save must be skipped
+     */
+    public boolean beginSave(long version) {
+        if (readOnly) {
+            return false;
+        }
+        while (true) {
+            long saved = savedVersion.get();
+            if (saved >= version) {
+                return false;
+            }
+            if (savedVersion.compareAndSet(saved, version)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a claimed version after its write failed, so the next save retries it.
+     */
+    public void saveFailed(long version) {
+        savedVersion.compareAndSet(version, -1);
+    }
+
+    /**
+     * Records which stored generation this data was loaded from.
+     */
+    public void setStoredGeneration(long generation) {
+        this.storedGeneration = generation;
+    }
+
+    /**
+     * Gets the generation to store a snapshot as. Versions restart at 0 on every load, so adding
+     * them to the loaded generation keeps generations growing across restarts.
+     */
+    public long getGeneration(@Nonnull Snapshot snapshot) {
+        return storedGeneration + snapshot.version;
+    }
+
+    private void update(@Nonnull UnaryOperator<Snapshot> change) {
+        current.updateAndGet(change);
+    }
+
+    @Nonnull
+    private static <V> Map<String, V> copyWith(@Nonnull Map<String, V> map, @Nonnull String key, @Nullable V value) {
+        Map<String, V> copy = new HashMap<>(map);
+        if (value != null) {
+            copy.put(key, value);
+        } else {
+            copy.remove(key);
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    @Nonnull
+    private static <V> Map<String, V> lowerCaseKeys(@Nonnull Map<String, V> map) {
+        Map<String, V> copy = new HashMap<>();
+        for (Map.Entry<String, V> entry : map.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                copy.put(entry.getKey().toLowerCase(), entry.getValue());
+            }
+        }
+        return copy;
     }
 }
@@ -0,0 +1,594 @@
+package com.nhulston.essentials.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.nhulston.essentials.util.Log;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Incremental backups of the data folder.
+ * <p>
+ * A backup briefly fences the {@link StorageExecutor} so no file is caught mid-write. While
+ * fenced it only hard-links the files that changed since the previous backup into a staging
+ * folder (files appended or truncated in place, the {@code *.log} files, are copied instead).
+ * Hashing and compressing happen after the fence is lifted, on a background thread and at a
+ * limited rate.
+ * <p>
+ * Contents are stored once per distinct SHA-256 in {@code backups/objects/ab/<hash>}, deflated.
+ * Each backup is a manifest in {@code backups/snapshots/<id>.json} listing the path, size,
+ * modification time and hash of every file; a file whose size and time match the previous
+ * manifest reuses its hash without being read.
+ * <p>
+ * The whole dataset can't be swapped under a running server, so a full restore is staged in
+ * {@code backups/restore-pending} and applied by {@link #applyPendingRestore} on the next start.
+ */
+public class BackupStore {
+    public static final String FOLDER = "backups";
+    public static final String LATEST = "latest";
+
+    private static final String OBJECTS = "objects";
+    private static final String SNAPSHOTS = "snapshots";
+    private static final String STAGING = "staging";
+    private static final String RESTORE_PENDING = "restore-pending";
+    private static final String MANIFEST_SUFFIX = ".json";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final Set<String> NOT_RESTORED = Set.of("config.toml", "messages.toml");
+    private static final Pattern ID_PATTERN = Pattern.compile("[0-9A-Za-z-]+");
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final DateTimeFormatter ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final long FENCE_TIMEOUT_MS = 5000;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    /**
+     * One file in a backup.
+     */
+    private static final class Entry {
+        private String path;
+        private long size;
+        private long modified;
+        private String hash;
+    }
+
+    private static final class Manifest {
+        private String id;
+        private long created;
+        private List<Entry> files;
+    }
+
+    private record Staged(@Nonnull Entry entry, @Nonnull Path copy) {
+    }
+
+    /**
+     * Outcome of a backup, for reporting.
+     *
+     * @param changed     files that were new or modified since the previous backup
+     * @param storedBytes compressed bytes added to the object store
+     */
+    public record Result(@Nonnull String id, int files, int changed, long storedBytes, long fencedMs, long durationMs) {
+    }
+
+    private final Path dataFolder;
+    private final Path backupsFolder;
+    private final StorageExecutor ioExecutor;
+    private final long bytesPerSecond;
+    private final ExecutorService executor;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * @param rateLimitKbps maximum read speed while backing up, 0 for unlimited
+     */
+    public BackupStore(@Nonnull Path dataFolder, @Nonnull StorageExecutor ioExecutor, int rateLimitKbps) {
+        this.dataFolder = dataFolder;
+        this.backupsFolder = dataFolder.resolve(FOLDER);
+        this.ioExecutor = ioExecutor;
+        this.bytesPerSecond = Math.max(0, rateLimitKbps) * 1024L;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Essentials-Backup");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a backup in the background. Only one runs at a time.
+     *
+     * @return fails with {@link IllegalStateException} if a backup is already running
+     */
+    @Nonnull
+    public CompletableFuture<Result> createBackup() {
+        if (!running.compareAndSet(false, true)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("A backup is already running"));
+        }
+        return submit(() -> {
+            try {
+                return backup();
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    /**
+     * Runs a task on the backup thread, so reading large objects never blocks a server thread.
+     */
+    @Nonnull
+    public <T> CompletableFuture<T> submit(@Nonnull StorageExecutor.IoSupplier<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.get();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Lists the ids of all backups, oldest first.
+     */
+    @Nonnull
+    public List<String> listSnapshots() {
+        List<String> ids = new ArrayList<>();
+        Path folder = backupsFolder.resolve(SNAPSHOTS);
+        if (!Files.isDirectory(folder)) {
+            return ids;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*" + MANIFEST_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                ids.add(name.substring(0, name.length() - MANIFEST_SUFFIX.length()));
+            }
+        } catch (IOException e) {
+            Log.warning("Failed to list backups: " + e.getMessage());
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    /**
+     * Resolves a backup id typed by an admin, accepting {@value #LATEST} for the newest one.
+     *
+     * @return the id, or null if there's no such backup
+     */
+    @Nullable
+    public String resolveSnapshot(@Nonnull String id) {
+        if (id.equalsIgnoreCase(LATEST)) {
+            List<String> ids = listSnapshots();
+            return ids.isEmpty() ? null : ids.getLast();
+        }
+        return ID_PATTERN.matcher(id).matches() && Files.exists(manifestFile(backupsFolder, id)) ? id : null;
+    }
+
+    /**
+     * Lists the data files (relative paths with {@code /} separators) stored in a backup.
+     */
+    @Nonnull
+    public List<String> listFiles(@Nonnull String id) throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (Entry entry : readManifest(backupsFolder, id).files) {
+            paths.add(entry.path);
+        }
+        return paths;
+    }
+
+    /**
+     * Reads one file's content as it was in a backup.
+     *
+     * @return the content, or null if the backup doesn't contain the file
+     */
+    @Nullable
+    public byte[] readFile(@Nonnull String id, @Nonnull String path) throws IOException {
+        for (Entry entry : readManifest(backupsFolder, id).files) {
+            if (entry.path.equals(path)) {
+                return readObject(backupsFolder, entry.hash);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Schedules the whole data folder to be rolled back to a backup on the next start.
+     */
+    public void stageRestore(@Nonnull String id) throws IOException {
+        // Fail now rather than at startup if the backup is unreadable
+        readManifest(backupsFolder, id);
+        AtomicFiles.writeString(backupsFolder.resolve(RESTORE_PENDING), id);
+    }
+
+    /**
+     * Gets the id of the backup that will be restored on the next start, if any.
+     */
+    @Nullable
+    public String getPendingRestore() {
+        Path marker = backupsFolder.resolve(RESTORE_PENDING);
+        try {
+            return Files.exists(marker) ? Files.readString(marker).trim() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // Taking a backup
+
+    @Nonnull
+    private Result backup() throws IOException {
+        long start = System.nanoTime();
+        String id = newId();
+        Map<String, Entry> previous = new HashMap<>();
+        List<String> ids = listSnapshots();
+        if (!ids.isEmpty()) {
+            for (Entry entry : readManifest(backupsFolder, ids.getLast()).files) {
+                previous.put(entry.path, entry);
+            }
+        }
+
+        Path staging = backupsFolder.resolve(STAGING);
+        deleteRecursively(staging);
+        Files.createDirectories(staging);
+
+        List<Entry> entries = new ArrayList<>();
+        List<Staged> staged = new ArrayList<>();
+        long fenceStart = System.nanoTime();
+        try {
+            // Pauses writes only; player loads keep running while the files are linked or copied
+            if (!ioExecutor.fence(FENCE_TIMEOUT_MS)) {
+                throw new IOException("Timed out waiting for in-flight writes to finish");
+            }
+            for (Path file : listDataFiles(dataFolder)) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    continue;  // Removed by a writer outside the executor (e.g. the journal)
+                }
+
+                Entry entry = new Entry();
+                entry.path = relativePath(dataFolder, file);
+                entry.size = attributes.size();
+                entry.modified = attributes.lastModifiedTime().toMillis();
+                Entry known = previous.get(entry.path);
+                if (known != null && known.size == entry.size && known.modified == entry.modified) {
+                    entry.hash = known.hash;
+                } else {
+                    Path copy = staging.resolve(Integer.toString(staged.size()));
+                    stage(file, copy);
+                    staged.add(new Staged(entry, copy));
+                }
+                entries.add(entry);
+            }
+        } finally {
+            ioExecutor.unfence();
+        }
+        long fencedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - fenceStart);
+
+        // Everything below works on the staged copies, at the configured rate
+        Throttle throttle = new Throttle(bytesPerSecond);
+        long storedBytes = 0;
+        for (Staged file : staged) {
+            storedBytes += storeObject(file, throttle);
+        }
+
+        Manifest manifest = new Manifest();
+        manifest.id = id;
+        manifest.created = System.currentTimeMillis();
+        manifest.files = entries;
+        Files.createDirectories(backupsFolder.resolve(SNAPSHOTS));
+        AtomicFiles.writeString(manifestFile(backupsFolder, id), GSON.toJson(manifest));
+        deleteRecursively(staging);
+
+        return new Result(id, entries.size(), staged.size(), storedBytes, fencedMs,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Freezes a file's current content. Links are nearly free, but a linked file would still
+     * see in-place appends and truncations, so the logs are copied.
+     */
+    private static void stage(@Nonnull Path file, @Nonnull Path copy) throws IOException {
+        if (!file.getFileName().toString().endsWith(".log")) {
+            try {
+                Files.createLink(copy, file);
+                return;
+            } catch (IOException | UnsupportedOperationException ignored) {
+                // Filesystem without hard links, fall through to a copy
+            }
+        }
+        Files.copy(file, copy, StandardCopyOption.COPY_ATTRIBUTES);
+    }
+
+    /**
+     * Hashes and deflates a staged file into the object store, reading no more than the size it
+     * had when fenced (segment files keep growing through their link).
+     *
+     * @return the compressed bytes added, 0 if an identical object was already stored
+     */
+    private long storeObject(@Nonnull Staged file, @Nonnull Throttle throttle) throws IOException {
+        MessageDigest digest = sha256();
+        Path objects = backupsFolder.resolve(OBJECTS);
+        Files.createDirectories(objects);
+        Path temp = objects.resolve(UUID.randomUUID() + TEMP_SUFFIX);
+
+        try {
+            try (InputStream in = Files.newInputStream(file.copy());
+                 OutputStream out = new DeflaterOutputStream(Files.newOutputStream(temp))) {
+                byte[] buffer = new byte[CHUNK_SIZE];
+                long remaining = file.entry().size;
+                while (remaining > 0) {
+                    int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read < 0) {
+                        throw new EOFException(file.entry().path + " shrank while being backed up");
+                    }
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                    throttle.acquire(read);
+                }
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            file.entry().hash = hash;
+            Path target = objectFile(backupsFolder, hash);
+            if (Files.exists(target)) {
+                return 0;
+            }
+            Files.createDirectories(target.getParent());
+            long size = Files.size(temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target);
+            }
+            return size;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Nonnull
+    private String newId() {
+        String base = LocalDateTime.now().format(ID_FORMAT);
+        String id = base;
+        for (int i = 2; Files.exists(manifestFile(backupsFolder, id)); i++) {
+            id = base + "-" + i;
+        }
+        return id;
+    }
+
+    /**
+     * Paces reads to a byte rate, sleeping whenever the backup gets ahead of it.
+     */
+    private static final class Throttle {
+        private final long bytesPerSecond;
+        private final long start = System.nanoTime();
+        private long bytes;
+
+        private Throttle(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        private void acquire(int count) throws IOException {
+            if (bytesPerSecond <= 0) {
+                return;
+            }
+            bytes += count;
+            long aheadNanos = bytes * 1_000_000_000L / bytesPerSecond - (System.nanoTime() - start);
+            if (aheadNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(aheadNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Backup interrupted", e);
+                }
+            }
+        }
+    }
+
+    // Restoring everything
+
+    /**
+     * Applies a staged full restore, if there is one: every data file is replaced by its backed
+     * up version and files the backup doesn't have are deleted. {@code config.toml} and
+     * {@code messages.toml} are left as they are. Must run before anything reads the data folder.
+     */
+    public static void applyPendingRestore(@Nonnull Path dataFolder) {
+        Path backupsFolder = dataFolder.resolve(FOLDER);
+        Path marker = backupsFolder.resolve(RESTORE_PENDING);
+        if (!Files.exists(marker)) {
+            return;
+        }
+
+        String id;
+        List<Entry> restored = new ArrayList<>();
+        try {
+            id = Files.readString(marker).trim();
+            for (Entry entry : readManifest(backupsFolder, id).files) {
+                if (NOT_RESTORED.contains(entry.path)) {
+                    continue;
+                }
+                if (!dataFolder.resolve(entry.path).normalize().startsWith(dataFolder)
+                        || !Files.exists(objectFile(backupsFolder, entry.hash))) {
+                    throw new IOException("Backup " + id + " is damaged at " + entry.path);
+                }
+                restored.add(entry);
+            }
+        } catch (IOException e) {
+            // Nothing was touched yet, so drop the request instead of failing every start
+            Log.error("Cannot restore backup, keeping the current data: " + e.getMessage());
+            deleteQuietly(marker);
+            return;
+        }
+
+        Log.info("Restoring " + restored.size() + " data file(s) from backup " + id + "...");
+        try {
+            Set<String> paths = new HashSet<>();
+            for (Entry entry : restored) {
+                paths.add(entry.path);
+            }
+            for (Path file : listDataFiles(dataFolder)) {
+                String path = relativePath(dataFolder, file);
+                if (!paths.contains(path) && !NOT_RESTORED.contains(path)) {
+                    Files.delete(file);
+                }
+            }
+
+            for (Entry entry : restored) {
+                Path target = dataFolder.resolve(entry.path);
+                Files.createDirectories(target.getParent());
+                AtomicFiles.write(target, readObject(backupsFolder, entry.hash));
+                // Keeps the next backup from re-reading every restored file
+                Files.setLastModifiedTime(target, FileTime.fromMillis(entry.modified));
+            }
+            Files.delete(marker);
+            Log.info("Restored backup " + id + ".");
+        } catch (IOException e) {
+            // The marker stays, so the next start retries; each step is safe to repeat
+            Log.error("Failed to restore backup " + id + ", will retry on the next start: " + e.getMessage());
+        }
+    }
+
+    // Files
+
+    /**
+     * Lists every file in the data folder except the backups themselves and unfinished temp files.
+     */
+    @Nonnull
+    private static List<Path> listDataFiles(@Nonnull Path dataFolder) throws IOException {
+        Path backupsFolder = dataFolder.resolve(FOLDER);
+        if (!Files.isDirectory(dataFolder)) {
+            return List.of();
+        }
+        try (Stream<Path> stream = Files.walk(dataFolder)) {
+            return stream.filter(path -> !path.startsWith(backupsFolder))
+                    .filter(path -> !path.getFileName().toString().endsWith(TEMP_SUFFIX))
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    @Nonnull
+    private static String relativePath(@Nonnull Path dataFolder, @Nonnull Path file) {
+        return dataFolder.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    @Nonnull
+    private static Manifest readManifest(@Nonnull Path backupsFolder, @Nonnull String id) throws IOException {
+        if (!ID_PATTERN.matcher(id).matches()) {
+            throw new IOException("Invalid backup id: " + id);
+        }
+        Path file = manifestFile(backupsFolder, id);
+        if (!Files.exists(file)) {
+            throw new NoSuchFileException("No backup named " + id);
+        }
+
+        Manifest manifest;
+        try {
+            manifest = GSON.fromJson(Files.readString(file), Manifest.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Backup " + id + " has a damaged manifest: " + e.getMessage(), e);
+        }
+        if (manifest == null || manifest.files == null) {
+            throw new IOException("Backup " + id + " has an empty manifest");
+        }
+        for (Entry entry : manifest.files) {
+            if (entry == null || entry.path == null || entry.hash == null || !HASH_PATTERN.matcher(entry.hash).matches()) {
+                throw new IOException("Backup " + id + " has a damaged manifest entry");
+            }
+        }
+        return manifest;
+    }
+
+    @Nonnull
+    private static byte[] readObject(@Nonnull Path backupsFolder, @Nonnull String hash) throws IOException {
+        byte[] content;
+        try (InputStream in = new InflaterInputStream(Files.newInputStream(objectFile(backupsFolder, hash)))) {
+            content = in.readAllBytes();
+        }
+        if (!HexFormat.of().formatHex(sha256().digest(content)).equals(hash)) {
+            throw new IOException("Backup object " + hash + " is corrupt");
+        }
+        return content;
+    }
+
+    @Nonnull
+    private static Path manifestFile(@Nonnull Path backupsFolder, @Nonnull String id) {
+        return backupsFolder.resolve(SNAPSHOTS).resolve(id + MANIFEST_SUFFIX);
+    }
+
+    @Nonnull
+    private static Path objectFile(@Nonnull Path backupsFolder, @Nonnull String hash) {
+        return backupsFolder.resolve(OBJECTS).resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    @Nonnull
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void deleteRecursively(@Nonnull Path folder) throws IOException {
+        if (!Files.exists(folder)) {
+            return;
+        }
+        try (Stream<Path> stream = Files.walk(folder)) {
+            for (Path path : stream.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static void deleteQuietly(@Nonnull Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            Log.warning("Failed to delete " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+}
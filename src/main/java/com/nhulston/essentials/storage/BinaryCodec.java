@@ -0,0 +1,380 @@
+package com.nhulston.essentials.storage;
+
+import com.nhulston.essentials.models.Home;
+import com.nhulston.essentials.models.PlayerData;
+import com.nhulston.essentials.models.Spawn;
+import com.nhulston.essentials.models.Warp;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, versioned binary format for player data, warps and spawn.
+ * <p>
+ * Layout: {@code magic(2) kind(1) version(varint) stringTable body}. The string table holds each
+ * distinct world name once; locations refer to it by index. Counts, lengths and timestamps are
+ * varints, coordinates are raw IEEE doubles/floats so positions round-trip exactly.
+ * <p>
+ * Files that don't start with the magic bytes are legacy JSON; callers check {@link #isBinary}
+ * and fall back to Gson, and the file is rewritten in this format the next time it's saved.
+ */
+public final class BinaryCodec {
+    private static final byte MAGIC_0 = (byte) 0xE5;
+    private static final byte MAGIC_1 = (byte) 0x5A;
+    private static final byte KIND_PLAYER = 1;
+    private static final byte KIND_WARPS = 2;
+    private static final byte KIND_SPAWN = 3;
+    private static final byte KIND_WARP_CHANGES = 4;
+    private static final int VERSION = 1;
+
+    private static final int FLAG_REPAIR_TIME = 1;
+    private static final int FLAG_RTP_TIME = 1 << 1;
+
+    private BinaryCodec() {
+    }
+
+    /**
+     * Checks for the binary header. JSON always starts with '{', whitespace or a BOM, never 0xE5.
+     */
+    public static boolean isBinary(@Nullable byte[] bytes) {
+        return bytes != null && bytes.length >= 2 && bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1;
+    }
+
+    // Player data
+
+    /**
+     * Encodes a snapshot rather than the live object, so a concurrent change can't tear the output.
+     */
+    @Nonnull
+    public static byte[] encodePlayerData(@Nonnull PlayerData.Snapshot data) {
+        Writer out = new Writer();
+        for (Home home : data.getHomes().values()) {
+            out.intern(home.getWorld());
+        }
+        out.header(KIND_PLAYER);
+
+        out.varint(data.getHomes().size());
+        for (Map.Entry<String, Home> entry : data.getHomes().entrySet()) {
+            Home home = entry.getValue();
+            out.string(entry.getKey());
+            out.location(home.getWorld(), home.getX(), home.getY(), home.getZ(), home.getYaw(), home.getPitch());
+            out.varlong(home.getCreatedAt());
+        }
+
+        Map<String, Long> cooldowns = data.getKitCooldowns();
+        out.varint(cooldowns.size());
+        for (Map.Entry<String, Long> entry : cooldowns.entrySet()) {
+            out.string(entry.getKey());
+            out.varlong(entry.getValue());
+        }
+
+        Long repair = data.getLastRepairTime();
+        Long rtp = data.getLastRtpTime();
+        out.varint((repair != null ? FLAG_REPAIR_TIME : 0) | (rtp != null ? FLAG_RTP_TIME : 0));
+        if (repair != null) {
+            out.varlong(repair);
+        }
+        if (rtp != null) {
+            out.varlong(rtp);
+        }
+        return out.toByteArray();
+    }
+
+    @Nonnull
+    public static PlayerData decodePlayerData(@Nonnull byte[] bytes) throws IOException {
+        Reader in = new Reader(bytes, KIND_PLAYER);
+
+        int homeCount = in.varint();
+        Map<String, Home> homes = new HashMap<>();
+        for (int i = 0; i < homeCount; i++) {
+            String name = in.string();
+            String world = in.world();
+            double x = in.float64();
+            double y = in.float64();
+            double z = in.float64();
+            float yaw = in.float32();
+            float pitch = in.float32();
+            homes.put(name, new Home(world, x, y, z, yaw, pitch, in.varlong()));
+        }
+
+        int cooldownCount = in.varint();
+        Map<String, Long> cooldowns = new HashMap<>();
+        for (int i = 0; i < cooldownCount; i++) {
+            cooldowns.put(in.string(), in.varlong());
+        }
+
+        int flags = in.varint();
+        Long repair = (flags & FLAG_REPAIR_TIME) != 0 ? in.varlong() : null;
+        Long rtp = (flags & FLAG_RTP_TIME) != 0 ? in.varlong() : null;
+        return new PlayerData(homes, cooldowns, repair, rtp);
+    }
+
+    // Warps
+
+    @Nonnull
+    public static byte[] encodeWarps(@Nonnull Map<String, Warp> warps) {
+        Writer out = new Writer();
+        for (Warp warp : warps.values()) {
+            out.intern(warp.getWorld());
+        }
+        out.header(KIND_WARPS);
+
+        out.varint(warps.size());
+        for (Map.Entry<String, Warp> entry : warps.entrySet()) {
+            Warp warp = entry.getValue();
+            out.string(entry.getKey());
+            out.location(warp.getWorld(), warp.getX(), warp.getY(), warp.getZ(), warp.getYaw(), warp.getPitch());
+        }
+        return out.toByteArray();
+    }
+
+    @Nonnull
+    public static Map<String, Warp> decodeWarps(@Nonnull byte[] bytes) throws IOException {
+        Reader in = new Reader(bytes, KIND_WARPS);
+        int count = in.varint();
+        Map<String, Warp> warps = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = in.string();
+            warps.put(name, new Warp(in.world(), in.float64(), in.float64(), in.float64(), in.float32(), in.float32()));
+        }
+        return warps;
+    }
+
+    /**
+     * Encodes a batch of warp changes for the warp log. A null value means the warp was deleted.
+     */
+    @Nonnull
+    public static byte[] encodeWarpChanges(@Nonnull Map<String, Warp> changes) {
+        Writer out = new Writer();
+        for (Warp warp : changes.values()) {
+            if (warp != null) {
+                out.intern(warp.getWorld());
+            }
+        }
+        out.header(KIND_WARP_CHANGES);
+
+        out.varint(changes.size());
+        for (Map.Entry<String, Warp> entry : changes.entrySet()) {
+            Warp warp = entry.getValue();
+            out.string(entry.getKey());
+            out.varint(warp != null ? 1 : 0);
+            if (warp != null) {
+                out.location(warp.getWorld(), warp.getX(), warp.getY(), warp.getZ(), warp.getYaw(), warp.getPitch());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Nonnull
+    public static Map<String, Warp> decodeWarpChanges(@Nonnull byte[] bytes) throws IOException {
+        Reader in = new Reader(bytes, KIND_WARP_CHANGES);
+        int count = in.varint();
+        Map<String, Warp> changes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = in.string();
+            boolean present = in.varint() != 0;
+            changes.put(name, present
+                    ? new Warp(in.world(), in.float64(), in.float64(), in.float64(), in.float32(), in.float32())
+                    : null);
+        }
+        return changes;
+    }
+
+    // Spawn
+
+    @Nonnull
+    public static byte[] encodeSpawn(@Nonnull Spawn spawn) {
+        Writer out = new Writer();
+        out.intern(spawn.getWorld());
+        out.header(KIND_SPAWN);
+        out.location(spawn.getWorld(), spawn.getX(), spawn.getY(), spawn.getZ(), spawn.getYaw(), spawn.getPitch());
+        return out.toByteArray();
+    }
+
+    @Nonnull
+    public static Spawn decodeSpawn(@Nonnull byte[] bytes) throws IOException {
+        Reader in = new Reader(bytes, KIND_SPAWN);
+        return new Spawn(in.world(), in.float64(), in.float64(), in.float64(), in.float32(), in.float32());
+    }
+
+    // Encoding
+
+    private static final class Writer {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        private final Map<String, Integer> table = new LinkedHashMap<>();
+
+        /**
+         * Adds a world name to the string table. Must be called for every world before {@link #header}.
+         */
+        private void intern(@Nullable String world) {
+            if (world != null) {
+                table.putIfAbsent(world, table.size());
+            }
+        }
+
+        private void header(byte kind) {
+            out.write(MAGIC_0);
+            out.write(MAGIC_1);
+            out.write(kind);
+            varint(VERSION);
+            varint(table.size());
+            for (String world : table.keySet()) {
+                string(world);
+            }
+        }
+
+        private void location(@Nullable String world, double x, double y, double z, float yaw, float pitch) {
+            // 0 means no world, so the index is shifted by one
+            varint(world != null ? table.get(world) + 1 : 0);
+            float64(x);
+            float64(y);
+            float64(z);
+            float32(yaw);
+            float32(pitch);
+        }
+
+        private void string(@Nonnull String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        private void varint(int value) {
+            varlong(value & 0xFFFFFFFFL);
+        }
+
+        private void varlong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        private void float64(double value) {
+            long bits = Double.doubleToLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (bits >>> shift));
+            }
+        }
+
+        private void float32(float value) {
+            int bits = Float.floatToIntBits(value);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                out.write(bits >>> shift);
+            }
+        }
+
+        @Nonnull
+        private byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    // Decoding
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private final List<String> table = new ArrayList<>();
+        private int position;
+
+        private Reader(@Nonnull byte[] bytes, byte expectedKind) throws IOException {
+            this.bytes = bytes;
+            if (!isBinary(bytes)) {
+                throw new IOException("Not a binary data file");
+            }
+            position = 2;
+            byte kind = u8();
+            if (kind != expectedKind) {
+                throw new IOException("Unexpected data kind " + kind + ", expected " + expectedKind);
+            }
+            int version = varint();
+            if (version > VERSION) {
+                throw new IOException("Data file version " + version + " is newer than supported (" + VERSION + ")");
+            }
+
+            int strings = varint();
+            for (int i = 0; i < strings; i++) {
+                table.add(string());
+            }
+        }
+
+        @Nullable
+        private String world() throws IOException {
+            int index = varint();
+            if (index == 0) {
+                return null;
+            }
+            if (index > table.size()) {
+                throw new IOException("World index " + index + " out of range");
+            }
+            return table.get(index - 1);
+        }
+
+        @Nonnull
+        private String string() throws IOException {
+            int length = varint();
+            require(length);
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private int varint() throws IOException {
+            long value = varlong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IOException("Varint out of range: " + value);
+            }
+            return (int) value;
+        }
+
+        private long varlong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = u8();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        private double float64() throws IOException {
+            require(8);
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+                bits = (bits << 8) | (bytes[position++] & 0xFF);
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        private float float32() throws IOException {
+            require(4);
+            int bits = 0;
+            for (int i = 0; i < 4; i++) {
+                bits = (bits << 8) | (bytes[position++] & 0xFF);
+            }
+            return Float.intBitsToFloat(bits);
+        }
+
+        private byte u8() throws IOException {
+            require(1);
+            return bytes[position++];
+        }
+
+        private void require(int count) throws IOException {
+            if (count < 0 || position + count > bytes.length) {
+                throw new IOException("Unexpected end of data");
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.nhulston.essentials.storage;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+/**
+ * Stored data was read but is damaged (bad checksum, truncated, or undecodable), as opposed to
+ * a plain I/O failure. Damaged copies are quarantined; failed reads are not.
+ */
+public class CorruptDataException extends IOException {
+
+    public CorruptDataException(@Nonnull String message) {
+        super(message);
+    }
+
+    public CorruptDataException(@Nonnull String message, @Nonnull Throwable cause) {
+        super(message, cause);
+    }
+}
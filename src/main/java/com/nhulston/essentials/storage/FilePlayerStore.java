@@ -0,0 +1,387 @@
+package com.nhulston.essentials.storage;
+
+import com.nhulston.essentials.util.Log;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Original backend: one file per player in the players folder.
+ * Files are written as {@code <uuid>.dat}; a legacy {@code <uuid>.json} is still read
+ * and is removed once the player has been saved in the new format.
+ * <p>
+ * With sharding on, files live in {@code players/ab/cd/<uuid>.dat}, where {@code ab/cd} comes from
+ * a hash of the UUID, so no single directory grows past a few entries. Files still in the flat
+ * layout are moved on first access and by a background mover; once the flat layout is empty a
+ * marker file is written and the old location is no longer checked.
+ * <p>
+ * Every write keeps the replaced file as {@code <uuid>.dat.prev} (a hard link where the
+ * filesystem allows it), so a damaged file can fall back one generation.
+ */
+public class FilePlayerStore implements PlayerDataStore {
+    private static final String EXTENSION = ".dat";
+    private static final String LEGACY_EXTENSION = ".json";
+    private static final String PREVIOUS_EXTENSION = ".dat.prev";
+    private static final String SHARDED_MARKER = ".sharded";
+    private static final String MARKER_COMPLETE = "complete";
+    private static final int MOVE_BATCH = 64;
+
+    private final Path playersFolder;
+    private final StorageExecutor ioExecutor;
+    private final StorageMetrics metrics;
+    private final boolean sharded;
+    private volatile boolean flatCleared;
+    private volatile boolean closed;
+
+    public FilePlayerStore(@Nonnull Path playersFolder, @Nonnull StorageExecutor ioExecutor,
+                           @Nonnull StorageMetrics metrics, boolean shard) {
+        this.playersFolder = playersFolder;
+        this.ioExecutor = ioExecutor;
+        this.metrics = metrics;
+
+        // The marker records that the layout was switched, and whether the flat files are all moved
+        Path marker = playersFolder.resolve(SHARDED_MARKER);
+        String state = readMarker(marker);
+        if (!shard && state != null) {
+            // There's no mover in the other direction
+            Log.warning("storage.shard-players is off, but the players folder is already sharded. "
+                    + "Keeping the sharded layout.");
+            shard = true;
+        } else if (shard && state == null) {
+            writeMarker(marker, "moving");
+        }
+        this.sharded = shard;
+        this.flatCleared = MARKER_COMPLETE.equals(state);
+    }
+
+    @Nullable
+    @Override
+    public byte[] read(@Nonnull UUID playerUuid) throws IOException {
+        if (sharded && !flatCleared) {
+            moveToShard(playerUuid);
+        }
+
+        Path file = getPlayerFile(playerUuid);
+        if (Files.exists(file)) {
+            return Files.readAllBytes(file);
+        }
+        Path legacy = getLegacyFile(playerUuid);
+        return Files.exists(legacy) ? Files.readAllBytes(legacy) : null;
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<byte[]> readAsync(@Nonnull UUID playerUuid) {
+        return supply(playerUuid, () -> read(playerUuid));
+    }
+
+    @Nullable
+    @Override
+    public byte[] readPrevious(@Nonnull UUID playerUuid) throws IOException {
+        Path previous = getPreviousFile(playerUuid);
+        return Files.exists(previous) ? Files.readAllBytes(previous) : null;
+    }
+
+    @Override
+    public void quarantine(@Nonnull UUID playerUuid, @Nonnull Path quarantineFolder) throws IOException {
+        Path file = getPlayerFile(playerUuid);
+        if (!Files.exists(file)) {
+            file = getLegacyFile(playerUuid);
+        }
+        if (Files.exists(file)) {
+            String name = file.getFileName().toString();
+            Files.createDirectories(quarantineFolder);
+            Files.move(file, quarantineFolder.resolve(System.currentTimeMillis() + "-" + name));
+        }
+
+        Path previous = getPreviousFile(playerUuid);
+        if (Files.exists(previous)) {
+            Files.move(previous, getPlayerFile(playerUuid), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    @Nonnull
+    @Override
+    public <T> CompletableFuture<T> supply(@Nonnull UUID playerUuid, @Nonnull StorageExecutor.IoSupplier<T> task) {
+        return ioExecutor.supply(getPlayerFile(playerUuid), task);
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<Void> write(@Nonnull UUID playerUuid, @Nonnull byte[] content) {
+        return ioExecutor.write(getPlayerFile(playerUuid), content, (_, bytes) -> writeNow(playerUuid, bytes));
+    }
+
+    @Override
+    public void writeNow(@Nonnull UUID playerUuid, @Nonnull byte[] content) throws IOException {
+        Path file = getPlayerFile(playerUuid);
+        if (sharded) {
+            Files.createDirectories(file.getParent());
+        }
+        Path legacy = getLegacyFile(playerUuid);
+        keepPrevious(Files.exists(file) ? file : legacy, getPreviousFile(playerUuid));
+        AtomicFiles.write(file, content);
+        metrics.recordBytes(StorageMetrics.FileType.PLAYER, content.length);
+        Files.deleteIfExists(legacy);
+
+        if (sharded && !flatCleared) {
+            // The new copy supersedes anything the mover hasn't reached yet
+            Files.deleteIfExists(playersFolder.resolve(playerUuid + EXTENSION));
+            Files.deleteIfExists(playersFolder.resolve(playerUuid + LEGACY_EXTENSION));
+            Files.deleteIfExists(playersFolder.resolve(playerUuid + PREVIOUS_EXTENSION));
+        }
+    }
+
+    /**
+     * Keeps the file about to be replaced as the previous generation. The current file is only
+     * ever replaced by a rename, so a link keeps the old content without copying it.
+     */
+    private static void keepPrevious(@Nonnull Path file, @Nonnull Path previous) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        Files.deleteIfExists(previous);
+        try {
+            Files.createLink(previous, file);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(file, previous, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public boolean exists(@Nonnull UUID playerUuid) {
+        if (Files.exists(getPlayerFile(playerUuid)) || Files.exists(getLegacyFile(playerUuid))) {
+            return true;
+        }
+        return sharded && !flatCleared && (Files.exists(playersFolder.resolve(playerUuid + EXTENSION))
+                || Files.exists(playersFolder.resolve(playerUuid + LEGACY_EXTENSION)));
+    }
+
+    /**
+     * Lists players in both layouts, so nothing goes missing while files are being moved.
+     */
+    @Nonnull
+    @Override
+    public Collection<UUID> getPlayerUuids() {
+        Set<UUID> uuids = new LinkedHashSet<>(listPlayerFiles(playersFolder));
+        if (sharded) {
+            uuids.addAll(listShardedFiles(playersFolder));
+        }
+        return new ArrayList<>(uuids);
+    }
+
+    /**
+     * Starts moving flat player files into their shard folders in the background.
+     * Does nothing if sharding is off or the flat layout is already empty.
+     */
+    public void startShardMover() {
+        if (!sharded || flatCleared) {
+            return;
+        }
+        Thread thread = new Thread(this::moveFlatFiles, "Essentials-ShardMover");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Nonnull
+    private Path getPlayerFile(@Nonnull UUID playerUuid) {
+        return getFolder(playerUuid).resolve(playerUuid + EXTENSION);
+    }
+
+    @Nonnull
+    private Path getLegacyFile(@Nonnull UUID playerUuid) {
+        return getFolder(playerUuid).resolve(playerUuid + LEGACY_EXTENSION);
+    }
+
+    @Nonnull
+    private Path getPreviousFile(@Nonnull UUID playerUuid) {
+        return getFolder(playerUuid).resolve(playerUuid + PREVIOUS_EXTENSION);
+    }
+
+    @Nonnull
+    private Path getFolder(@Nonnull UUID playerUuid) {
+        if (!sharded) {
+            return playersFolder;
+        }
+
+        // Hashed, since the leading hex digits of time-based UUIDs barely vary
+        long h = playerUuid.getMostSignificantBits() ^ playerUuid.getLeastSignificantBits();
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        int shard = (int) h & 0xFFFF;
+        return playersFolder.resolve(String.format("%02x", shard >>> 8)).resolve(String.format("%02x", shard & 0xFF));
+    }
+
+    // Flat -> sharded migration
+
+    /**
+     * Moves a player's flat files into their shard folder. Runs in the player's lane (or during
+     * a read in it), so it never races a write for the same player. A sharded copy, if present,
+     * is always newer and wins.
+     */
+    private void moveToShard(@Nonnull UUID playerUuid) throws IOException {
+        Path file = getPlayerFile(playerUuid);
+        for (String extension : new String[]{EXTENSION, LEGACY_EXTENSION, PREVIOUS_EXTENSION}) {
+            Path flat = playersFolder.resolve(playerUuid + extension);
+            if (!Files.exists(flat)) {
+                continue;
+            }
+
+            Path target = file.resolveSibling(playerUuid + extension);
+            boolean superseded = !extension.equals(PREVIOUS_EXTENSION) && Files.exists(file);
+            if (superseded || Files.exists(target)) {
+                Files.delete(flat);
+            } else {
+                Files.createDirectories(target.getParent());
+                Files.move(flat, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+    }
+
+    private void moveFlatFiles() {
+        List<UUID> flat = listPlayerFiles(playersFolder);
+        if (!flat.isEmpty()) {
+            Log.info("Moving " + flat.size() + " player file(s) into shard folders...");
+        }
+
+        // Batches keep the mover from filling the I/O queue ahead of live saves
+        List<CompletableFuture<Void>> batch = new ArrayList<>();
+        for (UUID playerUuid : flat) {
+            if (closed) {
+                return;
+            }
+            batch.add(ioExecutor.execute(getPlayerFile(playerUuid), () -> moveToShard(playerUuid)));
+            if (batch.size() >= MOVE_BATCH) {
+                awaitQuietly(batch);
+            }
+        }
+        awaitQuietly(batch);
+
+        if (closed) {
+            return;
+        }
+        List<UUID> remaining = listPlayerFiles(playersFolder);
+        if (!remaining.isEmpty()) {
+            Log.warning(remaining.size() + " player file(s) could not be moved into shard folders; "
+                    + "they will be retried on the next start.");
+            return;
+        }
+
+        if (writeMarker(playersFolder.resolve(SHARDED_MARKER), MARKER_COMPLETE)) {
+            flatCleared = true;
+        }
+        if (!flat.isEmpty()) {
+            Log.info("Moved " + flat.size() + " player file(s) into shard folders.");
+        }
+    }
+
+    @Nullable
+    private static String readMarker(@Nonnull Path marker) {
+        try {
+            return Files.exists(marker) ? Files.readString(marker).trim() : null;
+        } catch (IOException e) {
+            Log.warning("Failed to read shard marker: " + e.getMessage());
+            return "";
+        }
+    }
+
+    private static boolean writeMarker(@Nonnull Path marker, @Nonnull String state) {
+        try {
+            Files.createDirectories(marker.getParent());
+            AtomicFiles.writeString(marker, state);
+            return true;
+        } catch (IOException e) {
+            Log.warning("Failed to write shard marker: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void awaitQuietly(@Nonnull List<CompletableFuture<Void>> batch) {
+        for (CompletableFuture<Void> future : batch) {
+            try {
+                future.join();
+            } catch (CompletionException ignored) {
+                // Already logged by the executor; the file is picked up again on the next start
+            }
+        }
+        batch.clear();
+    }
+
+    /**
+     * Lists the UUIDs of every player file in the folder (either format), skipping anything else.
+     */
+    @Nonnull
+    static List<UUID> listPlayerFiles(@Nonnull Path folder) {
+        Set<UUID> uuids = new LinkedHashSet<>();
+        if (!Files.isDirectory(folder)) {
+            return new ArrayList<>(uuids);
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder,
+                "*{" + EXTENSION + "," + LEGACY_EXTENSION + "}")) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    uuids.add(UUID.fromString(name.substring(0, name.lastIndexOf('.'))));
+                } catch (IllegalArgumentException ignored) {
+                    // Not a player file
+                }
+            }
+        } catch (IOException e) {
+            Log.warning("Failed to list player files: " + e.getMessage());
+        }
+        return new ArrayList<>(uuids);
+    }
+
+    /**
+     * Lists the UUIDs of every player file in the two levels of shard folders.
+     */
+    @Nonnull
+    static List<UUID> listShardedFiles(@Nonnull Path folder) {
+        List<UUID> uuids = new ArrayList<>();
+        for (Path outer : listShardFolders(folder)) {
+            for (Path inner : listShardFolders(outer)) {
+                uuids.addAll(listPlayerFiles(inner));
+            }
+        }
+        return uuids;
+    }
+
+    @Nonnull
+    private static List<Path> listShardFolders(@Nonnull Path folder) {
+        List<Path> folders = new ArrayList<>();
+        if (!Files.isDirectory(folder)) {
+            return folders;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "[0-9a-f][0-9a-f]")) {
+            for (Path path : stream) {
+                if (Files.isDirectory(path)) {
+                    folders.add(path);
+                }
+            }
+        } catch (IOException e) {
+            Log.warning("Failed to list player shard folders: " + e.getMessage());
+        }
+        return folders;
+    }
+}
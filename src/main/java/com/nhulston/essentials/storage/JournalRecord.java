@@ -0,0 +1,139 @@
+package com.nhulston.essentials.storage;
+
+import com.nhulston.essentials.models.Home;
+import com.nhulston.essentials.models.PlayerData;
+import com.nhulston.essentials.models.Warp;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A single mutation stored in the storage journal.
+ * Every record is an idempotent "set" or "delete", so replaying a record on top of a
+ * snapshot that already contains it is harmless.
+ */
+public class JournalRecord {
+    public enum Type {
+        HOME_SET,
+        HOME_DELETE,
+        KIT_COOLDOWN,
+        REPAIR_TIME,
+        RTP_TIME,
+        WARP_SET,
+        WARP_DELETE
+    }
+
+    private final Type type;
+    private final String player;
+    private final String key;
+    private final Home home;
+    private final Warp warp;
+    private final Long timestamp;
+
+    private JournalRecord(@Nonnull Type type, @Nullable UUID player, @Nullable String key,
+                          @Nullable Home home, @Nullable Warp warp, @Nullable Long timestamp) {
+        this.type = type;
+        this.player = player != null ? player.toString() : null;
+        this.key = key;
+        this.home = home;
+        this.warp = warp;
+        this.timestamp = timestamp;
+    }
+
+    @Nonnull
+    public static JournalRecord homeSet(@Nonnull UUID player, @Nonnull String name, @Nonnull Home home) {
+        return new JournalRecord(Type.HOME_SET, player, name.toLowerCase(), home, null, null);
+    }
+
+    @Nonnull
+    public static JournalRecord homeDelete(@Nonnull UUID player, @Nonnull String name) {
+        return new JournalRecord(Type.HOME_DELETE, player, name.toLowerCase(), null, null, null);
+    }
+
+    @Nonnull
+    public static JournalRecord kitCooldown(@Nonnull UUID player, @Nonnull String kitId, long timestamp) {
+        return new JournalRecord(Type.KIT_COOLDOWN, player, kitId.toLowerCase(), null, null, timestamp);
+    }
+
+    @Nonnull
+    public static JournalRecord repairTime(@Nonnull UUID player, long timestamp) {
+        return new JournalRecord(Type.REPAIR_TIME, player, null, null, null, timestamp);
+    }
+
+    @Nonnull
+    public static JournalRecord rtpTime(@Nonnull UUID player, long timestamp) {
+        return new JournalRecord(Type.RTP_TIME, player, null, null, null, timestamp);
+    }
+
+    @Nonnull
+    public static JournalRecord warpSet(@Nonnull String name, @Nonnull Warp warp) {
+        return new JournalRecord(Type.WARP_SET, null, name.toLowerCase(), null, warp, null);
+    }
+
+    @Nonnull
+    public static JournalRecord warpDelete(@Nonnull String name) {
+        return new JournalRecord(Type.WARP_DELETE, null, name.toLowerCase(), null, null, null);
+    }
+
+    @Nonnull
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isWarpRecord() {
+        return type == Type.WARP_SET || type == Type.WARP_DELETE;
+    }
+
+    /**
+     * Gets the player this record belongs to, or null for warp records.
+     */
+    @Nullable
+    public UUID getPlayerUuid() {
+        return player != null ? UUID.fromString(player) : null;
+    }
+
+    /**
+     * Checks that a deserialized record carries the fields its type needs.
+     * Guards against partially written lines at the tail of the journal.
+     */
+    public boolean isValid() {
+        if (type == null) {
+            return false;
+        }
+        return switch (type) {
+            case HOME_SET -> player != null && key != null && home != null;
+            case HOME_DELETE -> player != null && key != null;
+            case KIT_COOLDOWN -> player != null && key != null && timestamp != null;
+            case REPAIR_TIME, RTP_TIME -> player != null && timestamp != null;
+            case WARP_SET -> key != null && warp != null;
+            case WARP_DELETE -> key != null;
+        };
+    }
+
+    /**
+     * Applies a player record to the given data.
+     */
+    public void applyTo(@Nonnull PlayerData data) {
+        switch (type) {
+            case HOME_SET -> data.setHome(key, home);
+            case HOME_DELETE -> data.deleteHome(key);
+            case KIT_COOLDOWN -> data.setKitCooldown(key, timestamp);
+            case REPAIR_TIME -> data.setLastRepairTime(timestamp);
+            case RTP_TIME -> data.setLastRtpTime(timestamp);
+            default -> { }
+        }
+    }
+
+    /**
+     * Applies a warp record to the given warp map.
+     */
+    public void applyTo(@Nonnull Map<String, Warp> warps) {
+        switch (type) {
+            case WARP_SET -> warps.put(key, warp);
+            case WARP_DELETE -> warps.remove(key);
+            default -> { }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.nhulston.essentials.storage;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Compact set of player UUIDs, stored as pairs of longs in a single open-addressed array
+ * (linear probing). Uses about 16 bytes per player at most half full, with no per-entry objects.
+ * <p>
+ * The all-zero UUID marks an empty slot, so it is tracked with a separate flag.
+ */
+public class KnownPlayerSet {
+    private static final int MIN_CAPACITY = 64;
+
+    private long[] table;  // [msb0, lsb0, msb1, lsb1, ...]
+    private int size;
+    private boolean containsNil;
+
+    public KnownPlayerSet(int expectedSize) {
+        this.table = new long[2 * slotsFor(expectedSize)];
+    }
+
+    @Nonnull
+    public static KnownPlayerSet of(@Nonnull Collection<UUID> uuids) {
+        KnownPlayerSet set = new KnownPlayerSet(uuids.size());
+        for (UUID uuid : uuids) {
+            set.add(uuid);
+        }
+        return set;
+    }
+
+    public synchronized boolean contains(@Nonnull UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        if (msb == 0 && lsb == 0) {
+            return containsNil;
+        }
+
+        int mask = table.length / 2 - 1;
+        for (int slot = hash(msb, lsb) & mask; ; slot = (slot + 1) & mask) {
+            long slotMsb = table[slot * 2];
+            long slotLsb = table[slot * 2 + 1];
+            if (slotMsb == msb && slotLsb == lsb) {
+                return true;
+            }
+            if (slotMsb == 0 && slotLsb == 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return true if the UUID wasn't in the set yet
+     */
+    public synchronized boolean add(@Nonnull UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        if (msb == 0 && lsb == 0) {
+            boolean added = !containsNil;
+            containsNil = true;
+            return added;
+        }
+
+        if ((size + 1) * 2 > table.length / 2) {
+            resize();
+        }
+        if (insert(table, msb, lsb)) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized int size() {
+        return size + (containsNil ? 1 : 0);
+    }
+
+    private void resize() {
+        long[] resized = new long[table.length * 2];
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != 0 || table[i + 1] != 0) {
+                insert(resized, table[i], table[i + 1]);
+            }
+        }
+        table = resized;
+    }
+
+    private static boolean insert(@Nonnull long[] table, long msb, long lsb) {
+        int mask = table.length / 2 - 1;
+        for (int slot = hash(msb, lsb) & mask; ; slot = (slot + 1) & mask) {
+            long slotMsb = table[slot * 2];
+            long slotLsb = table[slot * 2 + 1];
+            if (slotMsb == msb && slotLsb == lsb) {
+                return false;
+            }
+            if (slotMsb == 0 && slotLsb == 0) {
+                table[slot * 2] = msb;
+                table[slot * 2 + 1] = lsb;
+                return true;
+            }
+        }
+    }
+
+    private static int slotsFor(int expectedSize) {
+        // Keep the load factor at or below 0.5
+        int slots = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * 2) - 1) << 1;
+        return Math.max(MIN_CAPACITY, slots);
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        h ^= h >>> 31;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,107 @@
+package com.nhulston.essentials.storage;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket latency histogram. Recording is a short bucket scan and a few {@link LongAdder}
+ * increments, so it can stay on in production. Percentiles are reported as the upper bound of
+ * the bucket they fall in.
+ */
+public final class LatencyHistogram {
+    // Upper bounds in microseconds; the last bucket takes everything slower
+    private static final long[] BOUNDS = {
+            50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Long::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+        int bucket = 0;
+        while (bucket < BOUNDS.length && micros > BOUNDS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMeanMicros() {
+        long n = count.sum();
+        return n > 0 ? totalMicros.sum() / n : 0;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * Gets the bucket bound that at least the given fraction of samples are at or below,
+     * capped at the largest sample.
+     *
+     * @param fraction e.g. 0.99 for the 99th percentile
+     */
+    public long getPercentileMicros(double fraction) {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(BOUNDS[i], getMaxMicros());
+            }
+        }
+        return getMaxMicros();
+    }
+
+    /**
+     * One-line summary, e.g. {@code 120 ops, p50 <=1ms, p99 <=25ms, max 31ms}.
+     */
+    @Nonnull
+    public String summary() {
+        long n = getCount();
+        if (n == 0) {
+            return "no ops";
+        }
+        return n + " ops, p50 <=" + formatMicros(getPercentileMicros(0.5))
+                + ", p99 <=" + formatMicros(getPercentileMicros(0.99))
+                + ", max " + formatMicros(getMaxMicros());
+    }
+
+    @Nonnull
+    static String formatMicros(long micros) {
+        if (micros < 1_000) {
+            return micros + "us";
+        }
+        if (micros < 10_000) {
+            return String.format("%.1fms", micros / 1_000.0);
+        }
+        return (micros / 1_000) + "ms";
+    }
+}
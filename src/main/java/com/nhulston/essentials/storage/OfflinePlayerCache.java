@@ -0,0 +1,251 @@
+package com.nhulston.essentials.storage;
+
+import com.nhulston.essentials.models.PlayerData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Size- and time-bounded cache for data of players who aren't online
+ * (admin lookups, recently disconnected players).
+ * <p>
+ * Recency is tracked with an access-ordered LRU, and frequency with a small count-min sketch
+ * that is halved periodically so old popularity fades. When the cache is full, a newcomer only
+ * displaces the least recently used entry if it has been requested more often (TinyLFU admission),
+ * so a burst of one-off lookups can't flush out players that are looked up all the time.
+ * <p>
+ * Entries that were modified while cached are handed to the write-back callback before they leave.
+ */
+public class OfflinePlayerCache {
+    private static final int SKETCH_DEPTH = 4;
+    private static final int MAX_FREQUENCY = 15;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private static final class Entry {
+        private final PlayerData data;
+        private long lastAccess;
+        private boolean dirty;
+
+        private Entry(@Nonnull PlayerData data, long lastAccess, boolean dirty) {
+            this.data = data;
+            this.lastAccess = lastAccess;
+            this.dirty = dirty;
+        }
+    }
+
+    private final int capacity;
+    private final long ttlMs;
+    private final BiConsumer<UUID, PlayerData> writeBack;
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final byte[][] sketch;
+    private final int sketchMask;
+    private final int resetThreshold;
+    private int sketchAdditions;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public OfflinePlayerCache(int capacity, int ttlSeconds, @Nonnull BiConsumer<UUID, PlayerData> writeBack) {
+        this.capacity = Math.max(1, capacity);
+        this.ttlMs = TimeUnit.SECONDS.toMillis(Math.max(1, ttlSeconds));
+        this.writeBack = writeBack;
+
+        int width = Integer.highestOneBit(Math.max(16, this.capacity * 4) - 1) << 1;
+        this.sketch = new byte[SKETCH_DEPTH][width];
+        this.sketchMask = width - 1;
+        this.resetThreshold = this.capacity * 10;
+    }
+
+    /**
+     * Gets a cached entry, counting the request towards the player's frequency.
+     */
+    @Nullable
+    public synchronized PlayerData get(@Nonnull UUID playerUuid) {
+        recordAccess(playerUuid);
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(playerUuid);
+        if (entry == null || now - entry.lastAccess > ttlMs) {
+            if (entry != null) {
+                evict(playerUuid, entries.remove(playerUuid));
+            }
+            misses.increment();
+            return null;
+        }
+        entry.lastAccess = now;
+        hits.increment();
+        return entry.data;
+    }
+
+    /**
+     * Offers freshly loaded or demoted data to the cache. If another thread cached the same player
+     * in the meantime, that instance wins so no one mutates a copy that's about to be dropped.
+     * A dirty entry that isn't admitted is written back immediately.
+     *
+     * @return the instance callers should use
+     */
+    @Nonnull
+    public synchronized PlayerData putIfAbsent(@Nonnull UUID playerUuid, @Nonnull PlayerData data, boolean dirty) {
+        long now = System.currentTimeMillis();
+        expire(now);
+
+        Entry existing = entries.get(playerUuid);
+        if (existing != null) {
+            existing.lastAccess = now;
+            return existing.data;
+        }
+
+        if (entries.size() >= capacity) {
+            Map.Entry<UUID, Entry> victim = entries.entrySet().iterator().next();
+            if (frequency(playerUuid) <= frequency(victim.getKey())) {
+                if (dirty) {
+                    writeBack.accept(playerUuid, data);
+                }
+                return data;
+            }
+            entries.remove(victim.getKey());
+            evict(victim.getKey(), victim.getValue());
+        }
+
+        entries.put(playerUuid, new Entry(data, now, dirty));
+        return data;
+    }
+
+    /**
+     * Removes an entry without writing it back (e.g. the player came online and took it over).
+     */
+    @Nullable
+    public synchronized PlayerData remove(@Nonnull UUID playerUuid) {
+        Entry entry = entries.remove(playerUuid);
+        return entry != null ? entry.data : null;
+    }
+
+    /**
+     * Flags a cached entry as modified.
+     *
+     * @return false if the player isn't cached, in which case the caller must persist the change itself
+     */
+    public synchronized boolean markDirty(@Nonnull UUID playerUuid) {
+        Entry entry = entries.get(playerUuid);
+        if (entry == null) {
+            return false;
+        }
+        entry.dirty = true;
+        return true;
+    }
+
+    /**
+     * Empties the cache, handing back the entries that still need to be written
+     * instead of passing them to the write-back callback.
+     */
+    @Nonnull
+    public synchronized Map<UUID, PlayerData> drainDirty() {
+        Map<UUID, PlayerData> dirty = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().dirty) {
+                dirty.put(entry.getKey(), entry.getValue().data);
+            }
+        }
+        entries.clear();
+        return dirty;
+    }
+
+    // Stats
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Fraction of lookups served from the cache, between 0 and 1.
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    // Internals
+
+    private void expire(long now) {
+        // Access order means the stalest entries come first
+        Iterator<Map.Entry<UUID, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Entry> entry = iterator.next();
+            if (now - entry.getValue().lastAccess <= ttlMs) {
+                break;
+            }
+            iterator.remove();
+            evict(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void evict(@Nonnull UUID playerUuid, @Nonnull Entry entry) {
+        evictions.increment();
+        if (entry.dirty) {
+            writeBack.accept(playerUuid, entry.data);
+        }
+    }
+
+    private void recordAccess(@Nonnull UUID playerUuid) {
+        int hash = spread(playerUuid);
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            int index = indexOf(hash, row);
+            if (sketch[row][index] < MAX_FREQUENCY) {
+                sketch[row][index]++;
+            }
+        }
+
+        if (++sketchAdditions >= resetThreshold) {
+            // Halve every counter so popularity from long ago stops counting
+            for (byte[] counters : sketch) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] = (byte) (counters[i] >> 1);
+                }
+            }
+            sketchAdditions /= 2;
+        }
+    }
+
+    private int frequency(@Nonnull UUID playerUuid) {
+        int hash = spread(playerUuid);
+        int min = MAX_FREQUENCY;
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            min = Math.min(min, sketch[row][indexOf(hash, row)]);
+        }
+        return min;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * 0x45D9F3B;
+        return (h ^ (h >>> 16)) & sketchMask;
+    }
+
+    private static int spread(@Nonnull UUID uuid) {
+        long bits = uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits();
+        return (int) (bits ^ (bits >>> 32));
+    }
+}
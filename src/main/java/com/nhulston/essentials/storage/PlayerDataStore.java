@@ -0,0 +1,71 @@
+package com.nhulston.essentials.storage;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Backend that persists serialized player data, keyed by player UUID.
+ * Implementations only deal with raw bytes; serialization stays in StorageManager.
+ */
+public interface PlayerDataStore {
+
+    /**
+     * Reads the stored bytes for a player, or null if nothing is stored.
+     */
+    @Nullable
+    byte[] read(@Nonnull UUID playerUuid) throws IOException;
+
+    /**
+     * Reads the player's bytes on the I/O threads, after any write already queued for them.
+     */
+    @Nonnull
+    CompletableFuture<byte[]> readAsync(@Nonnull UUID playerUuid);
+
+    /**
+     * Reads the copy that was current before the last write, or null if none is kept.
+     * Used when the current copy turns out to be damaged.
+     */
+    @Nullable
+    byte[] readPrevious(@Nonnull UUID playerUuid) throws IOException;
+
+    /**
+     * Moves the player's current (damaged) copy into the quarantine folder and makes the
+     * previous copy current again, if there is one. Must run in the player's lane.
+     */
+    void quarantine(@Nonnull UUID playerUuid, @Nonnull Path quarantineFolder) throws IOException;
+
+    /**
+     * Runs a task in the player's lane, ordered with their reads and writes.
+     */
+    @Nonnull
+    <T> CompletableFuture<T> supply(@Nonnull UUID playerUuid, @Nonnull StorageExecutor.IoSupplier<T> task);
+
+    /**
+     * Queues a write of the player's bytes. Writes for the same player are applied in order.
+     */
+    @Nonnull
+    CompletableFuture<Void> write(@Nonnull UUID playerUuid, @Nonnull byte[] content);
+
+    /**
+     * Writes the player's bytes on the calling thread. Used for bulk operations like migration.
+     */
+    void writeNow(@Nonnull UUID playerUuid, @Nonnull byte[] content) throws IOException;
+
+    boolean exists(@Nonnull UUID playerUuid);
+
+    /**
+     * Gets every player that has data stored.
+     */
+    @Nonnull
+    Collection<UUID> getPlayerUuids();
+
+    /**
+     * Releases file handles. Pending writes must already be flushed by the I/O executor.
+     */
+    void close();
+}
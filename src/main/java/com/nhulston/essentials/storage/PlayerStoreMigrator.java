@@ -0,0 +1,107 @@
+package com.nhulston.essentials.storage;
+
+import com.nhulston.essentials.util.Log;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Migrates player data between the per-player files and another {@link PlayerDataStore}.
+ * <p>
+ * A marker in the other store's folder means it holds the newest data. Moving to the other
+ * store copies the files over once and writes the marker; moving back to the files copies
+ * the other store back and removes the marker, so a later switch copies the files again
+ * instead of serving what the other store had before.
+ */
+public final class PlayerStoreMigrator {
+    private static final String MARKER_FILE = ".migrated";
+
+    private PlayerStoreMigrator() {
+    }
+
+    /**
+     * Streams every player in the source store into the target store, unless the
+     * target folder already carries the migration marker.
+     */
+    public static void migrate(@Nonnull PlayerDataStore source, @Nonnull Path targetFolder, @Nonnull PlayerDataStore target) {
+        Path marker = targetFolder.resolve(MARKER_FILE);
+        if (Files.exists(marker)) {
+            return;
+        }
+        if (!copyAll(source, target)) {
+            // Leave the marker off so the next startup retries the whole folder
+            return;
+        }
+
+        try {
+            Files.writeString(marker, String.valueOf(System.currentTimeMillis()));
+        } catch (IOException e) {
+            Log.error("Failed to write migration marker: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Whether a store's folder carries the migration marker, i.e. it has newer data than the
+     * player files.
+     */
+    public static boolean isMigrated(@Nonnull Path folder) {
+        return Files.exists(folder.resolve(MARKER_FILE));
+    }
+
+    /**
+     * Streams every player in a migrated store back into the target store, then removes the
+     * source folder's marker.
+     */
+    public static void migrateBack(@Nonnull PlayerDataStore source, @Nonnull Path sourceFolder,
+                                   @Nonnull PlayerDataStore target) {
+        Path marker = sourceFolder.resolve(MARKER_FILE);
+        if (!Files.exists(marker) || !copyAll(source, target)) {
+            // Keep the marker so the next startup retries the whole store
+            return;
+        }
+
+        try {
+            Files.delete(marker);
+        } catch (IOException e) {
+            Log.error("Failed to remove migration marker: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return false if any player failed to copy
+     */
+    private static boolean copyAll(@Nonnull PlayerDataStore source, @Nonnull PlayerDataStore target) {
+        Collection<UUID> players = source.getPlayerUuids();
+        if (!players.isEmpty()) {
+            Log.info("Migrating " + players.size() + " player file(s) to the new storage backend...");
+        }
+
+        int migrated = 0;
+        int failed = 0;
+        for (UUID playerUuid : players) {
+            try {
+                byte[] bytes = source.read(playerUuid);
+                if (bytes != null) {
+                    target.writeNow(playerUuid, bytes);
+                    migrated++;
+                }
+            } catch (IOException e) {
+                Log.warning("Failed to migrate player data for " + playerUuid + ": " + e.getMessage());
+                failed++;
+            }
+        }
+
+        if (failed > 0) {
+            Log.error("Player data migration incomplete: " + failed + " file(s) failed.");
+            return false;
+        }
+        if (migrated > 0) {
+            Log.info("Migrated " + migrated + " player file(s).");
+        }
+        return true;
+    }
+}
@@ -0,0 +1,91 @@
+package com.nhulston.essentials.storage;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Wraps stored player data with a generation number and a checksum, so a damaged copy is
+ * detected on load instead of decoding into garbage or an empty player.
+ * <p>
+ * Layout: {@code magic(2) version(1) generation(8) length(4) crc32(4) payload}. The CRC covers
+ * the generation, the length and the payload. Data written before envelopes existed (bare
+ * {@link BinaryCodec} output or legacy JSON) is accepted unchecked as generation 0.
+ */
+public final class RecordEnvelope {
+    private static final byte MAGIC_0 = (byte) 0xE5;
+    private static final byte MAGIC_1 = (byte) 0x43;
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 19;
+
+    /**
+     * @param generation how many saves produced this copy; grows across restarts
+     * @param checked    false for data from before envelopes, which has no checksum
+     */
+    public record Unwrapped(long generation, @Nonnull byte[] payload, boolean checked) {
+    }
+
+    private RecordEnvelope() {
+    }
+
+    @Nonnull
+    public static byte[] wrap(long generation, @Nonnull byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.put(MAGIC_0);
+        buffer.put(MAGIC_1);
+        buffer.put(VERSION);
+        buffer.putLong(generation);
+        buffer.putInt(payload.length);
+        buffer.putInt(0); // crc placeholder
+        buffer.put(payload);
+        buffer.putInt(15, checksum(buffer.array(), payload.length));
+        return buffer.array();
+    }
+
+    /**
+     * Verifies and strips the envelope.
+     *
+     * @throws CorruptDataException if the envelope is truncated or its checksum doesn't match
+     */
+    @Nonnull
+    public static Unwrapped unwrap(@Nonnull byte[] bytes) throws IOException {
+        if (bytes.length < 2 || bytes[0] != MAGIC_0 || bytes[1] != MAGIC_1) {
+            if (bytes.length == 0) {
+                throw new CorruptDataException("Empty data file");
+            }
+            return new Unwrapped(0, bytes, false);
+        }
+        if (bytes.length < HEADER_SIZE) {
+            throw new CorruptDataException("Truncated record header");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte version = buffer.get(2);
+        if (version > VERSION) {
+            // Written by a newer plugin version, not damaged
+            throw new IOException("Record version " + version + " is newer than supported (" + VERSION + ")");
+        }
+        long generation = buffer.getLong(3);
+        int length = buffer.getInt(11);
+        int crc = buffer.getInt(15);
+        if (length != bytes.length - HEADER_SIZE) {
+            throw new CorruptDataException("Record length " + length + " doesn't match the "
+                    + (bytes.length - HEADER_SIZE) + " byte(s) stored");
+        }
+        if (checksum(bytes, length) != crc) {
+            throw new CorruptDataException("Checksum mismatch in generation " + generation);
+        }
+
+        byte[] payload = new byte[length];
+        System.arraycopy(bytes, HEADER_SIZE, payload, 0, length);
+        return new Unwrapped(generation, payload, true);
+    }
+
+    private static int checksum(@Nonnull byte[] record, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 3, 12);
+        crc.update(record, HEADER_SIZE, length);
+        return (int) crc.getValue();
+    }
+}
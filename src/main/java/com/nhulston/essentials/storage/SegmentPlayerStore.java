@@ -0,0 +1,606 @@
+package com.nhulston.essentials.storage;
+
+import com.nhulston.essentials.util.Log;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Log-structured player store: all players live in a handful of append-only segment files
+ * instead of one file per UUID.
+ * <p>
+ * Record layout: {@code magic(4) crc32(4) uuid(16) flags(1) length(4) payload(length)}.
+ * The CRC covers everything after itself. Saving a player appends a new record and points the
+ * in-memory index at it; the old record becomes garbage. Segments whose live data drops below
+ * half their size are compacted in the background by copying live records into the active
+ * segment and deleting the old file.
+ * <p>
+ * On startup every segment is scanned to rebuild the index. A torn record at the tail of the
+ * newest segment (crash mid-append) is truncated away. A damaged record followed by valid ones
+ * (a bit flip mid-file) is skipped instead, so the records after it are kept.
+ * <p>
+ * The record each save replaced stays readable as the previous generation until compaction
+ * removes its segment, so a damaged record can fall back one save.
+ */
+public class SegmentPlayerStore implements PlayerDataStore {
+    private static final int MAGIC = 0x45535047; // "ESPG"
+    private static final int HEADER_SIZE = 29;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+    private static final long MAX_SEGMENT_SIZE = 16L * 1024 * 1024;
+    private static final double MIN_LIVE_RATIO = 0.5;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private record Location(int segmentId, long offset, int length) {
+        long recordSize() {
+            return HEADER_SIZE + (long) length;
+        }
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private long size;
+        private long liveBytes;
+
+        private Segment(int id, @Nonnull Path path, @Nonnull FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+
+    private final Path folder;
+    private final StorageExecutor ioExecutor;
+    private final StorageMetrics metrics;
+    private final ConcurrentHashMap<UUID, Location> index = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Location> replaced = new ConcurrentHashMap<>();  // previous generation
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean compactionQueued = new AtomicBoolean(false);
+    private Segment active;
+
+    public SegmentPlayerStore(@Nonnull Path folder, @Nonnull StorageExecutor ioExecutor,
+                              @Nonnull StorageMetrics metrics) throws IOException {
+        this.folder = folder;
+        this.ioExecutor = ioExecutor;
+        this.metrics = metrics;
+        Files.createDirectories(folder);
+        open();
+        scheduleCompactionIfNeeded();
+    }
+
+    @Nullable
+    @Override
+    public byte[] read(@Nonnull UUID playerUuid) throws IOException {
+        lock.readLock().lock();
+        try {
+            // Looked up under the lock so compaction can't delete the segment in between
+            Location location = index.get(playerUuid);
+            if (location == null) {
+                return null;
+            }
+            Segment segment = segments.get(location.segmentId());
+            if (segment == null) {
+                throw new IOException("Missing segment " + location.segmentId() + " for " + playerUuid);
+            }
+            return readPayload(segment, location, playerUuid);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<byte[]> readAsync(@Nonnull UUID playerUuid) {
+        return supply(playerUuid, () -> read(playerUuid));
+    }
+
+    @Nullable
+    @Override
+    public byte[] readPrevious(@Nonnull UUID playerUuid) throws IOException {
+        lock.readLock().lock();
+        try {
+            Location location = replaced.get(playerUuid);
+            Segment segment = location != null ? segments.get(location.segmentId()) : null;
+            return segment != null ? readPayload(segment, location, playerUuid) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Saves the damaged record to the quarantine folder and appends the previous generation
+     * again, so it's also the newest record when the segments are scanned on the next start.
+     */
+    @Override
+    public void quarantine(@Nonnull UUID playerUuid, @Nonnull Path quarantineFolder) throws IOException {
+        boolean rolled = false;
+        lock.writeLock().lock();
+        try {
+            Location location = index.get(playerUuid);
+            Segment segment = location != null ? segments.get(location.segmentId()) : null;
+            if (segment == null) {
+                return;
+            }
+
+            // The raw record, header included, for inspection
+            ByteBuffer record = ByteBuffer.allocate((int) location.recordSize());
+            int read = readFully(segment.channel, record, location.offset());
+            Files.createDirectories(quarantineFolder);
+            Files.write(quarantineFolder.resolve(System.currentTimeMillis() + "-" + playerUuid + ".rec"),
+                    Arrays.copyOf(record.array(), read));
+
+            byte[] previous = null;
+            Location older = replaced.remove(playerUuid);
+            Segment olderSegment = older != null ? segments.get(older.segmentId()) : null;
+            if (olderSegment != null) {
+                try {
+                    previous = readPayload(olderSegment, older, playerUuid);
+                } catch (CorruptDataException e) {
+                    Log.warning("Previous record for " + playerUuid + " is damaged too: " + e.getMessage());
+                }
+            }
+
+            if (previous != null) {
+                rolled = append(playerUuid, previous);
+                active.channel.force(false);
+                replaced.remove(playerUuid);  // Would point at the damaged record
+            } else {
+                index.remove(playerUuid);
+                segment.liveBytes -= location.recordSize();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (rolled) {
+            scheduleCompactionIfNeeded();
+        }
+    }
+
+    @Nonnull
+    @Override
+    public <T> CompletableFuture<T> supply(@Nonnull UUID playerUuid, @Nonnull StorageExecutor.IoSupplier<T> task) {
+        return ioExecutor.supply(lane(playerUuid), task);
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<Void> write(@Nonnull UUID playerUuid, @Nonnull byte[] content) {
+        // One lane per player, so a queued save is superseded by a newer one
+        return ioExecutor.write(lane(playerUuid), content, (_, bytes) -> writeNow(playerUuid, bytes));
+    }
+
+    @Override
+    public void writeNow(@Nonnull UUID playerUuid, @Nonnull byte[] content) throws IOException {
+        boolean rolled;
+        lock.writeLock().lock();
+        try {
+            rolled = append(playerUuid, content);
+            active.channel.force(false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (rolled) {
+            scheduleCompactionIfNeeded();
+        }
+    }
+
+    @Override
+    public boolean exists(@Nonnull UUID playerUuid) {
+        return index.containsKey(playerUuid);
+    }
+
+    @Nonnull
+    @Override
+    public Collection<UUID> getPlayerUuids() {
+        return List.copyOf(index.keySet());
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments.values()) {
+                try {
+                    segment.channel.close();
+                } catch (IOException e) {
+                    Log.warning("Failed to close player segment " + segment.path.getFileName() + ": " + e.getMessage());
+                }
+            }
+            segments.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Startup
+
+    private void open() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    ids.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours
+                }
+            }
+        }
+        ids.sort(null);
+
+        for (int i = 0; i < ids.size(); i++) {
+            Segment segment = openSegment(ids.get(i));
+            segments.put(segment.id, segment);
+            scanSegment(segment, i == ids.size() - 1);
+        }
+
+        if (segments.isEmpty()) {
+            Segment segment = openSegment(1);
+            segments.put(segment.id, segment);
+        }
+        active = segments.lastEntry().getValue();
+
+        Log.info("Loaded " + index.size() + " player record(s) from " + segments.size() + " segment(s).");
+    }
+
+    @Nonnull
+    private Segment openSegment(int id) throws IOException {
+        Path path = folder.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        Segment segment = new Segment(id, path, channel);
+        segment.size = channel.size();
+        return segment;
+    }
+
+    private void scanSegment(@Nonnull Segment segment, boolean newest) throws IOException {
+        long fileSize = segment.channel.size();
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("Player segment " + segment.path.getFileName() + " is too large to scan");
+        }
+        byte[] data = new byte[(int) fileSize];
+        int read = readFully(segment.channel, ByteBuffer.wrap(data), 0);
+        if (read < data.length) {
+            data = Arrays.copyOf(data, read);
+        }
+
+        int end = parseRecords(data, new RecordVisitor() {
+            @Override
+            public void record(@Nonnull UUID uuid, int offset, int length) {
+                track(uuid, new Location(segment.id, offset, length), segment);
+            }
+
+            @Override
+            public void skipped(int from, int to) {
+                Log.error("Skipped " + (to - from) + " byte(s) of damaged data in " + segment.path.getFileName()
+                        + " at offset " + from + "; the records after it were kept.");
+            }
+        });
+
+        if (end < fileSize) {
+            if (newest) {
+                Log.warning("Truncating " + (fileSize - end) + " byte(s) of incomplete data from "
+                        + segment.path.getFileName() + ".");
+                segment.channel.truncate(end);
+                segment.channel.force(true);
+            } else {
+                Log.error("Corrupt record in " + segment.path.getFileName() + " at offset " + end
+                        + ", ignoring the rest of the segment.");
+            }
+        }
+        segment.size = end;
+    }
+
+    // Writing
+
+    /**
+     * Appends a record to the active segment and repoints the index. Caller holds the write lock.
+     *
+     * @return true if a new segment was started
+     */
+    private boolean append(@Nonnull UUID playerUuid, @Nonnull byte[] content) throws IOException {
+        if (content.length > MAX_RECORD_SIZE) {
+            throw new IOException("Player data for " + playerUuid + " is too large (" + content.length + " bytes)");
+        }
+
+        boolean rolled = false;
+        if (active.size > 0 && active.size + HEADER_SIZE + content.length > MAX_SEGMENT_SIZE) {
+            active.channel.force(false);
+            active = openSegment(active.id + 1);
+            segments.put(active.id, active);
+            rolled = true;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + content.length);
+        buffer.putInt(MAGIC);
+        buffer.putInt(0); // crc placeholder
+        buffer.putLong(playerUuid.getMostSignificantBits());
+        buffer.putLong(playerUuid.getLeastSignificantBits());
+        buffer.put((byte) 0);
+        buffer.putInt(content.length);
+        buffer.put(content);
+        buffer.putInt(4, checksum(buffer.array(), 0, content.length));
+        buffer.flip();
+
+        long position = active.size;
+        while (buffer.hasRemaining()) {
+            active.channel.write(buffer, position + buffer.position());
+        }
+
+        Location location = new Location(active.id, position, content.length);
+        active.size += location.recordSize();
+        metrics.recordBytes(StorageMetrics.FileType.PLAYER, location.recordSize());
+        track(playerUuid, location, active);
+        return rolled;
+    }
+
+    private void track(@Nonnull UUID playerUuid, @Nonnull Location location, @Nonnull Segment segment) {
+        Location previous = index.put(playerUuid, location);
+        if (previous != null) {
+            replaced.put(playerUuid, previous);
+            Segment old = segments.get(previous.segmentId());
+            if (old != null) {
+                old.liveBytes -= previous.recordSize();
+            }
+        }
+        segment.liveBytes += location.recordSize();
+    }
+
+    // Compaction
+
+    private void scheduleCompactionIfNeeded() {
+        if (!hasCompactionCandidate() || !compactionQueued.compareAndSet(false, true)) {
+            return;
+        }
+        ioExecutor.execute(folder.resolve("compaction"), () -> {
+            compactionQueued.set(false);
+            compact();
+        });
+    }
+
+    private boolean hasCompactionCandidate() {
+        lock.readLock().lock();
+        try {
+            return !findCompactionCandidates().isEmpty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Nonnull
+    private List<Segment> findCompactionCandidates() {
+        List<Segment> candidates = new ArrayList<>();
+        for (Segment segment : segments.values()) {
+            if (segment != active && segment.liveBytes < segment.size * MIN_LIVE_RATIO) {
+                candidates.add(segment);
+            }
+        }
+        return candidates;
+    }
+
+    private void compact() throws IOException {
+        List<Segment> candidates;
+        lock.readLock().lock();
+        try {
+            candidates = findCompactionCandidates();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        for (Segment segment : candidates) {
+            int moved = 0;
+            for (Map.Entry<UUID, Location> entry : index.entrySet()) {
+                if (entry.getValue().segmentId() != segment.id) {
+                    continue;
+                }
+
+                // One record per lock hold so reads and saves aren't stalled for the whole segment
+                lock.writeLock().lock();
+                try {
+                    Location location = index.get(entry.getKey());
+                    if (location != null && location.segmentId() == segment.id) {
+                        // A moved record isn't a new generation, so keep the real previous one
+                        Location previous = replaced.get(entry.getKey());
+                        append(entry.getKey(), readPayload(segment, location, entry.getKey()));
+                        if (previous != null) {
+                            replaced.put(entry.getKey(), previous);
+                        } else {
+                            replaced.remove(entry.getKey());
+                        }
+                        moved++;
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+
+            lock.writeLock().lock();
+            try {
+                active.channel.force(false);
+                segments.remove(segment.id);
+                segment.channel.close();
+                Files.deleteIfExists(segment.path);
+                replaced.values().removeIf(location -> location.segmentId() == segment.id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Log.info("Compacted player segment " + segment.path.getFileName() + " (" + moved + " live record(s) moved).");
+        }
+    }
+
+    // Helpers
+
+    @Nonnull
+    private Path lane(@Nonnull UUID playerUuid) {
+        return folder.resolve(playerUuid.toString());
+    }
+
+    @Nonnull
+    private byte[] readPayload(@Nonnull Segment segment, @Nonnull Location location, @Nonnull UUID playerUuid)
+            throws IOException {
+        ByteBuffer record = ByteBuffer.allocate((int) location.recordSize());
+        if (readFully(segment.channel, record, location.offset()) < record.capacity()) {
+            throw new CorruptDataException("Truncated record for " + playerUuid);
+        }
+
+        byte[] bytes = record.array();
+        byte[] payload = new byte[location.length()];
+        System.arraycopy(bytes, HEADER_SIZE, payload, 0, payload.length);
+        if (record.getInt(0) != MAGIC || record.getInt(4) != checksum(bytes, 0, payload.length)) {
+            throw new CorruptDataException("Checksum mismatch in record for " + playerUuid);
+        }
+        return payload;
+    }
+
+    // Reading segments outside the store (backups)
+
+    /**
+     * Parses the id out of a segment file name.
+     *
+     * @return the id, or -1 if it isn't a segment file
+     */
+    public static int segmentId(@Nonnull String fileName) {
+        if (!fileName.startsWith(SEGMENT_PREFIX) || !fileName.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Finds the last valid record for a player in a whole segment file, skipping damaged records
+     * like the startup scan does.
+     *
+     * @return the payload, or null if the segment holds no record for the player
+     */
+    @Nullable
+    public static byte[] findLatestRecord(@Nonnull byte[] segment, @Nonnull UUID playerUuid) {
+        byte[][] latest = new byte[1][];
+        parseRecords(segment, (uuid, offset, length) -> {
+            if (uuid.equals(playerUuid)) {
+                latest[0] = Arrays.copyOfRange(segment, offset + HEADER_SIZE, offset + HEADER_SIZE + length);
+            }
+        });
+        return latest[0];
+    }
+
+    /**
+     * Receives the records found by {@link #parseRecords}.
+     */
+    interface RecordVisitor {
+        void record(@Nonnull UUID uuid, int offset, int length);
+
+        /**
+         * Called for a damaged range that was skipped because a valid record follows it.
+         */
+        default void skipped(int from, int to) {
+        }
+    }
+
+    /**
+     * Walks the records of a segment. A damaged record is skipped up to the next valid record
+     * header, so one bad record doesn't hide the ones after it; if no valid record follows, the
+     * walk ends there.
+     *
+     * @return the offset where trailing damaged or incomplete data starts, or the data length
+     */
+    static int parseRecords(@Nonnull byte[] data, @Nonnull RecordVisitor visitor) {
+        int position = 0;
+        while (position < data.length) {
+            int length = validRecordLength(data, position);
+            if (length >= 0) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                UUID uuid = new UUID(buffer.getLong(position + 8), buffer.getLong(position + 16));
+                visitor.record(uuid, position, length);
+                position += HEADER_SIZE + length;
+                continue;
+            }
+
+            int next = findNextRecord(data, position + 1);
+            if (next < 0) {
+                return position;
+            }
+            visitor.skipped(position, next);
+            position = next;
+        }
+        return position;
+    }
+
+    /**
+     * Gets the payload length of the record at an offset if the record is whole and its
+     * checksum matches.
+     *
+     * @return the payload length, or -1 if there's no valid record there
+     */
+    private static int validRecordLength(@Nonnull byte[] data, int offset) {
+        if (data.length - offset < HEADER_SIZE) {
+            return -1;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int length = buffer.getInt(offset + 25);
+        if (buffer.getInt(offset) != MAGIC || length < 0 || length > MAX_RECORD_SIZE
+                || length > data.length - offset - HEADER_SIZE) {
+            return -1;
+        }
+        return buffer.getInt(offset + 4) == checksum(data, offset, length) ? length : -1;
+    }
+
+    private static int findNextRecord(@Nonnull byte[] data, int from) {
+        for (int offset = from; offset <= data.length - HEADER_SIZE; offset++) {
+            if (validRecordLength(data, offset) >= 0) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * CRC32 over the header fields after the checksum, followed by the payload, of the record
+     * starting at the given offset.
+     */
+    private static int checksum(@Nonnull byte[] record, int offset, int payloadLength) {
+        CRC32 crc = new CRC32();
+        crc.update(record, offset + 8, HEADER_SIZE - 8 + payloadLength);
+        return (int) crc.getValue();
+    }
+
+    private static int readFully(@Nonnull FileChannel channel, @Nonnull ByteBuffer buffer, long position)
+            throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+}
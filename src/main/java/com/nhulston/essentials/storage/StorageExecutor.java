@@ -0,0 +1,413 @@
+package com.nhulston.essentials.storage;
+
+import com.nhulston.essentials.util.Log;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dedicated executor for plugin disk I/O.
+ * <p>
+ * Every file gets its own serialized lane, so writes to the same file always land in the order
+ * they were submitted. A whole-file write that is still queued behind another one is replaced
+ * by the newer content instead of being written twice.
+ * <p>
+ * I/O never runs on the submitting thread, which is often a world thread. When more than
+ * {@code maxQueuedLanes} lanes are waiting for a thread, the backlog is logged as a warning
+ * (at most once a minute) instead of being pushed back onto the caller.
+ * <p>
+ * {@link #fence} briefly pauses writes in all lanes between operations, e.g. so a backup sees no
+ * file mid-write. Reads ({@link #supply}) keep running while fenced unless a write is queued
+ * ahead of them in their lane, so a player load isn't held up for the length of a backup.
+ * Writes submitted while fenced are queued and run once the fence is lifted.
+ * <p>
+ * One timer thread is shared by every storage component that needs a delay or a period (the
+ * warp save window, the metrics tick), see {@link #schedule}.
+ */
+public class StorageExecutor {
+
+    /**
+     * An ordered I/O operation that must run after everything queued before it for the same file.
+     */
+    @FunctionalInterface
+    public interface IoTask {
+        void run() throws IOException;
+    }
+
+    /**
+     * An I/O operation that produces a value, such as a read.
+     */
+    @FunctionalInterface
+    public interface IoSupplier<T> {
+        T get() throws IOException;
+    }
+
+    /**
+     * Persists the latest content for a lane key. Defaults to {@link AtomicFiles#write}.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(@Nonnull Path key, @Nonnull byte[] content) throws IOException;
+    }
+
+    private static final long BACKLOG_WARNING_INTERVAL_MS = 60_000;
+
+    private final ThreadPoolExecutor pool;
+    private final ScheduledThreadPoolExecutor timer;
+    private final int maxQueuedLanes;
+    private long lastBacklogWarning;
+    private final Map<Path, Lane> lanes = new HashMap<>();
+    private final List<Lane> parked = new ArrayList<>();
+    private int pendingOps;
+    private int peakPendingOps;  // deepest since the last takePeakPendingCount
+    private int runningWrites;
+    private boolean fenced;
+    private boolean shutdown;
+
+    public StorageExecutor(int threads, int maxQueuedLanes) {
+        AtomicInteger threadId = new AtomicInteger();
+        int poolSize = Math.max(1, threads);
+        this.maxQueuedLanes = Math.max(1, maxQueuedLanes);
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "Essentials-IO-" + threadId.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // The queue is unbounded, so this only happens once the pool is shut down
+                (lane, _) -> lane.run());
+        this.pool.allowCoreThreadTimeOut(true);
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "Essentials-StorageTimer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Atomically replaces the file with the given content.
+     * If an earlier write to the same file hasn't started yet, it is superseded by this one.
+     */
+    @Nonnull
+    public CompletableFuture<Void> write(@Nonnull Path file, @Nonnull byte[] content) {
+        return write(file, content, AtomicFiles::write);
+    }
+
+    /**
+     * Same as {@link #write(Path, byte[])}, but hands the content to a custom writer.
+     * The key only identifies the lane and doesn't have to be a real file.
+     */
+    @Nonnull
+    public CompletableFuture<Void> write(@Nonnull Path key, @Nonnull byte[] content, @Nonnull ContentWriter writer) {
+        return submit(key, new Op(key, content, writer, null, false));
+    }
+
+    /**
+     * Runs a task in the file's lane. Unlike {@link #write}, tasks are never merged -
+     * use this for read-modify-write operations such as appending to a file.
+     */
+    @Nonnull
+    public CompletableFuture<Void> execute(@Nonnull Path file, @Nonnull IoTask task) {
+        return submit(file, new Op(file, null, null, task, false));
+    }
+
+    /**
+     * Runs a read in the file's lane, so it sees every write queued before it.
+     */
+    @Nonnull
+    public <T> CompletableFuture<T> supply(@Nonnull Path file, @Nonnull IoSupplier<T> supplier) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        submit(file, new Op(file, null, null, () -> result.complete(supplier.get()), true)).whenComplete((_, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Raises the number of I/O threads, e.g. to flush everything in parallel on shutdown.
+     */
+    public void ensureThreads(int threads) {
+        if (threads > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(threads);
+            pool.setCorePoolSize(threads);
+        }
+    }
+
+    /**
+     * Gets the number of operations queued or running.
+     */
+    public synchronized int getPendingCount() {
+        return pendingOps;
+    }
+
+    /**
+     * Gets the most operations that were queued or running at once since the last call, then
+     * starts tracking again from the current count.
+     */
+    public synchronized int takePeakPendingCount() {
+        int peak = peakPendingOps;
+        peakPendingOps = pendingOps;
+        return peak;
+    }
+
+    /**
+     * Pauses writes in every lane once the current operation finishes, and waits until no write
+     * is running. Must be followed by {@link #unfence}, even if this returns false.
+     *
+     * @return false if a write was still running when the timeout passed
+     */
+    public synchronized boolean fence(long timeoutMs) {
+        fenced = true;
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (runningWrites > 0) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lifts the fence and resumes the lanes that were paused.
+     */
+    public void unfence() {
+        List<Lane> resumed;
+        synchronized (this) {
+            fenced = false;
+            resumed = new ArrayList<>(parked);
+            parked.clear();
+            notifyAll();
+        }
+        for (Lane lane : resumed) {
+            pool.execute(lane);
+        }
+    }
+
+    /**
+     * Runs a task on the shared storage timer once the delay has passed. Timer tasks should
+     * only hand work to a lane, not do I/O themselves.
+     */
+    @Nonnull
+    public ScheduledFuture<?> schedule(@Nonnull Runnable task, long delay, @Nonnull TimeUnit unit) {
+        return timer.schedule(task, delay, unit);
+    }
+
+    /**
+     * Runs a task on the shared storage timer at a fixed rate, until the returned future is canceled.
+     */
+    @Nonnull
+    public ScheduledFuture<?> scheduleAtFixedRate(@Nonnull Runnable task, long period, @Nonnull TimeUnit unit) {
+        return timer.scheduleAtFixedRate(task, period, period, unit);
+    }
+
+    /**
+     * Runs a write from inside a read (e.g. moving a damaged record aside while loading it),
+     * waiting for the fence to lift first so the write can't land in the middle of a backup.
+     */
+    public void runWrite(@Nonnull IoTask task) throws IOException {
+        synchronized (this) {
+            while (fenced && !shutdown) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a storage fence");
+                }
+            }
+            runningWrites++;
+        }
+        try {
+            task.run();
+        } finally {
+            synchronized (this) {
+                runningWrites--;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting work and waits up to the deadline for queued writes to finish.
+     * Writes submitted after this point run on the calling thread.
+     *
+     * @return true if everything was flushed before the deadline
+     */
+    public boolean shutdown(long timeoutMs) {
+        synchronized (this) {
+            shutdown = true;
+        }
+        unfence();
+        timer.shutdownNow();
+        pool.shutdown();
+
+        try {
+            if (pool.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Log.error("Storage I/O did not finish within " + timeoutMs + "ms, abandoning "
+                + getPendingCount() + " pending write(s).");
+        pool.shutdownNow();
+        return false;
+    }
+
+    @Nonnull
+    private CompletableFuture<Void> submit(@Nonnull Path file, @Nonnull Op op) {
+        Lane toSchedule = null;
+        boolean queued = false;
+        synchronized (this) {
+            Lane lane = lanes.get(file);
+            if (lane == null && !shutdown) {
+                lane = new Lane(file);
+                lanes.put(file, lane);
+                if (fenced && !op.readOnly) {
+                    parked.add(lane);
+                } else {
+                    toSchedule = lane;
+                }
+            }
+
+            if (lane != null) {
+                Op tail = lane.ops.peekLast();
+                if (op.content != null && tail != null && tail.content != null) {
+                    // Not started yet, so only the newest content (and how to write it) needs to reach disk
+                    tail.content = op.content;
+                    tail.writer = op.writer;
+                    return tail.future;
+                }
+                lane.ops.addLast(op);
+                pendingOps++;
+                peakPendingOps = Math.max(peakPendingOps, pendingOps);
+                queued = true;
+            }
+        }
+
+        if (toSchedule != null) {
+            pool.execute(toSchedule);
+            warnIfBacklogged();
+        } else if (!queued) {
+            // Late write after shutdown with nothing left in flight for this file: do it on the caller
+            op.run();
+        }
+        return op.future;
+    }
+
+    private void warnIfBacklogged() {
+        int waiting = pool.getQueue().size();
+        if (waiting <= maxQueuedLanes) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (now - lastBacklogWarning < BACKLOG_WARNING_INTERVAL_MS) {
+                return;
+            }
+            lastBacklogWarning = now;
+        }
+        Log.warning("Storage I/O is falling behind: " + waiting + " file(s) are waiting for an I/O thread "
+                + "(storage.io-queue-depth is " + maxQueuedLanes + "). Consider raising storage.io-threads.");
+    }
+
+    private final class Lane implements Runnable {
+        private final Path file;
+        private final ArrayDeque<Op> ops = new ArrayDeque<>();
+
+        private Lane(@Nonnull Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Op op;
+                synchronized (StorageExecutor.this) {
+                    op = ops.peekFirst();
+                    if (op == null) {
+                        lanes.remove(file);
+                        return;
+                    }
+                    if (fenced && !op.readOnly) {
+                        // Reads behind this write wait too, so they still see it
+                        parked.add(this);
+                        return;
+                    }
+                    ops.pollFirst();
+                    if (!op.readOnly) {
+                        runningWrites++;
+                    }
+                }
+
+                try {
+                    op.run();
+                } finally {
+                    synchronized (StorageExecutor.this) {
+                        pendingOps--;
+                        if (!op.readOnly) {
+                            runningWrites--;
+                            StorageExecutor.this.notifyAll();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Op {
+        private final Path file;
+        private final IoTask task;
+        private final boolean readOnly;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private ContentWriter writer;
+        private byte[] content;
+
+        private Op(@Nonnull Path file, byte[] content, ContentWriter writer, IoTask task, boolean readOnly) {
+            this.file = file;
+            this.content = content;
+            this.writer = writer;
+            this.task = task;
+            this.readOnly = readOnly;
+        }
+
+        private void run() {
+            try {
+                if (task != null) {
+                    task.run();
+                } else {
+                    writer.write(file, content);
+                }
+                future.complete(null);
+            } catch (Exception e) {
+                Log.error("Storage I/O failed for " + file.getFileName() + ": " + e.getMessage());
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
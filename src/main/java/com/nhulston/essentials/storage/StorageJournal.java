@@ -0,0 +1,304 @@
+package com.nhulston.essentials.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.nhulston.essentials.util.Log;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only write-ahead journal for small storage mutations (homes, cooldowns, warps).
+ * <p>
+ * Callers append records from any thread. A single writer thread group-commits everything
+ * that queued up since its last write with one fsync per batch, and periodically hands the
+ * uncompacted records to a {@link Compactor} that folds them into the snapshot files.
+ * Once compaction succeeds the journal is truncated.
+ * <p>
+ * Records left in the journal after a crash are replayed through the compactor on startup.
+ */
+public class StorageJournal {
+    public static final String FILE_NAME = "journal.log";
+
+    private static final int MAX_BATCH = 512;
+    private static final int COMPACT_RECORD_THRESHOLD = 1000;
+    private static final long POLL_INTERVAL_MS = 250;
+
+    /**
+     * Folds journal records into the snapshot files they belong to.
+     */
+    @FunctionalInterface
+    public interface Compactor {
+        void compact(@Nonnull List<JournalRecord> records) throws IOException;
+    }
+
+    private final Path file;
+    private final Gson gson;
+    private final StorageMetrics metrics;
+    private final Compactor compactor;
+    private final long compactIntervalMs;
+    private final LinkedBlockingQueue<JournalRecord> queue = new LinkedBlockingQueue<>();
+    private final List<JournalRecord> uncompacted = new ArrayList<>();
+    private final List<CompletableFuture<Void>> compactRequests = new ArrayList<>();  // guarded by itself
+    private final Thread writerThread;
+
+    private volatile boolean running = true;
+    private FileChannel channel;
+    private long lastCompaction;
+
+    public StorageJournal(@Nonnull Path dataFolder, @Nonnull Gson gson, @Nonnull StorageMetrics metrics,
+                          @Nonnull Compactor compactor, int compactIntervalSeconds) {
+        this.file = dataFolder.resolve(FILE_NAME);
+        this.gson = gson;
+        this.metrics = metrics;
+        this.compactor = compactor;
+        this.compactIntervalMs = TimeUnit.SECONDS.toMillis(Math.max(1, compactIntervalSeconds));
+        this.writerThread = new Thread(this::runWriter, "Essentials-Journal");
+        this.writerThread.setDaemon(true);
+    }
+
+    /**
+     * Replays any records left over from the previous run, then starts the writer thread.
+     * Must be called before any snapshot files are read.
+     */
+    public void start() {
+        List<JournalRecord> leftover = readRecords();
+        uncompacted.addAll(leftover);
+
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            Log.error("Failed to open storage journal: " + e.getMessage());
+        }
+
+        if (!leftover.isEmpty()) {
+            Log.info("Replaying " + leftover.size() + " uncompacted journal record(s)...");
+            compact();
+        }
+
+        lastCompaction = System.currentTimeMillis();
+        writerThread.start();
+    }
+
+    /**
+     * Queues a record for the next group commit. Never blocks.
+     */
+    public void append(@Nonnull JournalRecord record) {
+        if (!running) {
+            Log.warning("Storage journal is closed, dropping " + record.getType() + " record.");
+            return;
+        }
+        queue.offer(record);
+    }
+
+    /**
+     * Commits everything appended so far and compacts it right away, instead of waiting for
+     * the next scheduled compaction. Used when the snapshot files are about to be replaced.
+     *
+     * @return completes once the journal is empty, or exceptionally if compaction failed
+     */
+    @Nonnull
+    public CompletableFuture<Void> compactNow() {
+        CompletableFuture<Void> request = new CompletableFuture<>();
+        synchronized (compactRequests) {
+            compactRequests.add(request);
+        }
+        return request;
+    }
+
+    /**
+     * Stops the writer thread after committing and compacting everything still queued.
+     *
+     * @return false if the writer didn't finish within the timeout; whatever it hadn't
+     *         compacted yet stays in the journal and is replayed on the next start
+     */
+    public boolean close(long timeoutMs) {
+        running = false;
+        try {
+            writerThread.join(Math.max(1, timeoutMs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (writerThread.isAlive()) {
+            Log.warning("Storage journal did not finish compacting within " + timeoutMs + "ms.");
+            completeCompactRequests(takeCompactRequests(), false);
+            return false;
+        }
+
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Log.warning("Failed to close storage journal: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void runWriter() {
+        List<JournalRecord> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                JournalRecord first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    writeBatch(batch);
+                    batch.clear();
+                }
+
+                List<CompletableFuture<Void>> requests = takeCompactRequests();
+                if (!requests.isEmpty()) {
+                    // Everything appended before the request is already queued, so commit it all first
+                    while (queue.drainTo(batch, MAX_BATCH) > 0) {
+                        writeBatch(batch);
+                        batch.clear();
+                    }
+                    completeCompactRequests(requests, uncompacted.isEmpty() || compact());
+                } else if (shouldCompact()) {
+                    compact();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                Log.error("Storage journal writer error: " + e.getMessage(), e);
+                batch.clear();
+            }
+        }
+
+        // Final compaction so a clean shutdown leaves an empty journal
+        boolean compacted = uncompacted.isEmpty() || compact();
+        completeCompactRequests(takeCompactRequests(), compacted);
+    }
+
+    @Nonnull
+    private List<CompletableFuture<Void>> takeCompactRequests() {
+        synchronized (compactRequests) {
+            if (compactRequests.isEmpty()) {
+                return List.of();
+            }
+            List<CompletableFuture<Void>> requests = new ArrayList<>(compactRequests);
+            compactRequests.clear();
+            return requests;
+        }
+    }
+
+    private static void completeCompactRequests(@Nonnull List<CompletableFuture<Void>> requests, boolean compacted) {
+        for (CompletableFuture<Void> request : requests) {
+            if (compacted) {
+                request.complete(null);
+            } else {
+                request.completeExceptionally(new IOException("Journal compaction failed"));
+            }
+        }
+    }
+
+    private void writeBatch(@Nonnull List<JournalRecord> batch) {
+        StringBuilder lines = new StringBuilder();
+        for (JournalRecord record : batch) {
+            lines.append(gson.toJson(record)).append('\n');
+        }
+
+        if (channel != null) {
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                metrics.recordBytes(StorageMetrics.FileType.JOURNAL, bytes.length);
+            } catch (IOException e) {
+                failed = true;
+                Log.error("Failed to write " + batch.size() + " journal record(s): " + e.getMessage());
+            }
+            metrics.recordSave(StorageMetrics.FileType.JOURNAL, start, failed);
+        }
+
+        // Keep the records for compaction even if the append failed, the in-memory state already has them
+        uncompacted.addAll(batch);
+    }
+
+    private boolean shouldCompact() {
+        if (uncompacted.isEmpty()) {
+            return false;
+        }
+        return uncompacted.size() >= COMPACT_RECORD_THRESHOLD
+                || System.currentTimeMillis() - lastCompaction >= compactIntervalMs;
+    }
+
+    /**
+     * Folds the uncompacted records into the snapshot files and truncates the journal.
+     * Only runs on the writer thread (or before it starts), so no append can interleave.
+     *
+     * @return false if the compactor failed and the records were kept for a retry
+     */
+    private boolean compact() {
+        lastCompaction = System.currentTimeMillis();
+        try {
+            compactor.compact(List.copyOf(uncompacted));
+        } catch (Exception e) {
+            Log.error("Failed to compact storage journal (will retry): " + e.getMessage());
+            return false;
+        }
+
+        uncompacted.clear();
+        if (channel != null) {
+            try {
+                channel.truncate(0);
+                channel.force(true);
+            } catch (IOException e) {
+                Log.error("Failed to truncate storage journal: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    @Nonnull
+    private List<JournalRecord> readRecords() {
+        List<JournalRecord> records = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return records;
+        }
+
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    JournalRecord record = gson.fromJson(line, JournalRecord.class);
+                    if (record != null && record.isValid()) {
+                        records.add(record);
+                    } else {
+                        Log.warning("Skipping incomplete journal record on line " + (i + 1) + ".");
+                    }
+                } catch (JsonParseException e) {
+                    // Typically a torn write at the tail after a crash
+                    Log.warning("Skipping malformed journal record on line " + (i + 1) + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            Log.error("Failed to read storage journal: " + e.getMessage());
+        }
+        return records;
+    }
+}
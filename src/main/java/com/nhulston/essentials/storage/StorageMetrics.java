@@ -0,0 +1,192 @@
+package com.nhulston.essentials.storage;
+
+import com.nhulston.essentials.util.Log;
+
+import javax.annotation.Nonnull;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Always-on storage metrics: load and save latency histograms and failure counts per file type,
+ * and bytes written. Latencies run from the request to its completion, so time spent waiting in
+ * the I/O queue is included.
+ * <p>
+ * A background tick once a minute turns the byte counter into a per-minute figure, samples the
+ * peak queue depth, and runs the periodic summary.
+ */
+public class StorageMetrics {
+
+    public enum FileType {
+        PLAYER("player"),
+        WARPS("warps"),
+        SPAWN("spawn"),
+        USERNAMES("usernames"),
+        JOURNAL("journal");
+
+        private final String label;
+
+        FileType(@Nonnull String label) {
+            this.label = label;
+        }
+
+        @Nonnull
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final Map<FileType, LatencyHistogram> loads = new EnumMap<>(FileType.class);
+    private final Map<FileType, LatencyHistogram> saves = new EnumMap<>(FileType.class);
+    private final Map<FileType, LongAdder> loadFailures = new EnumMap<>(FileType.class);
+    private final Map<FileType, LongAdder> saveFailures = new EnumMap<>(FileType.class);
+    private final Map<FileType, LongAdder> bytesWritten = new EnumMap<>(FileType.class);
+
+    private ScheduledFuture<?> ticker;
+    private long bytesAtLastTick;
+    private long minutes;
+    private volatile long bytesLastMinute;
+    private volatile int peakQueueLastMinute;
+
+    public StorageMetrics() {
+        for (FileType type : FileType.values()) {
+            loads.put(type, new LatencyHistogram());
+            saves.put(type, new LatencyHistogram());
+            loadFailures.put(type, new LongAdder());
+            saveFailures.put(type, new LongAdder());
+            bytesWritten.put(type, new LongAdder());
+        }
+    }
+
+    /**
+     * Starts the once-a-minute tick on the executor's storage timer.
+     *
+     * @param ioExecutor             sampled for its peak queue depth
+     * @param summaryIntervalMinutes how often to run the summary, 0 to never run it
+     * @param summary                logs the summary; runs on the storage timer thread
+     */
+    public synchronized void start(@Nonnull StorageExecutor ioExecutor, int summaryIntervalMinutes,
+                                   @Nonnull Runnable summary) {
+        if (ticker != null) {
+            return;
+        }
+        ticker = ioExecutor.scheduleAtFixedRate(() -> {
+            try {
+                tick(ioExecutor, summaryIntervalMinutes, summary);
+            } catch (Exception e) {
+                Log.warning("Storage metrics tick failed: " + e.getMessage());
+            }
+        }, 1, TimeUnit.MINUTES);
+    }
+
+    public synchronized void close() {
+        if (ticker != null) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+    }
+
+    private void tick(@Nonnull StorageExecutor ioExecutor, int summaryIntervalMinutes, @Nonnull Runnable summary) {
+        long total = getBytesWritten();
+        bytesLastMinute = total - bytesAtLastTick;
+        bytesAtLastTick = total;
+        peakQueueLastMinute = ioExecutor.takePeakPendingCount();
+
+        minutes++;
+        if (summaryIntervalMinutes > 0 && minutes % summaryIntervalMinutes == 0) {
+            summary.run();
+        }
+    }
+
+    // Recording
+
+    /**
+     * Records a finished load.
+     *
+     * @param startNanos {@link System#nanoTime()} when the load was requested
+     */
+    public void recordLoad(@Nonnull FileType type, long startNanos, boolean failed) {
+        loads.get(type).record(System.nanoTime() - startNanos);
+        if (failed) {
+            loadFailures.get(type).increment();
+        }
+    }
+
+    /**
+     * Records a finished save.
+     *
+     * @param startNanos {@link System#nanoTime()} when the save was requested
+     */
+    public void recordSave(@Nonnull FileType type, long startNanos, boolean failed) {
+        saves.get(type).record(System.nanoTime() - startNanos);
+        if (failed) {
+            saveFailures.get(type).increment();
+        }
+    }
+
+    /**
+     * Records a save when the returned future completes, timed from now.
+     */
+    @Nonnull
+    public <T> CompletableFuture<T> timeSave(@Nonnull FileType type, @Nonnull CompletableFuture<T> save) {
+        long start = System.nanoTime();
+        save.whenComplete((_, error) -> recordSave(type, start, error != null));
+        return save;
+    }
+
+    /**
+     * Counts bytes that actually reached a file (superseded writes that never ran aren't counted).
+     */
+    public void recordBytes(@Nonnull FileType type, long bytes) {
+        bytesWritten.get(type).add(bytes);
+    }
+
+    // Reading
+
+    @Nonnull
+    public LatencyHistogram getLoadLatency(@Nonnull FileType type) {
+        return loads.get(type);
+    }
+
+    @Nonnull
+    public LatencyHistogram getSaveLatency(@Nonnull FileType type) {
+        return saves.get(type);
+    }
+
+    public long getLoadFailures(@Nonnull FileType type) {
+        return loadFailures.get(type).sum();
+    }
+
+    public long getSaveFailures(@Nonnull FileType type) {
+        return saveFailures.get(type).sum();
+    }
+
+    public long getBytesWritten(@Nonnull FileType type) {
+        return bytesWritten.get(type).sum();
+    }
+
+    public long getBytesWritten() {
+        long total = 0;
+        for (LongAdder bytes : bytesWritten.values()) {
+            total += bytes.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Gets the bytes written during the last full minute.
+     */
+    public long getBytesLastMinute() {
+        return bytesLastMinute;
+    }
+
+    /**
+     * Gets the deepest the I/O queue got during the last full minute.
+     */
+    public int getPeakQueueLastMinute() {
+        return peakQueueLastMinute;
+    }
+}
@@ -0,0 +1,345 @@
+package com.nhulston.essentials.storage;
+
+import com.nhulston.essentials.util.Log;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Username (lowercase) to UUID index backed by a memory-mapped sorted file plus an append-only tail.
+ * <p>
+ * Lookups check the small in-memory tail first, then binary-search the mapped file, so the bulk of
+ * the index never lives on the heap. Registering a name appends one small record to the tail log.
+ * Once the tail grows past {@link #MERGE_THRESHOLD} names it is merged into a new sorted file.
+ * <p>
+ * Sorted file layout: {@code magic(4) count(4) offsets(4 * count) entries}, where each entry is
+ * {@code nameLength(2) name(UTF-8) uuid(16)} and entries are ordered by their unsigned name bytes.
+ * Every merge writes a new generation ({@code usernames-N.idx}) instead of replacing the mapped file,
+ * since a mapped file can't be replaced on every platform.
+ */
+public class UsernameIndex {
+    private static final int MAGIC = 0x45535549; // "ESUI"
+    private static final int MERGE_THRESHOLD = 1024;
+    private static final String INDEX_PREFIX = "usernames-";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String LOG_FILE = "usernames.log";
+    private static final Comparator<byte[]> UNSIGNED_ORDER = Arrays::compareUnsigned;
+
+    private final Path folder;
+    private final Path logFile;
+    private final StorageExecutor ioExecutor;
+    private final StorageMetrics metrics;
+    private final ConcurrentHashMap<String, UUID> tail = new ConcurrentHashMap<>();
+    private volatile MappedByteBuffer mapped;
+    private int generation;
+
+    public UsernameIndex(@Nonnull Path folder, @Nonnull StorageExecutor ioExecutor, @Nonnull StorageMetrics metrics) {
+        this.folder = folder;
+        this.logFile = folder.resolve(LOG_FILE);
+        this.ioExecutor = ioExecutor;
+        this.metrics = metrics;
+
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            openLatestGeneration();
+            readLog();
+        } catch (IOException e) {
+            failed = true;
+            Log.error("Failed to open username index: " + e.getMessage());
+        }
+        metrics.recordLoad(StorageMetrics.FileType.USERNAMES, start, failed);
+    }
+
+    /**
+     * Whether the index has no data on disk yet (used to decide whether to import uuids.json).
+     */
+    public boolean isEmpty() {
+        return mapped == null && tail.isEmpty();
+    }
+
+    @Nullable
+    public UUID get(@Nonnull String username) {
+        String key = username.toLowerCase();
+        UUID uuid = tail.get(key);
+        return uuid != null ? uuid : search(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Records a mapping. Costs one small log append, and nothing at all if the mapping is unchanged.
+     */
+    public void put(@Nonnull String username, @Nonnull UUID uuid) {
+        String key = username.toLowerCase();
+        if (uuid.equals(get(key))) {
+            return;
+        }
+
+        tail.put(key, uuid);
+        byte[] record = encodeLogRecord(key, uuid);
+        // Same lane as the merge, so an append never races a log truncation
+        metrics.timeSave(StorageMetrics.FileType.USERNAMES, ioExecutor.execute(logFile, () -> {
+            if (!uuid.equals(tail.get(key))) {
+                // Already merged into the sorted file, or superseded by a newer append
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            metrics.recordBytes(StorageMetrics.FileType.USERNAMES, record.length);
+            if (tail.size() >= MERGE_THRESHOLD) {
+                merge();
+            }
+        }));
+    }
+
+    /**
+     * Imports many mappings at once straight into a new sorted file.
+     */
+    public void importAll(@Nonnull Map<String, UUID> mappings) {
+        for (Map.Entry<String, UUID> entry : mappings.entrySet()) {
+            tail.put(entry.getKey().toLowerCase(), entry.getValue());
+        }
+        metrics.timeSave(StorageMetrics.FileType.USERNAMES, ioExecutor.execute(logFile, this::merge));
+    }
+
+    /**
+     * Queues a merge of the tail into the sorted file. Called on shutdown, before the I/O executor drains.
+     */
+    @Nonnull
+    public CompletableFuture<Void> flush() {
+        if (tail.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return metrics.timeSave(StorageMetrics.FileType.USERNAMES, ioExecutor.execute(logFile, this::merge));
+    }
+
+    /**
+     * Approximate number of mappings (a renamed player may be counted twice until the next merge).
+     */
+    public int size() {
+        MappedByteBuffer buffer = mapped;
+        return (buffer != null ? buffer.getInt(4) : 0) + tail.size();
+    }
+
+    // Lookup
+
+    @Nullable
+    private UUID search(@Nonnull byte[] key) {
+        MappedByteBuffer buffer = mapped;
+        if (buffer == null) {
+            return null;
+        }
+
+        int low = 0;
+        int high = buffer.getInt(4) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = buffer.getInt(8 + mid * 4);
+            int cmp = UNSIGNED_ORDER.compare(readName(buffer, offset), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                int uuidOffset = offset + 2 + (buffer.getShort(offset) & 0xFFFF);
+                return new UUID(buffer.getLong(uuidOffset), buffer.getLong(uuidOffset + 8));
+            }
+        }
+        return null;
+    }
+
+    @Nonnull
+    private static byte[] readName(@Nonnull ByteBuffer buffer, int offset) {
+        byte[] name = new byte[buffer.getShort(offset) & 0xFFFF];
+        buffer.get(offset + 2, name);
+        return name;
+    }
+
+    // Merge
+
+    /**
+     * Writes the mapped entries plus the tail into a new sorted generation, maps it, and truncates
+     * the tail log. Runs in the log file's lane.
+     */
+    private void merge() throws IOException {
+        if (tail.isEmpty()) {
+            return;
+        }
+        Map<String, UUID> merged = new ConcurrentHashMap<>(tail);
+
+        TreeMap<byte[], UUID> sorted = new TreeMap<>(UNSIGNED_ORDER);
+        MappedByteBuffer old = mapped;
+        int oldCount = old != null ? old.getInt(4) : 0;
+        for (int i = 0; i < oldCount; i++) {
+            int offset = old.getInt(8 + i * 4);
+            int uuidOffset = offset + 2 + (old.getShort(offset) & 0xFFFF);
+            sorted.put(readName(old, offset), new UUID(old.getLong(uuidOffset), old.getLong(uuidOffset + 8)));
+        }
+        for (Map.Entry<String, UUID> entry : merged.entrySet()) {
+            sorted.put(entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue());
+        }
+
+        int dataSize = 0;
+        for (byte[] name : sorted.keySet()) {
+            dataSize += 2 + name.length + 16;
+        }
+        ByteBuffer out = ByteBuffer.allocate(8 + sorted.size() * 4 + dataSize);
+        out.putInt(MAGIC);
+        out.putInt(sorted.size());
+        int offset = 8 + sorted.size() * 4;
+        for (byte[] name : sorted.keySet()) {
+            out.putInt(offset);
+            offset += 2 + name.length + 16;
+        }
+        for (Map.Entry<byte[], UUID> entry : sorted.entrySet()) {
+            out.putShort((short) entry.getKey().length);
+            out.put(entry.getKey());
+            out.putLong(entry.getValue().getMostSignificantBits());
+            out.putLong(entry.getValue().getLeastSignificantBits());
+        }
+
+        int previousGeneration = generation;
+        Path next = indexFile(previousGeneration + 1);
+        AtomicFiles.write(next, out.array());
+        metrics.recordBytes(StorageMetrics.FileType.USERNAMES, out.capacity());
+        map(next);
+        generation = previousGeneration + 1;
+
+        // Only now that lookups can see them in the mapped file may the tail entries go
+        for (Map.Entry<String, UUID> entry : merged.entrySet()) {
+            tail.remove(entry.getKey(), entry.getValue());
+        }
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(0);
+            channel.force(true);
+        }
+        deleteQuietly(indexFile(previousGeneration));
+    }
+
+    // Startup
+
+    private void openLatestGeneration() throws IOException {
+        List<Integer> generations = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, INDEX_PREFIX + "*" + INDEX_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Integer.parseInt(name.substring(INDEX_PREFIX.length(), name.length() - INDEX_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours
+                }
+            }
+        }
+        if (generations.isEmpty()) {
+            return;
+        }
+
+        generations.sort(null);
+        generation = generations.getLast();
+        map(indexFile(generation));
+
+        // Older generations whose delete failed while they were still mapped
+        for (int i = 0; i < generations.size() - 1; i++) {
+            deleteQuietly(indexFile(generations.get(i)));
+        }
+    }
+
+    private void map(@Nonnull Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < 8 || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Invalid username index file " + file.getFileName());
+            }
+            // The mapping stays valid after the channel is closed
+            mapped = buffer;
+        }
+    }
+
+    private void readLog() throws IOException {
+        if (!Files.exists(logFile)) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(logFile));
+        int records = 0;
+        while (buffer.remaining() >= 6) {
+            int start = buffer.position();
+            int crc = buffer.getInt();
+            int nameLength = buffer.getShort() & 0xFFFF;
+            if (buffer.remaining() < nameLength + 16) {
+                break;
+            }
+            byte[] name = new byte[nameLength];
+            buffer.get(name);
+            UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+            if (checksum(buffer.array(), start + 4, buffer.position() - start - 4) != crc) {
+                Log.warning("Skipping corrupt username index log record at offset " + start + ".");
+                break;
+            }
+            tail.put(new String(name, StandardCharsets.UTF_8), uuid);
+            records++;
+        }
+
+        if (records > 0) {
+            Log.info("Loaded " + records + " pending username mapping(s).");
+        }
+    }
+
+    // Helpers
+
+    @Nonnull
+    private static byte[] encodeLogRecord(@Nonnull String key, @Nonnull UUID uuid) {
+        byte[] name = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 2 + name.length + 16);
+        buffer.putInt(0); // crc placeholder
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+        buffer.putInt(0, checksum(buffer.array(), 4, buffer.capacity() - 4));
+        return buffer.array();
+    }
+
+    private static int checksum(@Nonnull byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    @Nonnull
+    private Path indexFile(int generation) {
+        return folder.resolve(INDEX_PREFIX + generation + INDEX_SUFFIX);
+    }
+
+    private static void deleteQuietly(@Nonnull Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // Still mapped on some platforms; removed on next startup
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.nhulston.essentials.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.nhulston.essentials.models.Warp;
+import com.nhulston.essentials.util.Log;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Persists warps. Changes are collected for a short window and then written together, so
+ * creating dozens of warps in a row costs one write instead of one per warp.
+ * <p>
+ * By default each write atomically replaces {@code warps.dat}. With the warp log enabled, a
+ * batch only appends the changed warps to {@code warps.log}; the log is folded into
+ * {@code warps.dat} once it holds more entries than there are warps. Log records are
+ * {@code length(4) crc32(4) payload}, and a torn record at the end is dropped on load.
+ */
+public class WarpStore {
+    private static final String WARPS_FILE = "warps.dat";
+    private static final String LEGACY_WARPS_FILE = "warps.json";
+    private static final String LOG_FILE = "warps.log";
+    private static final int MIN_FOLD_ENTRIES = 256;
+    private static final Type WARPS_TYPE = new TypeToken<Map<String, Warp>>(){}.getType();
+
+    private final Path warpsFile;
+    private final Path legacyFile;
+    private final Path logFile;
+    private final StorageExecutor ioExecutor;
+    private final StorageMetrics metrics;
+    private final Gson gson;
+    private final Supplier<Map<String, Warp>> liveWarps;
+    private final boolean useLog;
+    private final long saveDelayMs;
+
+    private final Map<String, Warp> pending = new LinkedHashMap<>();  // null value = deleted
+    private ScheduledFuture<?> scheduledFlush;
+    private int logEntries;  // only touched in the warps lane
+    private volatile boolean readOnly;  // set when the stored warps couldn't be loaded
+
+    /**
+     * @param liveWarps the in-memory warp map, used when the whole file is rewritten
+     */
+    public WarpStore(@Nonnull Path dataFolder, @Nonnull StorageExecutor ioExecutor, @Nonnull StorageMetrics metrics,
+                     @Nonnull Gson gson, @Nonnull Supplier<Map<String, Warp>> liveWarps, boolean useLog,
+                     int saveDelaySeconds) {
+        this.warpsFile = dataFolder.resolve(WARPS_FILE);
+        this.legacyFile = dataFolder.resolve(LEGACY_WARPS_FILE);
+        this.logFile = dataFolder.resolve(LOG_FILE);
+        this.ioExecutor = ioExecutor;
+        this.metrics = metrics;
+        this.gson = gson;
+        this.liveWarps = liveWarps;
+        this.useLog = useLog;
+        this.saveDelayMs = TimeUnit.SECONDS.toMillis(Math.max(0, saveDelaySeconds));
+    }
+
+    /**
+     * Reads the stored warps, including any changes still in the warp log. If that fails, the
+     * store turns read-only, so writing the (incomplete) live map can't replace what's stored.
+     */
+    @Nonnull
+    public Map<String, Warp> load() throws IOException {
+        try {
+            return read();
+        } catch (IOException | RuntimeException e) {
+            readOnly = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Checks if writes are refused because the stored warps couldn't be loaded.
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    @Nonnull
+    private Map<String, Warp> read() throws IOException {
+        Map<String, Warp> result = new HashMap<>();
+        if (Files.exists(warpsFile)) {
+            result.putAll(BinaryCodec.decodeWarps(Files.readAllBytes(warpsFile)));
+        } else if (Files.exists(legacyFile)) {
+            Map<String, Warp> loaded = gson.fromJson(Files.readString(legacyFile), WARPS_TYPE);
+            if (loaded != null) {
+                result.putAll(loaded);
+            }
+        }
+
+        // Read even when the log is turned off, so switching it off doesn't lose anything
+        if (Files.exists(logFile)) {
+            readLog(result);
+        }
+        return result;
+    }
+
+    /**
+     * Records a change to be written once the save window passes.
+     *
+     * @param warp the new warp, or null if it was deleted
+     */
+    public synchronized void changed(@Nonnull String name, @Nullable Warp warp) {
+        pending.put(name, warp);
+        if (scheduledFlush == null) {
+            scheduledFlush = ioExecutor.schedule(this::flush, saveDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes the pending changes now instead of waiting for the save window.
+     */
+    @Nonnull
+    public CompletableFuture<Void> flush() {
+        Map<String, Warp> batch;
+        synchronized (this) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            if (pending.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+        }
+        if (readOnly) {
+            return refuseWrite();
+        }
+
+        if (!useLog) {
+            return metrics.timeSave(StorageMetrics.FileType.WARPS, ioExecutor.execute(warpsFile, this::writeSnapshot));
+        }
+        byte[] record = encodeRecord(BinaryCodec.encodeWarpChanges(batch));
+        return metrics.timeSave(StorageMetrics.FileType.WARPS,
+                ioExecutor.execute(warpsFile, () -> appendToLog(record, batch.size())));
+    }
+
+    /**
+     * Writes all warps in one atomic replace and clears the log, dropping pending changes
+     * (they're already part of the live map). Used for bulk imports.
+     */
+    @Nonnull
+    public CompletableFuture<Void> writeAll() {
+        synchronized (this) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            pending.clear();
+        }
+        if (readOnly) {
+            return refuseWrite();
+        }
+        return metrics.timeSave(StorageMetrics.FileType.WARPS, ioExecutor.execute(warpsFile, this::writeSnapshot));
+    }
+
+    @Nonnull
+    private CompletableFuture<Void> refuseWrite() {
+        Log.warning("Not saving warps: " + warpsFile.getFileName() + " couldn't be loaded, so saving would overwrite it.");
+        return CompletableFuture.failedFuture(new IOException("Stored warps couldn't be loaded; fix or remove "
+                + warpsFile.getFileName() + " and restart"));
+    }
+
+    /**
+     * Cancels the pending save, if any. Call {@link #flush} first.
+     */
+    public synchronized void close() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+
+    // Runs in the warps lane
+
+    private void writeSnapshot() throws IOException {
+        // Snapshot the live map when the write runs, so it includes everything queued before it
+        byte[] content = BinaryCodec.encodeWarps(new HashMap<>(liveWarps.get()));
+        AtomicFiles.write(warpsFile, content);
+        metrics.recordBytes(StorageMetrics.FileType.WARPS, content.length);
+        Files.deleteIfExists(legacyFile);
+        if (logEntries > 0 || Files.exists(logFile)) {
+            Files.deleteIfExists(logFile);
+            logEntries = 0;
+        }
+    }
+
+    private void appendToLog(@Nonnull byte[] record, int entries) throws IOException {
+        if (!Files.exists(warpsFile)) {
+            // The log only holds changes on top of a base file, so create (or upgrade) that first
+            writeSnapshot();
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        metrics.recordBytes(StorageMetrics.FileType.WARPS, record.length);
+
+        logEntries += entries;
+        if (logEntries > Math.max(MIN_FOLD_ENTRIES, liveWarps.get().size())) {
+            writeSnapshot();
+        }
+    }
+
+    private void readLog(@Nonnull Map<String, Warp> warps) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(logFile));
+        int validEnd = 0;
+        while (buffer.remaining() >= 8) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                Log.warning("Ignoring incomplete warp log record at offset " + start + ".");
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            if (checksum(payload) != crc) {
+                Log.warning("Ignoring corrupt warp log record at offset " + start + ".");
+                break;
+            }
+
+            Map<String, Warp> changes = BinaryCodec.decodeWarpChanges(payload);
+            for (Map.Entry<String, Warp> entry : changes.entrySet()) {
+                if (entry.getValue() != null) {
+                    warps.put(entry.getKey(), entry.getValue());
+                } else {
+                    warps.remove(entry.getKey());
+                }
+            }
+            logEntries += changes.size();
+            validEnd = buffer.position();
+        }
+
+        if (validEnd < buffer.capacity()) {
+            // Cut off the torn tail so later appends don't end up behind it
+            try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+                channel.truncate(validEnd);
+            }
+        }
+    }
+
+    @Nonnull
+    private static byte[] encodeRecord(@Nonnull byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + payload.length);
+        buffer.putInt(payload.length);
+        buffer.putInt(checksum(payload));
+        buffer.put(payload);
+        return buffer.array();
+    }
+
+    private static int checksum(@Nonnull byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
@@ -45,6 +45,9 @@ public class ConfigManager {
 
     // Teleport settings
     private volatile int teleportDelay = DEFAULT_TELEPORT_DELAY;
+    private volatile int teleportBulkPerTick = 10;
+    private volatile int teleportArrivalsPerTick = 4;
+    private volatile int teleportScatterRadius = 0;
 
     // TPA settings
     private volatile int tpaExpiration = 60;
@@ -65,6 +68,9 @@ public class ConfigManager {
     private volatile int rtpCooldown = DEFAULT_RTP_COOLDOWN;
     private volatile String rtpDefaultWorld = "default";
     private final ConcurrentHashMap<String, Integer> rtpWorlds = new ConcurrentHashMap<>();
+    private volatile int rtpPoolSize = 10;
+    private volatile int rtpPoolChunkLoads = 4;
+    private volatile int rtpProbeCandidates = 5;
 
     // AFK settings
     private long afkKickTime = 0L;
@@ -104,6 +110,21 @@ public class ConfigManager {
     // Update notification settings
     private volatile boolean updateNotifyEnabled = true;
 
+    // Storage settings
+    private volatile int journalCompactInterval = 60;
+    private volatile int ioThreads = 2;
+    private volatile int ioQueueDepth = 256;
+    private volatile int shutdownTimeout = 10;
+    private volatile int shutdownThreads = 4;
+    private volatile String playerBackend = "file";
+    private volatile int offlineCacheSize = 500;
+    private volatile int offlineCacheTtl = 600;
+    private volatile boolean shardPlayers = false;
+    private volatile int warpSaveDelay = 2;
+    private volatile boolean warpLogEnabled = false;
+    private volatile int backupRateLimit = 8192;
+    private volatile int metricsLogInterval = 15;
+
     public ConfigManager(@Nonnull Path dataFolder) {
         this.configPath = dataFolder.resolve("config.toml");
         load();
@@ -167,6 +188,9 @@ public class ConfigManager {
 
             // Teleport config
             teleportDelay = getIntSafe(config, "teleport.delay", DEFAULT_TELEPORT_DELAY);
+            teleportBulkPerTick = Math.max(1, getIntSafe(config, "teleport.bulk-per-tick", 10));
+            teleportArrivalsPerTick = Math.max(0, getIntSafe(config, "teleport.arrivals-per-tick", 4));
+            teleportScatterRadius = Math.max(0, getIntSafe(config, "teleport.scatter-radius", 0));
 
             // TPA config
             tpaExpiration = getIntSafe(config, "tpa.expiration", 60);
@@ -199,6 +223,9 @@ public class ConfigManager {
 
             String defaultWorld = config.getString("rtp.default-world");
             rtpDefaultWorld = defaultWorld != null ? defaultWorld : "default";
+            rtpPoolSize = Math.max(0, getIntSafe(config, "rtp.pool-size", 10));
+            rtpPoolChunkLoads = Math.max(0, getIntSafe(config, "rtp.pool-chunk-loads", 4));
+            rtpProbeCandidates = Math.max(1, getIntSafe(config, "rtp.probe-candidates", 5));
 
             afkKickTime = getIntSafe(config, "afk.threshold", 0);
             afkKickMessage = config.getString("afk.kick-message", () -> "You have been kicked for idling more than %period% seconds!")
@@ -238,6 +265,21 @@ public class ConfigManager {
             // Update notification config
             updateNotifyEnabled = config.getBoolean("updates.notify", () -> true);
 
+            // Storage config
+            journalCompactInterval = getIntSafe(config, "storage.journal-compact-interval", 60);
+            ioThreads = getIntSafe(config, "storage.io-threads", 2);
+            ioQueueDepth = getIntSafe(config, "storage.io-queue-depth", 256);
+            shutdownTimeout = getIntSafe(config, "storage.shutdown-timeout", 10);
+            shutdownThreads = getIntSafe(config, "storage.shutdown-threads", 4);
+            playerBackend = config.getString("storage.player-backend", () -> "file");
+            offlineCacheSize = getIntSafe(config, "storage.offline-cache-size", 500);
+            offlineCacheTtl = getIntSafe(config, "storage.offline-cache-ttl", 600);
+            shardPlayers = config.getBoolean("storage.shard-players", () -> false);
+            warpSaveDelay = getIntSafe(config, "storage.warp-save-delay", 2);
+            warpLogEnabled = config.getBoolean("storage.warp-log", () -> false);
+            backupRateLimit = getIntSafe(config, "storage.backup-rate-limit", 8192);
+            metricsLogInterval = getIntSafe(config, "storage.metrics-log-interval", 15);
+
             Log.info("Config loaded!");
         } catch (Exception e) {
             Log.error("Failed to load config: " + e.getClass().getSimpleName() + " - " + e.getMessage());
@@ -311,6 +353,18 @@ public class ConfigManager {
         return teleportDelay;
     }
 
+    public int getTeleportBulkPerTick() {
+        return teleportBulkPerTick;
+    }
+
+    public int getTeleportArrivalsPerTick() {
+        return teleportArrivalsPerTick;
+    }
+
+    public int getTeleportScatterRadius() {
+        return teleportScatterRadius;
+    }
+
     public int getTpaExpiration() {
         return tpaExpiration;
     }
@@ -376,6 +430,26 @@ public class ConfigManager {
         return rtpWorlds.get(worldName);
     }
 
+    /**
+     * Gets every RTP-enabled world with its radius.
+     */
+    @Nonnull
+    public Map<String, Integer> getRtpWorlds() {
+        return Map.copyOf(rtpWorlds);
+    }
+
+    public int getRtpPoolSize() {
+        return rtpPoolSize;
+    }
+
+    public int getRtpPoolChunkLoads() {
+        return rtpPoolChunkLoads;
+    }
+
+    public int getRtpProbeCandidates() {
+        return rtpProbeCandidates;
+    }
+
     public boolean isAfkKickEnabled() {
         return afkKickTime > 0;
     }
@@ -458,4 +532,57 @@ public class ConfigManager {
     public boolean isKitsHideNoPermission() {
         return kitsHideNoPermission;
     }
+
+    public int getJournalCompactInterval() {
+        return journalCompactInterval;
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public int getIoQueueDepth() {
+        return ioQueueDepth;
+    }
+
+    public int getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public int getShutdownThreads() {
+        return shutdownThreads;
+    }
+
+    @Nonnull
+    public String getPlayerBackend() {
+        return playerBackend;
+    }
+
+    public int getOfflineCacheSize() {
+        return offlineCacheSize;
+    }
+
+    public int getOfflineCacheTtl() {
+        return offlineCacheTtl;
+    }
+
+    public boolean isShardPlayers() {
+        return shardPlayers;
+    }
+
+    public int getWarpSaveDelay() {
+        return warpSaveDelay;
+    }
+
+    public boolean isWarpLogEnabled() {
+        return warpLogEnabled;
+    }
+
+    public int getBackupRateLimit() {
+        return backupRateLimit;
+    }
+
+    public int getMetricsLogInterval() {
+        return metricsLogInterval;
+    }
 }
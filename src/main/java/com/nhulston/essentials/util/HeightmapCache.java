@@ -0,0 +1,269 @@
+package com.nhulston.essentials.util;
+
+import com.hypixel.hytale.component.ArchetypeChunk;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.ComponentRegistryProxy;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
+import com.hypixel.hytale.component.system.EntityEventSystem;
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.protocol.BlockMaterial;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.hypixel.hytale.server.core.event.events.ecs.BreakBlockEvent;
+import com.hypixel.hytale.server.core.event.events.ecs.PlaceBlockEvent;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Caches a summary of each block column so safe-position lookups don't have to scan blocks
+ * vertically. A column is scanned once, the first time it's asked about, and stores which
+ * heights are solid plus the highest solid and fluid block. Placing or breaking a block drops
+ * its column, and a chunk that was unloaded and loaded again starts over.
+ * <p>
+ * Columns are immutable once built, so lookups are safe from any thread.
+ */
+public final class HeightmapCache {
+    /** Heights covered by the cache; anything at or above counts as air */
+    public static final int HEIGHT = 256;
+
+    private static final int CHUNK_SIZE = 32;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int WORDS = HEIGHT / Long.SIZE;
+
+    /** Chunks kept per world before the cache is trimmed */
+    private static final int MAX_CHUNKS = 2048;
+
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Long, ChunkHeights>> worlds = new ConcurrentHashMap<>();
+
+    /**
+     * Summary of one block column.
+     */
+    public static final class Column {
+        private final long[] solid;  // bit y set if the block at y is solid
+        private final int topSolid;  // -1 if the column has no solid block
+        private final int topFluid;  // -1 if the column has no fluid
+
+        private Column(@Nonnull long[] solid, int topSolid, int topFluid) {
+            this.solid = solid;
+            this.topSolid = topSolid;
+            this.topFluid = topFluid;
+        }
+
+        public int getTopSolid() {
+            return topSolid;
+        }
+
+        public int getTopFluid() {
+            return topFluid;
+        }
+
+        public boolean isSolid(int y) {
+            if (y < 0 || y >= HEIGHT) {
+                return false;
+            }
+            return (solid[y >>> 6] & (1L << y)) != 0;
+        }
+
+        /**
+         * Gets the lowest Y at or above {@code fromY} with room for a player (two non-solid blocks).
+         */
+        public int findStandingY(int fromY) {
+            int y = Math.max(0, fromY);
+            if (y > topSolid) {
+                return y;
+            }
+            for (int word = y >>> 6; word < WORDS; word++) {
+                long free = ~solid[word];
+                long freeAbove = (free >>> 1) | ((word + 1 < WORDS ? ~solid[word + 1] : -1L) << 63);
+                long fits = free & freeAbove;
+                if (word == y >>> 6) {
+                    fits &= -1L << (y & 63);
+                }
+                if (fits != 0) {
+                    return (word << 6) + Long.numberOfTrailingZeros(fits);
+                }
+            }
+            return Math.max(y, topSolid + 1);
+        }
+
+        /**
+         * Gets the Y to stand on top of this column, or null if the top is covered by fluid
+         * or there is no ground.
+         */
+        @Nullable
+        public Integer getSurfaceY() {
+            if (topSolid < 0 || topFluid > topSolid) {
+                return null;
+            }
+            return topSolid + 1;
+        }
+    }
+
+    /**
+     * Columns of one loaded chunk, filled in as they're asked for.
+     */
+    private static final class ChunkHeights {
+        private final WeakReference<WorldChunk> chunk;
+        private final AtomicReferenceArray<Column> columns = new AtomicReferenceArray<>(CHUNK_SIZE * CHUNK_SIZE);
+
+        private ChunkHeights(@Nonnull WorldChunk chunk) {
+            this.chunk = new WeakReference<>(chunk);
+        }
+    }
+
+    /**
+     * Registers the systems that drop columns when blocks change.
+     */
+    public void registerSystems(@Nonnull ComponentRegistryProxy<EntityStore> registry) {
+        registry.registerSystem(new BreakBlockInvalidationSystem(this));
+        registry.registerSystem(new PlaceBlockInvalidationSystem(this));
+    }
+
+    /**
+     * Gets the column at the given block position, scanning it if it isn't cached yet.
+     *
+     * @param chunk the loaded chunk that contains the position
+     */
+    @Nonnull
+    public Column getColumn(@Nonnull World world, @Nonnull WorldChunk chunk, int blockX, int blockZ) {
+        long chunkIndex = ChunkUtil.indexChunkFromBlock(blockX, blockZ);
+        ConcurrentHashMap<Long, ChunkHeights> chunks = worlds.computeIfAbsent(world.getName(), _ -> new ConcurrentHashMap<>());
+
+        ChunkHeights heights = chunks.get(chunkIndex);
+        if (heights == null || heights.chunk.get() != chunk) {
+            // First lookup, or the chunk was reloaded since
+            heights = new ChunkHeights(chunk);
+            chunks.put(chunkIndex, heights);
+            if (chunks.size() > MAX_CHUNKS) {
+                trim(chunks);
+            }
+        }
+
+        int columnIndex = (blockZ & CHUNK_MASK) * CHUNK_SIZE + (blockX & CHUNK_MASK);
+        Column column = heights.columns.get(columnIndex);
+        if (column == null) {
+            column = scan(chunk, blockX, blockZ);
+            heights.columns.set(columnIndex, column);
+        }
+        return column;
+    }
+
+    /**
+     * Drops the cached column at a block position.
+     */
+    public void invalidate(@Nonnull World world, int blockX, int blockZ) {
+        ConcurrentHashMap<Long, ChunkHeights> chunks = worlds.get(world.getName());
+        if (chunks == null) {
+            return;
+        }
+        ChunkHeights heights = chunks.get(ChunkUtil.indexChunkFromBlock(blockX, blockZ));
+        if (heights != null) {
+            heights.columns.set((blockZ & CHUNK_MASK) * CHUNK_SIZE + (blockX & CHUNK_MASK), null);
+        }
+    }
+
+    private static void trim(@Nonnull ConcurrentHashMap<Long, ChunkHeights> chunks) {
+        chunks.values().removeIf(heights -> heights.chunk.get() == null);
+        if (chunks.size() > MAX_CHUNKS) {
+            // Everything is still loaded; start over rather than track recency
+            chunks.clear();
+        }
+    }
+
+    @Nonnull
+    private static Column scan(@Nonnull WorldChunk chunk, int blockX, int blockZ) {
+        long[] solid = new long[WORDS];
+        int topSolid = -1;
+        int topFluid = -1;
+        for (int y = 0; y < HEIGHT; y++) {
+            if (isSolidBlock(chunk, blockX, y, blockZ)) {
+                solid[y >>> 6] |= 1L << y;
+                topSolid = y;
+            }
+            if (hasFluid(chunk, blockX, y, blockZ)) {
+                topFluid = y;
+            }
+        }
+        return new Column(solid, topSolid, topFluid);
+    }
+
+    private static boolean isSolidBlock(@Nonnull WorldChunk chunk, int x, int y, int z) {
+        BlockType blockType = chunk.getBlockType(x, y, z);
+        return blockType != null && blockType.getMaterial() == BlockMaterial.Solid;
+    }
+
+    /**
+     * Checks if a position contains fluid (water or lava).
+     * TODO: Update when Hytale provides non-deprecated fluid API.
+     */
+    @SuppressWarnings("removal")
+    private static boolean hasFluid(@Nonnull WorldChunk chunk, int x, int y, int z) {
+        return chunk.getFluidId(x, y, z) > 0;
+    }
+
+    private void onBlockChanged(@Nonnull Store<EntityStore> store, @Nonnull Vector3i position) {
+        World world = store.getExternalData().getWorld();
+        invalidate(world, position.x, position.z);
+        // The event fires before the block changes, so drop the column again once it has
+        world.execute(() -> invalidate(world, position.x, position.z));
+    }
+
+    /**
+     * Drops columns when a block is broken.
+     */
+    private static class BreakBlockInvalidationSystem extends EntityEventSystem<EntityStore, BreakBlockEvent> {
+        private final HeightmapCache cache;
+
+        BreakBlockInvalidationSystem(@Nonnull HeightmapCache cache) {
+            super(BreakBlockEvent.class);
+            this.cache = cache;
+        }
+
+        @Override
+        public Query<EntityStore> getQuery() {
+            return Query.any();
+        }
+
+        @Override
+        public void handle(int index, @NotNull ArchetypeChunk<EntityStore> chunk,
+                           @NotNull Store<EntityStore> store,
+                           @NotNull CommandBuffer<EntityStore> buffer,
+                           @NotNull BreakBlockEvent event) {
+            cache.onBlockChanged(store, event.getTargetBlock());
+        }
+    }
+
+    /**
+     * Drops columns when a block is placed.
+     */
+    private static class PlaceBlockInvalidationSystem extends EntityEventSystem<EntityStore, PlaceBlockEvent> {
+        private final HeightmapCache cache;
+
+        PlaceBlockInvalidationSystem(@Nonnull HeightmapCache cache) {
+            super(PlaceBlockEvent.class);
+            this.cache = cache;
+        }
+
+        @Override
+        public Query<EntityStore> getQuery() {
+            return Query.any();
+        }
+
+        @Override
+        public void handle(int index, @NotNull ArchetypeChunk<EntityStore> chunk,
+                           @NotNull Store<EntityStore> store,
+                           @NotNull CommandBuffer<EntityStore> buffer,
+                           @NotNull PlaceBlockEvent event) {
+            cache.onBlockChanged(store, event.getTargetBlock());
+        }
+    }
+}
@@ -4,10 +4,14 @@ import com.hypixel.hytale.logger.HytaleLogger;
 
 import javax.annotation.Nonnull;
 import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public final class Log {
     private static HytaleLogger logger;
 
+    // Used until init, e.g. when storage classes run in unit tests outside the server
+    private static final Logger FALLBACK = Logger.getLogger("Essentials");
+
     // ANSI color codes
     private static final String GREEN = "\u001B[32m";
     private static final String YELLOW = "\u001B[33m";
@@ -21,18 +25,34 @@ public final class Log {
     }
 
     public static void info(@Nonnull String message) {
+        if (logger == null) {
+            FALLBACK.info(message);
+            return;
+        }
         logger.at(Level.INFO).log(GREEN + message + RESET);
     }
 
     public static void warning(@Nonnull String message) {
+        if (logger == null) {
+            FALLBACK.warning(message);
+            return;
+        }
         logger.at(Level.WARNING).log(YELLOW + message + RESET);
     }
 
     public static void error(@Nonnull String message) {
+        if (logger == null) {
+            FALLBACK.severe(message);
+            return;
+        }
         logger.at(Level.SEVERE).log(RED + message + RESET);
     }
 
     public static void error(@Nonnull String message, @Nonnull Throwable throwable) {
+        if (logger == null) {
+            FALLBACK.log(Level.SEVERE, message, throwable);
+            return;
+        }
         logger.at(Level.SEVERE).withCause(throwable).log(RED + message + RESET);
     }
 }
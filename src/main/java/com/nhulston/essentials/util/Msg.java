@@ -1,7 +1,9 @@
 package com.nhulston.essentials.util;
 
 import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.permissions.PermissionsModule;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.Universe;
 
 import javax.annotation.Nonnull;
 
@@ -23,4 +25,18 @@ public final class Msg {
             player.sendMessage(ColorUtil.colorize(message));
         }
     }
+
+    /**
+     * Sends a message to every online player who has the permission.
+     */
+    public static void sendToPermitted(@Nonnull String permission, @Nonnull String message) {
+        if (message.isEmpty()) {
+            return;
+        }
+        for (PlayerRef player : Universe.get().getPlayers()) {
+            if (PermissionsModule.get().hasPermission(player.getUuid(), permission)) {
+                player.sendMessage(ColorUtil.colorize(message));
+            }
+        }
+    }
 }
@@ -3,43 +3,109 @@ package com.nhulston.essentials.util;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonParseException;
+import com.nhulston.essentials.Essentials;
+import com.nhulston.essentials.models.Home;
 import com.nhulston.essentials.models.PlayerData;
 import com.nhulston.essentials.models.Spawn;
 import com.nhulston.essentials.models.Warp;
+import com.nhulston.essentials.storage.AtomicFiles;
+import com.nhulston.essentials.storage.BackupStore;
+import com.nhulston.essentials.storage.BinaryCodec;
+import com.nhulston.essentials.storage.CorruptDataException;
+import com.nhulston.essentials.storage.FilePlayerStore;
+import com.nhulston.essentials.storage.JournalRecord;
+import com.nhulston.essentials.storage.KnownPlayerSet;
+import com.nhulston.essentials.storage.OfflinePlayerCache;
+import com.nhulston.essentials.storage.PlayerDataStore;
+import com.nhulston.essentials.storage.PlayerStoreMigrator;
+import com.nhulston.essentials.storage.RecordEnvelope;
+import com.nhulston.essentials.storage.SegmentPlayerStore;
+import com.nhulston.essentials.storage.StorageExecutor;
+import com.nhulston.essentials.storage.StorageJournal;
+import com.nhulston.essentials.storage.StorageMetrics;
+import com.nhulston.essentials.storage.UsernameIndex;
+import com.nhulston.essentials.storage.WarpStore;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 public class StorageManager {
     private final Path dataFolder;
     private final Path playersFolder;
+    private final ConfigManager configManager;
     private final Gson gson;
-    private final ConcurrentHashMap<UUID, PlayerData> cache;
+    private final ConcurrentHashMap<UUID, PlayerData> cache;  // online players, pinned until they quit
+    private final Set<UUID> onlinePlayers;
+    private final OfflinePlayerCache offlineCache;
+    private final ConcurrentHashMap<UUID, CompletableFuture<PlayerData>> prefetching;
     private final ConcurrentHashMap<String, Warp> warps;
-    private final ConcurrentHashMap<String, UUID> usernameToUuid;
-    private final AtomicBoolean uuidIndexDirty;
+    private final StorageExecutor ioExecutor;
+    private final StorageMetrics metrics;
+    private final PlayerDataStore playerStore;
+    private final UsernameIndex usernameIndex;
+    private final KnownPlayerSet knownPlayers;
+    private final Set<UUID> firstJoins;  // connected players who were new when they connected
+    private final WarpStore warpStore;
+    private final BackupStore backupStore;
+    private final StorageJournal journal;
     private volatile Spawn spawn;
+    private volatile boolean replayingJournal;
+
+    // Prefetch counters
+    private final LongAdder prefetchHits = new LongAdder();
+    private final LongAdder prefetchWaits = new LongAdder();
+    private final LongAdder prefetchMisses = new LongAdder();
+    private final LongAdder worldThreadLoads = new LongAdder();
+
+    // Damaged player data counters
+    private final LongAdder corruptLoads = new LongAdder();
+    private final LongAdder recoveredLoads = new LongAdder();
+    private final LongAdder lostLoads = new LongAdder();
+
+    private static final String SPAWN_FILE = "spawn.dat";
+    private static final String LEGACY_SPAWN_FILE = "spawn.json";
+    private static final String UNFLUSHED_FILE = "unflushed.txt";
+    private static final String PLAYERS_FOLDER = "players";
+    private static final String SEGMENT_FOLDER = "playerdata";
+    private static final String QUARANTINE_FOLDER = "quarantine";
+    private static final String ALERT_PERMISSION = "essentials.alerts";
 
-    private static final Type WARPS_TYPE = new TypeToken<Map<String, Warp>>(){}.getType();
     private static final Type UUIDS_TYPE = new TypeToken<Map<String, String>>(){}.getType();
 
-    public StorageManager(@Nonnull Path dataFolder) {
+    public StorageManager(@Nonnull Path dataFolder, @Nonnull ConfigManager configManager) {
         this.dataFolder = dataFolder;
-        this.playersFolder = dataFolder.resolve("players");
+        this.playersFolder = dataFolder.resolve(PLAYERS_FOLDER);
+        this.configManager = configManager;
         this.gson = new GsonBuilder().create();
         this.cache = new ConcurrentHashMap<>();
+        this.prefetching = new ConcurrentHashMap<>();
+        this.onlinePlayers = ConcurrentHashMap.newKeySet();
+        this.firstJoins = ConcurrentHashMap.newKeySet();
+        this.offlineCache = new OfflinePlayerCache(configManager.getOfflineCacheSize(),
+                configManager.getOfflineCacheTtl(), this::savePlayerDataAsync);
         this.warps = new ConcurrentHashMap<>();
-        this.usernameToUuid = new ConcurrentHashMap<>();
-        this.uuidIndexDirty = new AtomicBoolean(false);
+
+        // A full restore requested with /essentials restore replaces the files before anything reads them
+        BackupStore.applyPendingRestore(dataFolder);
 
         try {
             Files.createDirectories(this.playersFolder);
@@ -47,16 +113,196 @@ public class StorageManager {
             Log.error("Failed to create players folder: " + e.getMessage());
         }
 
+        this.ioExecutor = new StorageExecutor(configManager.getIoThreads(), configManager.getIoQueueDepth());
+        this.metrics = new StorageMetrics();
+        this.backupStore = new BackupStore(dataFolder, ioExecutor, configManager.getBackupRateLimit());
+        this.playerStore = createPlayerStore(configManager.getPlayerBackend());
+        this.usernameIndex = new UsernameIndex(dataFolder, ioExecutor, metrics);
+
+        // One directory listing (or index scan) at startup instead of a stat per connect
+        this.knownPlayers = KnownPlayerSet.of(playerStore.getPlayerUuids());
+        Log.info("Indexed " + knownPlayers.size() + " known player(s).");
+
+        this.warpStore = new WarpStore(dataFolder, ioExecutor, metrics, gson, () -> warps,
+                configManager.isWarpLogEnabled(), configManager.getWarpSaveDelay());
         loadWarps();
+
+        // Replay uncompacted mutations into the snapshot files before anything reads them
+        this.journal = new StorageJournal(dataFolder, gson, metrics, this::compactJournal,
+                configManager.getJournalCompactInterval());
+        this.replayingJournal = true;
+        this.journal.start();
+        this.replayingJournal = false;
+        reportUnflushed();
+
         loadSpawn();
-        loadUuidIndex();
+        migrateUuidJson();
+        metrics.start(ioExecutor, configManager.getMetricsLogInterval(), this::logMetricsSummary);
     }
 
     // Player data methods
 
+    /**
+     * Gets a player's data, loading it if needed.
+     * Data prefetched on connect is picked up here; otherwise this blocks on disk I/O.
+     * Players who aren't online go to the bounded offline cache instead of the pinned online one.
+     */
     @Nonnull
     public PlayerData getPlayerData(@Nonnull UUID playerUuid) {
-        return cache.computeIfAbsent(playerUuid, this::loadPlayerData);
+        PlayerData data = cache.get(playerUuid);
+        if (data != null) {
+            return data;
+        }
+        if (!onlinePlayers.contains(playerUuid)) {
+            return getOfflinePlayerData(playerUuid);
+        }
+
+        PlayerData loaded;
+        CompletableFuture<PlayerData> pending = prefetching.get(playerUuid);
+        if (pending != null && pending.isDone()) {
+            prefetchHits.increment();
+            loaded = pending.join();
+        } else {
+            if (pending != null) {
+                prefetchWaits.increment();
+            } else {
+                prefetchMisses.increment();
+            }
+            if (isWorldThread()) {
+                worldThreadLoads.increment();
+            }
+        }
+        // Load outside of any map lock; a racing load for the same player is resolved below
+        loaded = awaitLoad(playerUuid, pending);
+
+        prefetching.remove(playerUuid);
+        if (loaded.isReadOnly()) {
+            // Not cached, so the next call tries to read the stored copy again
+            return loaded;
+        }
+        PlayerData existing = cache.putIfAbsent(playerUuid, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    @Nonnull
+    private PlayerData getOfflinePlayerData(@Nonnull UUID playerUuid) {
+        PlayerData data = offlineCache.get(playerUuid);
+        if (data != null) {
+            return data;
+        }
+        if (isWorldThread()) {
+            worldThreadLoads.increment();
+        }
+        PlayerData loaded = awaitLoad(playerUuid, null);
+        return loaded.isReadOnly() ? loaded : offlineCache.putIfAbsent(playerUuid, loaded, false);
+    }
+
+    /**
+     * Waits for a player's data to load, retrying once in case the failure was transient. If it
+     * still can't be read, read-only empty data is handed out instead, which is never saved over
+     * the stored copy; journaled changes made meanwhile still reach it on the next compaction.
+     *
+     * @param pending a load already in flight, e.g. a prefetch, or null to start one
+     */
+    @Nonnull
+    private PlayerData awaitLoad(@Nonnull UUID playerUuid, @Nullable CompletableFuture<PlayerData> pending) {
+        try {
+            return (pending != null ? pending : loadPlayerDataAsync(playerUuid)).join();
+        } catch (CompletionException first) {
+            try {
+                return loadPlayerData(playerUuid);
+            } catch (CompletionException e) {
+                Log.error("Player data for " + playerUuid + " can't be read (" + rootMessage(e)
+                        + "); using read-only empty data until it can.");
+                return PlayerData.unreadable();
+            }
+        }
+    }
+
+    /**
+     * Records whether a connecting player is joining for the first time. Must run before any
+     * connect handler marks the player as joined, so every handler sees the same answer
+     * through {@link #isFirstJoin}.
+     */
+    public void beginSession(@Nonnull UUID playerUuid) {
+        if (knownPlayers.contains(playerUuid)) {
+            firstJoins.remove(playerUuid);
+        } else {
+            firstJoins.add(playerUuid);
+        }
+    }
+
+    /**
+     * Checks if a connected player was new when they connected this session, even if they've
+     * been marked as joined since.
+     */
+    public boolean isFirstJoin(@Nonnull UUID playerUuid) {
+        return firstJoins.contains(playerUuid);
+    }
+
+    /**
+     * Pins the player as online and starts loading their data on the I/O threads, so the first
+     * getPlayerData call doesn't hit the disk. Called as soon as the player connects.
+     */
+    public void prefetchPlayerData(@Nonnull UUID playerUuid) {
+        onlinePlayers.add(playerUuid);
+        if (cache.containsKey(playerUuid)) {
+            return;
+        }
+
+        // Already in memory from an offline lookup or a recent session
+        PlayerData offline = offlineCache.remove(playerUuid);
+        if (offline != null) {
+            cache.putIfAbsent(playerUuid, offline);
+            return;
+        }
+
+        // Read in the player's write lane so a save queued on their last disconnect is seen
+        prefetching.computeIfAbsent(playerUuid, this::loadPlayerDataAsync);
+    }
+
+    public long getPrefetchHits() {
+        return prefetchHits.sum();
+    }
+
+    public long getPrefetchWaits() {
+        return prefetchWaits.sum();
+    }
+
+    public long getPrefetchMisses() {
+        return prefetchMisses.sum();
+    }
+
+    /**
+     * Gets how many times a world thread had to block on loading player data.
+     */
+    public long getWorldThreadLoads() {
+        return worldThreadLoads.sum();
+    }
+
+    /**
+     * Gets how many player data loads found the current copy damaged.
+     */
+    public long getCorruptLoads() {
+        return corruptLoads.sum();
+    }
+
+    /**
+     * Gets how many damaged loads were recovered from the previous generation.
+     */
+    public long getRecoveredLoads() {
+        return recoveredLoads.sum();
+    }
+
+    /**
+     * Gets how many damaged loads had no usable previous generation, leaving the player empty.
+     */
+    public long getLostLoads() {
+        return lostLoads.sum();
+    }
+
+    private static boolean isWorldThread() {
+        return Thread.currentThread().getName().startsWith("WorldThread");
     }
 
     public void savePlayerData(@Nonnull UUID playerUuid) {
@@ -66,56 +312,300 @@ public class StorageManager {
         }
     }
 
+    // Journaled player mutations (small appends instead of full file rewrites)
+
+    public void setHome(@Nonnull UUID playerUuid, @Nonnull String name, @Nonnull Home home) {
+        PlayerData data = getPlayerData(playerUuid);
+        data.setHome(name, home);
+        journal.append(JournalRecord.homeSet(playerUuid, name, home));
+        onMutated(playerUuid, data);
+    }
+
+    public void deleteHome(@Nonnull UUID playerUuid, @Nonnull String name) {
+        PlayerData data = getPlayerData(playerUuid);
+        data.deleteHome(name);
+        journal.append(JournalRecord.homeDelete(playerUuid, name));
+        onMutated(playerUuid, data);
+    }
+
+    public void setKitCooldown(@Nonnull UUID playerUuid, @Nonnull String kitId, long timestamp) {
+        PlayerData data = getPlayerData(playerUuid);
+        data.setKitCooldown(kitId, timestamp);
+        journal.append(JournalRecord.kitCooldown(playerUuid, kitId, timestamp));
+        onMutated(playerUuid, data);
+    }
+
+    public void setLastRepairTime(@Nonnull UUID playerUuid, long timestamp) {
+        PlayerData data = getPlayerData(playerUuid);
+        data.setLastRepairTime(timestamp);
+        journal.append(JournalRecord.repairTime(playerUuid, timestamp));
+        onMutated(playerUuid, data);
+    }
+
+    public void setLastRtpTime(@Nonnull UUID playerUuid, long timestamp) {
+        PlayerData data = getPlayerData(playerUuid);
+        data.setLastRtpTime(timestamp);
+        journal.append(JournalRecord.rtpTime(playerUuid, timestamp));
+        onMutated(playerUuid, data);
+    }
+
+    /**
+     * Online players are saved when they quit, and offline cache entries are written back on
+     * eviction. Data that isn't held by either is saved right away so a reload can't miss it.
+     */
+    private void onMutated(@Nonnull UUID playerUuid, @Nonnull PlayerData data) {
+        if (!cache.containsKey(playerUuid) && !offlineCache.markDirty(playerUuid)) {
+            savePlayerDataAsync(playerUuid, data);
+        }
+    }
+
+    /**
+     * Loads a player's stored data, waiting for any write already queued for them first.
+     *
+     * @throws CompletionException if the stored data couldn't be read
+     */
     @Nonnull
     private PlayerData loadPlayerData(@Nonnull UUID playerUuid) {
-        Path file = getPlayerFile(playerUuid);
-        if (Files.exists(file)) {
-            try {
-                String json = Files.readString(file);
-                PlayerData data = gson.fromJson(json, PlayerData.class);
-                if (data != null) {
-                    return data;
-                }
-            } catch (IOException e) {
-                Log.warning("Failed to load player data for " + playerUuid + ": " + e.getMessage());
+        return loadPlayerDataAsync(playerUuid).join();
+    }
+
+    /**
+     * Loads a player's stored data in their lane, so the damaged-copy fallback (and its file
+     * moves) happens on the I/O threads and never on the thread waiting for the result.
+     * Fails if the stored data couldn't be read; there's no empty stand-in that could be saved over it.
+     */
+    @Nonnull
+    private CompletableFuture<PlayerData> loadPlayerDataAsync(@Nonnull UUID playerUuid) {
+        long start = System.nanoTime();
+        CompletableFuture<PlayerData> load = playerStore.supply(playerUuid, () -> readVerified(playerUuid));
+        load.whenComplete((_, error) -> {
+            metrics.recordLoad(StorageMetrics.FileType.PLAYER, start, error != null);
+            if (error != null) {
+                Log.error("Failed to load player data for " + playerUuid + ": " + rootMessage(error));
+            }
+        });
+        return load;
+    }
+
+    @Nonnull
+    private static String rootMessage(@Nonnull Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return String.valueOf(cause.getMessage());
+    }
+
+    /**
+     * Reads and decodes a player's data. If the current copy is damaged, the previous generation
+     * is used instead and the damaged copy is moved to the quarantine folder so the next save
+     * can't rotate it over the good one. Any other failure (I/O errors, a newer format) fails the
+     * load. Runs in the player's lane.
+     */
+    @Nonnull
+    private PlayerData readVerified(@Nonnull UUID playerUuid) throws IOException {
+        CorruptDataException failure;
+        try {
+            byte[] bytes = playerStore.read(playerUuid);
+            return bytes != null ? decodePlayerData(bytes) : new PlayerData();
+        } catch (CorruptDataException e) {
+            failure = e;
+        }
+
+        corruptLoads.increment();
+        PlayerData recovered = null;
+        try {
+            byte[] previous = playerStore.readPrevious(playerUuid);
+            if (previous != null) {
+                recovered = decodePlayerData(previous);
             }
+        } catch (CorruptDataException e) {
+            Log.warning("Previous player data for " + playerUuid + " is damaged too: " + e.getMessage());
+        }
+
+        try {
+            // Loads can run during a backup, but this write has to wait for it
+            ioExecutor.runWrite(() -> playerStore.quarantine(playerUuid, dataFolder.resolve(QUARANTINE_FOLDER)));
+        } catch (IOException e) {
+            Log.error("Failed to quarantine player data for " + playerUuid + ": " + e.getMessage());
         }
+
+        if (recovered != null) {
+            recoveredLoads.increment();
+            Log.error("Player data for " + playerUuid + " is damaged (" + failure.getMessage()
+                    + "), using the previous save instead.");
+            alert("storage.player-data-recovered", playerUuid);
+            return recovered;
+        }
+
+        lostLoads.increment();
+        Log.error("Player data for " + playerUuid + " is damaged (" + failure.getMessage()
+                + ") and no previous save is available; starting them with empty data.");
+        alert("storage.player-data-lost", playerUuid);
         return new PlayerData();
     }
 
-    private void savePlayerDataAsync(@Nonnull UUID playerUuid, @Nonnull PlayerData data) {
-        CompletableFuture.runAsync(() -> {
-            Path file = getPlayerFile(playerUuid);
+    /**
+     * Decodes stored player data. Legacy JSON is still accepted and is rewritten in the
+     * binary format the next time the player is saved.
+     *
+     * @throws CorruptDataException if the data is damaged
+     */
+    @Nonnull
+    private PlayerData decodePlayerData(@Nonnull byte[] bytes) throws IOException {
+        RecordEnvelope.Unwrapped record = RecordEnvelope.unwrap(bytes);
+        byte[] payload = record.payload();
+        PlayerData data;
+        if (BinaryCodec.isBinary(payload)) {
             try {
-                String json = gson.toJson(data);
-                Files.writeString(file, json);
+                data = BinaryCodec.decodePlayerData(payload);
             } catch (IOException e) {
-                Log.error("Failed to save player data for " + playerUuid + ": " + e.getMessage());
+                // A payload that passed its checksum isn't damaged, it's from a newer format
+                throw record.checked() ? e : new CorruptDataException(e.getMessage(), e);
+            }
+        } else {
+            LegacyPlayerData legacy;
+            try {
+                legacy = gson.fromJson(new String(payload, StandardCharsets.UTF_8), LegacyPlayerData.class);
+            } catch (JsonParseException e) {
+                throw new CorruptDataException("Malformed JSON: " + e.getMessage(), e);
+            }
+            if (legacy == null) {
+                throw new CorruptDataException("Empty JSON player file");
+            }
+            data = new PlayerData(legacy.homes, legacy.kitCooldowns, legacy.lastRepairTime, legacy.lastRtpTime);
+        }
+        data.setStoredGeneration(record.generation());
+        return data;
+    }
+
+    /**
+     * Encodes a snapshot with its generation and checksum.
+     */
+    @Nonnull
+    private static byte[] encodePlayerData(@Nonnull PlayerData data, @Nonnull PlayerData.Snapshot snapshot) {
+        return RecordEnvelope.wrap(data.getGeneration(snapshot), BinaryCodec.encodePlayerData(snapshot));
+    }
+
+    /**
+     * Tells online admins about damaged player data. Runs on an I/O thread, so it never holds up a world.
+     */
+    private void alert(@Nonnull String key, @Nonnull UUID playerUuid) {
+        try {
+            Msg.sendToPermitted(ALERT_PERMISSION, Essentials.getInstance().getMessageManager().get(key,
+                    Map.of("player", playerUuid.toString())));
+        } catch (RuntimeException e) {
+            // Still starting up; the log entry is enough
+        }
+    }
+
+    /**
+     * Shape of the JSON player files written before the binary format.
+     */
+    private static final class LegacyPlayerData {
+        private Map<String, Home> homes;
+        private Map<String, Long> kitCooldowns;
+        private Long lastRepairTime;
+        private Long lastRtpTime;
+    }
+
+    /**
+     * Queues a write of the player's current snapshot, unless that version was already written or queued.
+     */
+    @Nonnull
+    private CompletableFuture<Void> savePlayerDataAsync(@Nonnull UUID playerUuid, @Nonnull PlayerData data) {
+        PlayerData.Snapshot snapshot = data.snapshot();
+        if (!data.beginSave(snapshot.getVersion())) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        knownPlayers.add(playerUuid);
+        CompletableFuture<Void> write = metrics.timeSave(StorageMetrics.FileType.PLAYER,
+                playerStore.write(playerUuid, encodePlayerData(data, snapshot)));
+        write.whenComplete((_, error) -> {
+            if (error != null) {
+                data.saveFailed(snapshot.getVersion());
             }
         });
+        return write;
     }
 
+    /**
+     * Creates the configured player data backend, migrating the players folder into it if needed,
+     * or migrating the segment store back into the players folder when switching back to files.
+     * Falls back to per-player files if the segment store can't be opened.
+     */
     @Nonnull
-    private Path getPlayerFile(@Nonnull UUID playerUuid) {
-        return playersFolder.resolve(playerUuid + ".json");
+    private PlayerDataStore createPlayerStore(@Nonnull String backend) {
+        if (backend.equalsIgnoreCase("segment")) {
+            Path segmentFolder = dataFolder.resolve(SEGMENT_FOLDER);
+            try {
+                SegmentPlayerStore store = new SegmentPlayerStore(segmentFolder, ioExecutor, metrics);
+                PlayerStoreMigrator.migrate(new FilePlayerStore(playersFolder, ioExecutor, metrics,
+                        configManager.isShardPlayers()), segmentFolder, store);
+                return store;
+            } catch (IOException e) {
+                Log.error("Failed to open segment player store, using player files instead: " + e.getMessage());
+            }
+        } else if (!backend.equalsIgnoreCase("file")) {
+            Log.warning("Unknown storage.player-backend '" + backend + "', using player files.");
+        }
+        FilePlayerStore store = new FilePlayerStore(playersFolder, ioExecutor, metrics,
+                configManager.isShardPlayers());
+        Path segmentFolder = dataFolder.resolve(SEGMENT_FOLDER);
+        if (PlayerStoreMigrator.isMigrated(segmentFolder)) {
+            // The segment store was in use, so it's newer than the player files
+            try {
+                SegmentPlayerStore segments = new SegmentPlayerStore(segmentFolder, ioExecutor, metrics);
+                try {
+                    PlayerStoreMigrator.migrateBack(segments, segmentFolder, store);
+                } finally {
+                    segments.close();
+                }
+            } catch (IOException e) {
+                Log.error("Failed to open segment player store to migrate it back: " + e.getMessage());
+            }
+        }
+        store.startShardMover();
+        return store;
     }
 
+    /**
+     * Unpins a disconnecting player. Their data moves to the offline cache in case they reconnect
+     * soon; call {@link #savePlayerData} first so it's cached as clean.
+     */
     public void unloadPlayer(@Nonnull UUID playerUuid) {
-        cache.remove(playerUuid);
+        onlinePlayers.remove(playerUuid);
+        firstJoins.remove(playerUuid);
+        prefetching.remove(playerUuid);
+        PlayerData data = cache.remove(playerUuid);
+        if (data != null) {
+            offlineCache.putIfAbsent(playerUuid, data, data.isDirty());
+        }
+    }
+
+    /**
+     * Gets the bounded cache holding data of players who aren't online (for sizing stats).
+     */
+    @Nonnull
+    public OfflinePlayerCache getOfflineCache() {
+        return offlineCache;
+    }
+
+    public int getOnlineCacheSize() {
+        return cache.size();
     }
 
     /**
-     * Checks if a player has joined the server before (player data file exists).
+     * Checks if a player has joined the server before (player data is stored).
+     * Answered from memory, so it's safe to call on the connect path.
      */
     public boolean hasPlayerJoined(@Nonnull UUID playerUuid) {
-        Path playerFile = getPlayerFile(playerUuid);
-        return Files.exists(playerFile);
+        return knownPlayers.contains(playerUuid);
     }
 
     /**
      * Marks a player as having joined by creating their data file.
      */
     public void markPlayerJoined(@Nonnull UUID playerUuid) {
+        knownPlayers.add(playerUuid);
         getPlayerData(playerUuid);
         savePlayerData(playerUuid);
     }
@@ -130,44 +620,125 @@ public class StorageManager {
         return warps.get(name.toLowerCase());
     }
 
+    /**
+     * Sets a warp. The journal makes it durable right away; the warp file itself is written
+     * once the save window passes, together with any other warp changes made meanwhile.
+     */
     public void setWarp(@Nonnull String name, @Nonnull Warp warp) {
-        warps.put(name.toLowerCase(), warp);
-        saveWarpsAsync();
+        String key = name.toLowerCase();
+        warps.put(key, warp);
+        journal.append(JournalRecord.warpSet(key, warp));
+        warpStore.changed(key, warp);
     }
 
     public boolean deleteWarp(@Nonnull String name) {
-        if (warps.remove(name.toLowerCase()) != null) {
-            saveWarpsAsync();
+        String key = name.toLowerCase();
+        if (warps.remove(key) != null) {
+            journal.append(JournalRecord.warpDelete(key));
+            warpStore.changed(key, null);
             return true;
         }
         return false;
     }
 
+    /**
+     * Adds or replaces many warps at once. They're saved with a single atomic write of the
+     * warp file rather than one write per warp.
+     */
+    @Nonnull
+    public CompletableFuture<Void> importWarps(@Nonnull Map<String, Warp> imported) {
+        for (Map.Entry<String, Warp> entry : imported.entrySet()) {
+            String key = entry.getKey().toLowerCase();
+            warps.put(key, entry.getValue());
+            // Keeps a crash replay from putting back older versions of these warps
+            journal.append(JournalRecord.warpSet(key, entry.getValue()));
+        }
+        return warpStore.writeAll();
+    }
+
     private void loadWarps() {
-        Path file = dataFolder.resolve("warps.json");
-        if (Files.exists(file)) {
-            try {
-                String json = Files.readString(file);
-                Map<String, Warp> loaded = gson.fromJson(json, WARPS_TYPE);
-                if (loaded != null) {
-                    warps.putAll(loaded);
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            warps.putAll(warpStore.load());
+        } catch (IOException e) {
+            failed = true;
+            Log.error("Failed to load warps (" + e.getMessage() + "). Warp changes won't be saved until the"
+                    + " warp files are fixed or removed and the server is restarted.");
+        }
+        metrics.recordLoad(StorageMetrics.FileType.WARPS, start, failed);
+    }
+
+    /**
+     * Writes a data file in the binary format and removes its legacy JSON counterpart.
+     */
+    @Nonnull
+    private CompletableFuture<Void> writeUpgraded(@Nonnull StorageMetrics.FileType type, @Nonnull String fileName,
+                                                  @Nonnull String legacyFileName, @Nonnull byte[] content) {
+        Path legacy = dataFolder.resolve(legacyFileName);
+        return metrics.timeSave(type, ioExecutor.write(dataFolder.resolve(fileName), content, (file, bytes) -> {
+            AtomicFiles.write(file, bytes);
+            metrics.recordBytes(type, bytes.length);
+            Files.deleteIfExists(legacy);
+        }));
+    }
+
+    // Journal compaction
+
+    /**
+     * Folds journal records into the player and warp snapshot files.
+     * Called on the journal writer thread, and once at startup to replay a crashed run.
+     * At runtime warp records are already in the live map, so they only need the warp store flushed.
+     */
+    private void compactJournal(@Nonnull List<JournalRecord> records) throws IOException {
+        Map<UUID, List<JournalRecord>> playerRecords = new LinkedHashMap<>();
+        List<JournalRecord> warpRecords = new ArrayList<>();
+        for (JournalRecord record : records) {
+            if (record.isWarpRecord()) {
+                warpRecords.add(record);
+            } else {
+                UUID playerUuid = record.getPlayerUuid();
+                if (playerUuid != null) {
+                    playerRecords.computeIfAbsent(playerUuid, _ -> new ArrayList<>()).add(record);
                 }
-            } catch (IOException e) {
-                Log.warning("Failed to load warps: " + e.getMessage());
             }
         }
-    }
 
-    private void saveWarpsAsync() {
-        CompletableFuture.runAsync(() -> {
-            Path file = dataFolder.resolve("warps.json");
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (Map.Entry<UUID, List<JournalRecord>> entry : playerRecords.entrySet()) {
+            PlayerData stored;
             try {
-                String json = gson.toJson(warps);
-                Files.writeString(file, json);
-            } catch (IOException e) {
-                Log.error("Failed to save warps: " + e.getMessage());
+                stored = loadPlayerData(entry.getKey());
+            } catch (CompletionException e) {
+                // Keep the records in the journal and retry on the next compaction, rather than
+                // writing the records alone over the player's stored data
+                throw new IOException("Can't read player data for " + entry.getKey() + ": " + rootMessage(e), e);
             }
-        });
+            for (JournalRecord record : entry.getValue()) {
+                record.applyTo(stored);
+            }
+            knownPlayers.add(entry.getKey());
+            writes.add(metrics.timeSave(StorageMetrics.FileType.PLAYER,
+                    playerStore.write(entry.getKey(), encodePlayerData(stored, stored.snapshot()))));
+        }
+
+        if (!warpRecords.isEmpty()) {
+            if (replayingJournal) {
+                for (JournalRecord record : warpRecords) {
+                    record.applyTo(warps);
+                }
+                writes.add(warpStore.writeAll());
+            } else {
+                writes.add(warpStore.flush());
+            }
+        }
+
+        // The journal may only be truncated once every snapshot is durable
+        try {
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            throw new IOException(e.getCause() != null ? e.getCause().getMessage() : e.getMessage(), e);
+        }
     }
 
     // Spawn methods
@@ -182,30 +753,28 @@ public class StorageManager {
     }
 
     private void loadSpawn() {
-        Path file = dataFolder.resolve("spawn.json");
-        if (Files.exists(file)) {
-            try {
-                String json = Files.readString(file);
-                Spawn loaded = gson.fromJson(json, Spawn.class);
+        Path file = dataFolder.resolve(SPAWN_FILE);
+        Path legacy = dataFolder.resolve(LEGACY_SPAWN_FILE);
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            if (Files.exists(file)) {
+                this.spawn = BinaryCodec.decodeSpawn(Files.readAllBytes(file));
+            } else if (Files.exists(legacy)) {
+                Spawn loaded = gson.fromJson(Files.readString(legacy), Spawn.class);
                 if (loaded != null) {
                     this.spawn = loaded;
                 }
-            } catch (IOException e) {
-                Log.warning("Failed to load spawn: " + e.getMessage());
             }
+        } catch (IOException e) {
+            failed = true;
+            Log.warning("Failed to load spawn: " + e.getMessage());
         }
+        metrics.recordLoad(StorageMetrics.FileType.SPAWN, start, failed);
     }
 
     private void saveSpawnAsync() {
-        CompletableFuture.runAsync(() -> {
-            Path file = dataFolder.resolve("spawn.json");
-            try {
-                String json = gson.toJson(spawn);
-                Files.writeString(file, json);
-            } catch (IOException e) {
-                Log.error("Failed to save spawn: " + e.getMessage());
-            }
-        });
+        writeUpgraded(StorageMetrics.FileType.SPAWN, SPAWN_FILE, LEGACY_SPAWN_FILE, BinaryCodec.encodeSpawn(spawn));
     }
 
     // UUID index methods (username -> UUID mapping for offline player lookups)
@@ -215,14 +784,8 @@ public class StorageManager {
      * Call this when a player joins the server.
      */
     public void registerPlayer(@Nonnull String username, @Nonnull UUID uuid) {
-        String lowerUsername = username.toLowerCase();
-        UUID existing = usernameToUuid.get(lowerUsername);
-        
-        // Only save if this is a new mapping or UUID changed (name change)
-        if (existing == null || !existing.equals(uuid)) {
-            usernameToUuid.put(lowerUsername, uuid);
-            scheduleUuidIndexSave();
-        }
+        // Only appends if this is a new mapping or UUID changed (name change)
+        usernameIndex.put(username, uuid);
     }
 
     /**
@@ -231,105 +794,276 @@ public class StorageManager {
      */
     @Nullable
     public UUID getUuidByUsername(@Nonnull String username) {
-        return usernameToUuid.get(username.toLowerCase());
+        return usernameIndex.get(username);
     }
 
-    private void loadUuidIndex() {
+    /**
+     * Imports the legacy uuids.json into the username index the first time the index is created.
+     * The old file is left in place but no longer written.
+     */
+    private void migrateUuidJson() {
         Path file = dataFolder.resolve("uuids.json");
-        if (Files.exists(file)) {
-            try {
-                String json = Files.readString(file);
-                Map<String, String> loaded = gson.fromJson(json, UUIDS_TYPE);
-                if (loaded != null) {
-                    for (Map.Entry<String, String> entry : loaded.entrySet()) {
-                        try {
-                            usernameToUuid.put(entry.getKey().toLowerCase(), UUID.fromString(entry.getValue()));
-                        } catch (IllegalArgumentException e) {
-                            Log.warning("Invalid UUID in uuids.json for " + entry.getKey() + ": " + entry.getValue());
-                        }
-                    }
+        if (!usernameIndex.isEmpty() || !Files.exists(file)) {
+            return;
+        }
+
+        try {
+            String json = Files.readString(file);
+            Map<String, String> loaded = gson.fromJson(json, UUIDS_TYPE);
+            if (loaded == null) {
+                return;
+            }
+
+            Map<String, UUID> mappings = new HashMap<>();
+            for (Map.Entry<String, String> entry : loaded.entrySet()) {
+                try {
+                    mappings.put(entry.getKey().toLowerCase(), UUID.fromString(entry.getValue()));
+                } catch (IllegalArgumentException e) {
+                    Log.warning("Invalid UUID in uuids.json for " + entry.getKey() + ": " + entry.getValue());
                 }
-                Log.info("Loaded " + usernameToUuid.size() + " player UUID mappings.");
-            } catch (IOException e) {
-                Log.warning("Failed to load UUID index: " + e.getMessage());
             }
+            usernameIndex.importAll(mappings);
+            Log.info("Migrated " + mappings.size() + " player UUID mappings from uuids.json.");
+        } catch (IOException e) {
+            Log.warning("Failed to migrate UUID index: " + e.getMessage());
         }
     }
 
+    // Backups
+
+    @Nonnull
+    public BackupStore getBackupStore() {
+        return backupStore;
+    }
+
     /**
-     * Schedules a UUID index save. Uses dirty flag to coalesce multiple rapid registrations
-     * into a single file write.
+     * Rolls one player's data back to a backup. Journal records for them are compacted first,
+     * so none get replayed on top of the restored data, and the restored copy then replaces
+     * whatever is cached for them.
+     *
+     * @return false if the backup holds no data for the player
      */
-    private void scheduleUuidIndexSave() {
-        // Mark as dirty and schedule save if not already pending
-        if (uuidIndexDirty.compareAndSet(false, true)) {
-            CompletableFuture.runAsync(() -> {
-                // Small delay to coalesce rapid joins
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+    @Nonnull
+    public CompletableFuture<Boolean> restorePlayer(@Nonnull String backupId, @Nonnull UUID playerUuid) {
+        return backupStore.submit(() -> readBackedUpPlayer(backupId, playerUuid)).thenCompose(bytes -> {
+            if (bytes == null) {
+                return CompletableFuture.completedFuture(false);
+            }
+            PlayerData restored;
+            try {
+                restored = decodePlayerData(bytes);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            return journal.compactNow().thenCompose(_ -> {
+                prefetching.remove(playerUuid);
+                offlineCache.remove(playerUuid);
+                if (onlinePlayers.contains(playerUuid)) {
+                    cache.put(playerUuid, restored);
+                } else {
+                    cache.remove(playerUuid);
+                }
+                knownPlayers.add(playerUuid);
+                return metrics.timeSave(StorageMetrics.FileType.PLAYER,
+                        playerStore.write(playerUuid, encodePlayerData(restored, restored.snapshot())));
+            }).thenApply(_ -> true);
+        });
+    }
+
+    /**
+     * Finds a player's data in a backup, looking in the layout of the active backend first.
+     * A player in segment files is in the newest segment that has a record for them.
+     */
+    @Nullable
+    private byte[] readBackedUpPlayer(@Nonnull String backupId, @Nonnull UUID playerUuid) throws IOException {
+        String playerFile = null;
+        String legacyFile = null;
+        List<String> segments = new ArrayList<>();
+        for (String path : backupStore.listFiles(backupId)) {
+            String name = path.substring(path.lastIndexOf('/') + 1);
+            if (path.startsWith(PLAYERS_FOLDER + "/")) {
+                if (name.equals(playerUuid + ".dat")) {
+                    playerFile = path;
+                } else if (name.equals(playerUuid + ".json")) {
+                    legacyFile = path;
                 }
-                
-                // Reset dirty flag and save
-                uuidIndexDirty.set(false);
-                saveUuidIndex();
-            });
+            } else if (path.startsWith(SEGMENT_FOLDER + "/") && SegmentPlayerStore.segmentId(name) >= 0) {
+                segments.add(path);
+            }
+        }
+        segments.sort(Comparator.comparingInt(
+                (String path) -> SegmentPlayerStore.segmentId(path.substring(path.lastIndexOf('/') + 1))).reversed());
+
+        boolean segmentsFirst = playerStore instanceof SegmentPlayerStore;
+        if (!segmentsFirst && (playerFile != null || legacyFile != null)) {
+            return backupStore.readFile(backupId, playerFile != null ? playerFile : legacyFile);
+        }
+        for (String segment : segments) {
+            byte[] content = backupStore.readFile(backupId, segment);
+            byte[] record = content != null ? SegmentPlayerStore.findLatestRecord(content, playerUuid) : null;
+            if (record != null) {
+                return record;
+            }
+        }
+        if (playerFile != null || legacyFile != null) {
+            return backupStore.readFile(backupId, playerFile != null ? playerFile : legacyFile);
         }
+        return null;
     }
 
     /**
-     * Saves the UUID index to disk. Called from async thread or shutdown.
+     * Gets the executor that serializes all plugin file writes.
      */
-    private void saveUuidIndex() {
-        Path file = dataFolder.resolve("uuids.json");
-        try {
-            // Convert to Map<String, String> for JSON serialization
-            Map<String, String> toSave = new ConcurrentHashMap<>();
-            for (Map.Entry<String, UUID> entry : usernameToUuid.entrySet()) {
-                toSave.put(entry.getKey(), entry.getValue().toString());
+    @Nonnull
+    public StorageExecutor getIoExecutor() {
+        return ioExecutor;
+    }
+
+    // Metrics
+
+    @Nonnull
+    public StorageMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Logs the storage metrics: per-file-type latency and failures, I/O queue depth,
+     * write volume, cache occupancy and damaged data counts.
+     */
+    public void logMetricsSummary() {
+        StringBuilder summary = new StringBuilder("Storage metrics:");
+        for (StorageMetrics.FileType type : StorageMetrics.FileType.values()) {
+            if (metrics.getLoadLatency(type).getCount() == 0 && metrics.getSaveLatency(type).getCount() == 0) {
+                continue;
             }
-            String json = gson.toJson(toSave);
-            Files.writeString(file, json);
-        } catch (IOException e) {
-            Log.error("Failed to save UUID index: " + e.getMessage());
+            summary.append("\n  ").append(type.getLabel())
+                    .append(": load ").append(metrics.getLoadLatency(type).summary())
+                    .append("; save ").append(metrics.getSaveLatency(type).summary())
+                    .append("; ").append(metrics.getLoadFailures(type)).append(" load / ")
+                    .append(metrics.getSaveFailures(type)).append(" save failure(s)");
         }
+        summary.append(String.format("%n  I/O queue: %d pending, peak %d in the last minute",
+                ioExecutor.getPendingCount(), metrics.getPeakQueueLastMinute()));
+        summary.append(String.format("%n  Written: %d KB in the last minute, %d KB total",
+                metrics.getBytesLastMinute() / 1024, metrics.getBytesWritten() / 1024));
+        summary.append(String.format("%n  Player cache: %d online, %d/%d offline (%.1f%% hit rate)",
+                cache.size(), offlineCache.size(), offlineCache.getCapacity(), offlineCache.getHitRate() * 100));
+        summary.append(String.format("%n  Damaged player data: %d found, %d recovered, %d lost",
+                corruptLoads.sum(), recoveredLoads.sum(), lostLoads.sum()));
+        Log.info(summary.toString());
     }
 
+    /**
+     * Saves everything that changed since it was last written, in parallel, within
+     * {@code storage.shutdown-timeout} overall. Whatever misses the deadline is listed in
+     * {@value #UNFLUSHED_FILE} so the next start can report it.
+     */
     public void shutdown() {
-        // Save player data
+        Log.info("Player data prefetch: " + prefetchHits.sum() + " hit(s), " + prefetchWaits.sum()
+                + " wait(s), " + prefetchMisses.sum() + " miss(es), " + worldThreadLoads.sum()
+                + " blocking load(s) on world threads.");
+        Log.info(String.format("Offline player cache: %d/%d entries, %.1f%% hit rate, %d eviction(s).",
+                offlineCache.size(), offlineCache.getCapacity(), offlineCache.getHitRate() * 100,
+                offlineCache.getEvictions()));
+
+        backupStore.close();
+        metrics.close();
+        logMetricsSummary();
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(configManager.getShutdownTimeout());
+        ioExecutor.ensureThreads(configManager.getShutdownThreads());
+
+        // Commit and compact outstanding journal records first so snapshots below are the final word
+        boolean journalClosed = journal.close(remainingMs(deadline));
+        long journalDone = System.nanoTime();
+
+        // Queue final snapshots behind anything already in flight for the same files.
+        // Players whose current version was already saved are skipped.
+        Map<String, CompletableFuture<Void>> writes = new LinkedHashMap<>();
         for (Map.Entry<UUID, PlayerData> entry : cache.entrySet()) {
-            Path file = getPlayerFile(entry.getKey());
-            try {
-                String json = gson.toJson(entry.getValue());
-                Files.writeString(file, json);
-            } catch (IOException e) {
-                Log.error("Failed to save player data on shutdown for " + entry.getKey() + ": " + e.getMessage());
+            if (entry.getValue().isDirty()) {
+                writes.put("player " + entry.getKey(), savePlayerDataAsync(entry.getKey(), entry.getValue()));
             }
         }
         cache.clear();
+        for (Map.Entry<UUID, PlayerData> entry : offlineCache.drainDirty().entrySet()) {
+            writes.put("player " + entry.getKey(), savePlayerDataAsync(entry.getKey(), entry.getValue()));
+        }
+        int playerWrites = writes.size();
+
+        writes.put("warps", warpStore.flush());
+        writes.put("usernames", usernameIndex.flush());
+        long queueDone = System.nanoTime();
+
+        boolean drained = ioExecutor.shutdown(remainingMs(deadline));
+        warpStore.close();
+        playerStore.close();
+        long drainDone = System.nanoTime();
+
+        List<String> unflushed = new ArrayList<>();
+        if (!journalClosed) {
+            unflushed.add("journal");
+        }
+        for (Map.Entry<String, CompletableFuture<Void>> entry : writes.entrySet()) {
+            CompletableFuture<Void> write = entry.getValue();
+            if (!write.isDone() || write.isCompletedExceptionally()) {
+                unflushed.add(entry.getKey());
+            }
+        }
+        if (!drained && unflushed.isEmpty()) {
+            unflushed.add("other pending writes");
+        }
+        writeUnflushed(unflushed);
 
-        // Save warps
-        Path warpsFile = dataFolder.resolve("warps.json");
+        Log.info(String.format("Storage shutdown took %dms: journal %dms, %d player write(s) queued in %dms, "
+                        + "I/O drained in %dms.", elapsedMs(start, drainDone), elapsedMs(start, journalDone),
+                playerWrites, elapsedMs(journalDone, queueDone), elapsedMs(queueDone, drainDone)));
+    }
+
+    private static long remainingMs(long deadlineNanos) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    private static long elapsedMs(long fromNanos, long toNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(toNanos - fromNanos);
+    }
+
+    /**
+     * Records what the shutdown couldn't save. Written directly, since the I/O executor is gone by now.
+     */
+    private void writeUnflushed(@Nonnull List<String> unflushed) {
+        if (unflushed.isEmpty()) {
+            return;
+        }
+
+        Log.error("Storage shutdown deadline passed with " + unflushed.size() + " item(s) unsaved, see "
+                + UNFLUSHED_FILE + ".");
         try {
-            String json = gson.toJson(warps);
-            Files.writeString(warpsFile, json);
+            AtomicFiles.writeString(dataFolder.resolve(UNFLUSHED_FILE), String.join("\n", unflushed) + "\n");
         } catch (IOException e) {
-            Log.error("Failed to save warps on shutdown: " + e.getMessage());
+            Log.error("Failed to write " + UNFLUSHED_FILE + ": " + e.getMessage());
         }
+    }
 
-        // Save spawn
-        if (spawn != null) {
-            Path spawnFile = dataFolder.resolve("spawn.json");
-            try {
-                String json = gson.toJson(spawn);
-                Files.writeString(spawnFile, json);
-            } catch (IOException e) {
-                Log.error("Failed to save spawn on shutdown: " + e.getMessage());
-            }
+    /**
+     * Reports anything the previous shutdown didn't get to save, then clears the marker.
+     */
+    private void reportUnflushed() {
+        Path file = dataFolder.resolve(UNFLUSHED_FILE);
+        if (!Files.exists(file)) {
+            return;
         }
 
-        // Save UUID index
-        saveUuidIndex();
+        try {
+            List<String> entries = Files.readAllLines(file).stream().filter(line -> !line.isBlank()).toList();
+            Log.warning("The last shutdown ran out of time before saving " + entries.size() + " item(s): "
+                    + String.join(", ", entries.subList(0, Math.min(10, entries.size())))
+                    + (entries.size() > 10 ? ", ..." : "")
+                    + ". Changes recorded in the journal were replayed; anything else was lost.");
+            Files.delete(file);
+        } catch (IOException e) {
+            Log.warning("Failed to read " + UNFLUSHED_FILE + ": " + e.getMessage());
+        }
     }
 }
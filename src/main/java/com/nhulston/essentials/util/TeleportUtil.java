@@ -6,8 +6,6 @@ import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.math.util.ChunkUtil;
 import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.math.vector.Vector3f;
-import com.hypixel.hytale.protocol.BlockMaterial;
-import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
 import com.hypixel.hytale.server.core.modules.entity.teleport.Teleport;
 import com.hypixel.hytale.server.core.modules.entity.teleport.PendingTeleport;
@@ -20,11 +18,13 @@ import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
 import com.nhulston.essentials.Essentials;
 import com.nhulston.essentials.managers.BackManager;
+import com.nhulston.essentials.managers.PlayerPositionRegistry;
 import com.nhulston.essentials.models.Spawn;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 public final class TeleportUtil {
@@ -32,9 +32,6 @@ public final class TeleportUtil {
     /** Maximum blocks to search upward for a safe position */
     private static final int MAX_SAFE_SEARCH = 128;
 
-    /** Player height in blocks (need 2 air blocks for player to fit) */
-    private static final int PLAYER_HEIGHT = 2;
-
     // Cardinal direction yaw values (in radians)
     private static final float YAW_NORTH = 0f;
     private static final float YAW_EAST = (float) Math.toRadians(-90);   // -π/2
@@ -54,10 +51,13 @@ public final class TeleportUtil {
     /**
      * Helper to perform cross-world teleports with proper thread safety.
      * Handles same-world and cross-world cases automatically.
+     * Cross-world teleports use the target's published position when it's current, so they
+     * only need a hop to the player's world thread.
      * 
      * @param playerStore The player's store
      * @param playerRef The player's entity reference
      * @param playerWorld The player's current world
+     * @param targetUuid The target player's UUID
      * @param targetStore The target entity's store
      * @param targetRef The target entity's reference
      * @param targetWorld The target entity's world
@@ -68,6 +68,7 @@ public final class TeleportUtil {
             @Nonnull Store<EntityStore> playerStore,
             @Nonnull Ref<EntityStore> playerRef,
             @Nonnull World playerWorld,
+            @Nonnull UUID targetUuid,
             @Nonnull Store<EntityStore> targetStore,
             @Nonnull Ref<EntityStore> targetRef,
             @Nonnull World targetWorld,
@@ -94,7 +95,31 @@ public final class TeleportUtil {
                 onSuccess.run();
             }
         } else {
-            // Cross-world teleport - read target position on target world's thread
+            PlayerPositionRegistry.Snapshot snapshot =
+                    Essentials.getInstance().getPlayerPositionRegistry().getCurrent(targetUuid, targetWorld);
+            if (snapshot != null) {
+                // Position published by the target world's last tick - no need to visit that thread
+                Vector3d targetPos = snapshot.position().clone();
+                Vector3f rotation = new Vector3f(0, roundToCardinalYaw(snapshot.yaw()), 0);
+                playerWorld.execute(() -> {
+                    if (!playerRef.isValid()) {
+                        if (onError != null) {
+                            onError.accept("Player is not available.");
+                        }
+                        return;
+                    }
+
+                    Teleport teleport = new Teleport(targetWorld, targetPos, rotation);
+                    playerStore.putComponent(playerRef, Teleport.getComponentType(), teleport);
+
+                    if (onSuccess != null) {
+                        onSuccess.run();
+                    }
+                });
+                return;
+            }
+
+            // No current snapshot (e.g. target world lagging) - read target position on target world's thread
             targetWorld.execute(() -> {
                 if (!targetRef.isValid()) {
                     if (onError != null) {
@@ -216,9 +241,25 @@ public final class TeleportUtil {
             MessageManager messages = Essentials.getInstance().getMessageManager();
             return messages.get("teleport.world-not-loaded", Map.of("world", worldName));
         }
-        double safeY = findSafeY(targetWorld, x, y, z);
+        return teleportExact(store, ref, worldName, x, findSafeY(targetWorld, x, y, z), z, yaw, pitch);
+    }
 
-        Vector3d position = new Vector3d(x, safeY, z);
+    /**
+     * Teleports an entity to a position that was already checked for safety (e.g. by
+     * {@link #findSafeYAsync}), so no blocks are read here.
+     * @return null if successful, error message if failed
+     */
+    @Nullable
+    public static String teleportExact(@Nonnull Store<EntityStore> store, @Nonnull Ref<EntityStore> ref,
+                                       @Nonnull String worldName, double x, double y, double z,
+                                       float yaw, float pitch) {
+        World targetWorld = Universe.get().getWorld(worldName);
+        if (targetWorld == null) {
+            MessageManager messages = Essentials.getInstance().getMessageManager();
+            return messages.get("teleport.world-not-loaded", Map.of("world", worldName));
+        }
+
+        Vector3d position = new Vector3d(x, y, z);
         Vector3f rotation = new Vector3f(0, roundToCardinalYaw(yaw), 0);
 
         // CRITICAL FIX: Remove PendingTeleport component to reset teleportId counter
@@ -264,7 +305,7 @@ public final class TeleportUtil {
         EntityStore playerEntityStore = playerStore.getExternalData();
         World playerWorld = playerEntityStore.getWorld();
         
-        executeCrossWorldTeleportToEntity(playerStore, playerRef, playerWorld, 
+        executeCrossWorldTeleportToEntity(playerStore, playerRef, playerWorld, target.getUuid(),
                                           targetStore, targetRef, targetWorld, 
                                           null, null);
     }
@@ -335,14 +376,14 @@ public final class TeleportUtil {
         EntityStore playerEntityStore = store.getExternalData();
         World playerWorld = playerEntityStore.getWorld();
 
-        executeCrossWorldTeleportToEntity(store, playerRef, playerWorld, 
+        executeCrossWorldTeleportToEntity(store, playerRef, playerWorld, targetUuid,
                                           targetStore, targetRef, targetWorld, 
                                           onSuccess, onError);
     }
 
     /**
-     * Finds a safe Y position for teleportation by searching upward for air blocks.
-     * A position is safe when there are at least 2 non-solid blocks (for player height).
+     * Finds a safe Y position for teleportation: the first height at or above the given one
+     * with at least 2 non-solid blocks (for player height). Answered from the heightmap cache.
      *
      * @param world The world to check blocks in
      * @param x X coordinate
@@ -352,7 +393,6 @@ public final class TeleportUtil {
      */
     private static double findSafeY(@Nonnull World world, double x, double y, double z) {
         int blockX = (int) Math.floor(x);
-        int blockY = (int) Math.floor(y);
         int blockZ = (int) Math.floor(z);
 
         // Get the chunk at this position
@@ -363,99 +403,32 @@ public final class TeleportUtil {
             return y;
         }
 
-        // Search upward for a safe position (2 air blocks for player to fit)
-        for (int offsetY = 0; offsetY < MAX_SAFE_SEARCH; offsetY++) {
-            int checkY = blockY + offsetY;
-            
-            if (hasSpaceForPlayer(chunk, blockX, checkY, blockZ)) {
-                // Found safe position
-                return checkY;
-            }
-        }
-
-        // No safe position found, return original
-        return y;
+        return findSafeYInChunk(world, chunk, blockX, y, blockZ);
     }
 
     /**
-     * Checks if there's enough space for a player (2 blocks tall) at the given position.
-     */
-    private static boolean hasSpaceForPlayer(@Nonnull WorldChunk chunk, int x, int y, int z) {
-        for (int i = 0; i < PLAYER_HEIGHT; i++) {
-            if (isSolidBlock(chunk, x, y + i, z)) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    /**
-     * Checks if a block at the given position is solid.
-     */
-    private static boolean isSolidBlock(@Nonnull WorldChunk chunk, int x, int y, int z) {
-        BlockType blockType = chunk.getBlockType(x, y, z);
-        if (blockType == null) {
-            return false; // No block = air = not solid
-        }
-        BlockMaterial material = blockType.getMaterial();
-        return material == BlockMaterial.Solid;
-    }
-
-    /**
-     * Checks if a position contains fluid (water or lava).
-     * Fluids are stored separately from blocks in Hytale.
-     * TODO: Update when Hytale provides non-deprecated fluid API.
-     */
-    @SuppressWarnings("removal")
-    private static boolean hasFluid(@Nonnull WorldChunk chunk, int x, int y, int z) {
-        return chunk.getFluidId(x, y, z) > 0;
-    }
-
-    /**
-     * Finds a safe Y position for RTP by searching from top down.
-     * Finds the highest solid block, then checks if player can stand there safely.
-     * Returns null if location has fluid (water/lava).
+     * Asynchronously finds a safe Y position like {@link #findSafeY}, loading the chunk if it
+     * isn't loaded yet. Safe to call from any thread.
      *
-     * @param world The world to check
-     * @param x X coordinate
-     * @param z Z coordinate
-     * @return Safe Y coordinate (one above ground), or null if unsafe (fluid/no ground)
+     * @return CompletableFuture with the safe Y coordinate (the original Y if no safe position
+     *         was found), or null if the world or chunk isn't available
      */
-    @Nullable
-    public static Double findSafeRtpY(@Nonnull World world, double x, double z) {
-        int blockX = (int) Math.floor(x);
-        int blockZ = (int) Math.floor(z);
-
-        long chunkIndex = ChunkUtil.indexChunkFromBlock(blockX, blockZ);
-        WorldChunk chunk = world.getChunk(chunkIndex);
-        if (chunk == null) {
-            return null; // Chunk not loaded
+    @Nonnull
+    public static CompletableFuture<Double> findSafeYAsync(@Nonnull String worldName, double x, double y, double z) {
+        World world = Universe.get().getWorld(worldName);
+        if (world == null) {
+            return CompletableFuture.completedFuture(null);
         }
 
-        return findSafeRtpYFromChunk(chunk, blockX, blockZ);
-    }
-
-    /**
-     * Asynchronously finds a safe Y position for RTP by searching from top down.
-     * Uses getChunkAsync to safely access chunks from any thread.
-     *
-     * @param world The world to check
-     * @param x X coordinate
-     * @param z Z coordinate
-     * @return CompletableFuture with safe Y coordinate (one above ground), or null if unsafe
-     */
-    @Nonnull
-    public static CompletableFuture<Double> findSafeRtpYAsync(@Nonnull World world, double x, double z) {
         int blockX = (int) Math.floor(x);
         int blockZ = (int) Math.floor(z);
-
         long chunkIndex = ChunkUtil.indexChunkFromBlock(blockX, blockZ);
-        
+
         return world.getChunkAsync(chunkIndex).thenApply(chunk -> {
             if (chunk == null) {
-                return null; // Chunk not loaded
+                return null;
             }
-            return findSafeRtpYFromChunk(chunk, blockX, blockZ);
+            return findSafeYInChunk(world, chunk, blockX, y, blockZ);
         });
     }
 
@@ -463,40 +436,55 @@ public final class TeleportUtil {
      * Finds a safe Y position using an already-loaded chunk.
      * Internal helper for both sync and async methods.
      */
+    private static double findSafeYInChunk(@Nonnull World world, @Nonnull WorldChunk chunk,
+                                           int blockX, double y, int blockZ) {
+        int blockY = (int) Math.floor(y);
+        HeightmapCache.Column column = Essentials.getInstance().getHeightmapCache().getColumn(world, chunk, blockX, blockZ);
+        int safeY = column.findStandingY(blockY);
+        if (safeY - blockY >= MAX_SAFE_SEARCH) {
+            // No safe position close enough, return original
+            return y;
+        }
+        return safeY;
+    }
+
+    /**
+     * Finds where to stand at a column near a destination, for spreading out players arriving
+     * together. The column qualifies only if its ground is within a block of where the player
+     * would land on the destination itself and isn't covered by fluid, so a scattered arrival
+     * never ends up on a roof, in a pit or in water. Reads only loaded chunks.
+     *
+     * @return the standing Y at the nearby column, or null if it doesn't qualify
+     */
     @Nullable
-    private static Double findSafeRtpYFromChunk(@Nonnull WorldChunk chunk, int blockX, int blockZ) {
-        // Search from top down to find first solid block
-        int startY = 200;
-        int minY = 0;
-        
-        for (int checkY = startY; checkY >= minY; checkY--) {
-            // Check for fluid at this level - if found, abort this location
-            if (hasFluid(chunk, blockX, checkY, blockZ)) {
-                return null; // Hit water/lava, this location is no good
-            }
-            
-            // Check if this block is solid (ground)
-            if (isSolidBlock(chunk, blockX, checkY, blockZ)) {
-                // Found ground! Player spawns at checkY + 1
-                int spawnY = checkY + 1;
-                
-                // Verify there's space for player (2 blocks) and no fluid
-                if (hasFluid(chunk, blockX, spawnY, blockZ) || 
-                    hasFluid(chunk, blockX, spawnY + 1, blockZ)) {
-                    return null; // Fluid above ground
-                }
-                
-                // Make sure head space isn't blocked
-                if (isSolidBlock(chunk, blockX, spawnY + 1, blockZ)) {
-                    // Only 1 block of space, keep searching down
-                    continue;
-                }
-                
-                return (double) spawnY;
-            }
+    public static Double findScatterY(@Nonnull String worldName, double x, double y, double z,
+                                      double scatterX, double scatterZ) {
+        World world = Universe.get().getWorld(worldName);
+        if (world == null) {
+            return null;
+        }
+
+        HeightmapCache.Column origin = getLoadedColumn(world, (int) Math.floor(x), (int) Math.floor(z));
+        HeightmapCache.Column scatter = getLoadedColumn(world, (int) Math.floor(scatterX), (int) Math.floor(scatterZ));
+        if (origin == null || scatter == null) {
+            return null;
         }
 
-        return null; // No solid ground found
+        int landingY = origin.findStandingY((int) Math.floor(y));
+        Integer surfaceY = scatter.getSurfaceY();
+        if (surfaceY == null || Math.abs(surfaceY - landingY) > 1) {
+            return null;
+        }
+        return (double) surfaceY;
+    }
+
+    @Nullable
+    private static HeightmapCache.Column getLoadedColumn(@Nonnull World world, int blockX, int blockZ) {
+        WorldChunk chunk = world.getChunk(ChunkUtil.indexChunkFromBlock(blockX, blockZ));
+        if (chunk == null) {
+            return null;
+        }
+        return Essentials.getInstance().getHeightmapCache().getColumn(world, chunk, blockX, blockZ);
     }
 
     /**
@@ -548,6 +536,29 @@ public final class TeleportUtil {
         return "Could not access player data.";
     }
 
+    /**
+     * Saves a player's current location for /back and teleports them to a position that was
+     * already checked for safety, so no blocks are read here.
+     * Used for mass teleports, where the landing position is found once for everyone.
+     *
+     * @return Error message if failed, null if successful
+     */
+    @Nullable
+    public static String saveLocationAndTeleportExact(@Nonnull PlayerRef targetPlayer,
+                                                      @Nonnull BackManager backManager,
+                                                      @Nonnull String worldName,
+                                                      double x, double y, double z,
+                                                      float yaw, float pitch) {
+        saveBackLocation(targetPlayer, backManager);
+
+        Ref<EntityStore> targetRef = targetPlayer.getReference();
+        if (targetRef != null && targetRef.isValid()) {
+            return teleportExact(targetRef.getStore(), targetRef, worldName, x, y, z, yaw, pitch);
+        }
+
+        return "Could not access player data.";
+    }
+
     /**
      * Saves a player's current location for /back and teleports them to spawn instantly.
      * Used for admin/console commands that bypass teleport delays.
@@ -0,0 +1,282 @@
+package com.nhulston.essentials.util;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical hashed timer wheel. Scheduling and canceling are O(1) and may happen on any
+ * thread; the wheel itself is only advanced by its owner thread, which also runs the expired tasks.
+ * <p>
+ * Four levels of 64 slots each: level 0 holds timers due within 64 ticks, level 1 within 64²,
+ * and so on. When a lower level wraps around, the next slot of the level above is cascaded down.
+ * Timers further out than the top level can reach are parked at its edge and re-filed when they
+ * cascade, so any delay works.
+ */
+public final class TimerWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    /**
+     * A scheduled task. Cancel it to keep it from running.
+     */
+    public static final class Timeout {
+        private final TimerWheel wheel;
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private long deadlineTick;
+
+        // Slot list links, only touched by the owner thread
+        private Timeout prev;
+        private Timeout next;
+        private Slot slot;
+
+        private Timeout(@Nonnull TimerWheel wheel, @Nonnull Runnable task, long deadlineNanos) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Cancels the task.
+         *
+         * @return false if it already ran or was already canceled
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            wheel.pending.decrementAndGet();
+            // Unlinked by the owner thread on its next advance
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        /**
+         * Gets the time left until the task runs, zero if it's due or no longer pending.
+         */
+        public long getRemaining(@Nonnull TimeUnit unit) {
+            if (state.get() != PENDING) {
+                return 0;
+            }
+            return unit.convert(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static final class Slot {
+        private Timeout head;
+
+        private void add(@Nonnull Timeout timeout) {
+            timeout.slot = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        private void remove(@Nonnull Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.slot = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        /**
+         * Empties the slot and returns its timers as a list linked through {@code next}.
+         */
+        private Timeout takeAll() {
+            Timeout all = head;
+            head = null;
+            for (Timeout timeout = all; timeout != null; timeout = timeout.next) {
+                timeout.slot = null;
+            }
+            return all;
+        }
+    }
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final Slot[][] levels = new Slot[LEVELS][SLOTS];
+    private final ConcurrentLinkedQueue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private long nextTick;  // first tick not processed yet
+
+    /**
+     * @param tick resolution of the wheel; deadlines are rounded up to a whole tick
+     */
+    public TimerWheel(long tick, @Nonnull TimeUnit unit) {
+        this.tickNanos = Math.max(1, unit.toNanos(tick));
+        this.startNanos = System.nanoTime();
+        for (Slot[] level : levels) {
+            for (int i = 0; i < SLOTS; i++) {
+                level[i] = new Slot();
+            }
+        }
+    }
+
+    /**
+     * Schedules a task to run once the delay has passed. Safe to call from any thread.
+     */
+    @Nonnull
+    public Timeout schedule(long delay, @Nonnull TimeUnit unit, @Nonnull Runnable task) {
+        Timeout timeout = new Timeout(this, task, System.nanoTime() + Math.max(0, unit.toNanos(delay)));
+        pending.incrementAndGet();
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Gets the number of tasks that are scheduled and not canceled.
+     */
+    public int size() {
+        return pending.get();
+    }
+
+    /**
+     * Moves the wheel up to the given time and hands every task that came due to the runner,
+     * tick by tick. Only call this from the owner thread.
+     *
+     * @return the number of tasks handed out
+     */
+    public int advance(long nowNanos, @Nonnull Consumer<Runnable> runner) {
+        drainQueues();
+
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+        int fired = 0;
+        while (nextTick <= targetTick) {
+            if (pending.get() == 0 && scheduled.isEmpty()) {
+                // Nothing to wait for, so skip the empty ticks instead of walking them
+                nextTick = targetTick + 1;
+                break;
+            }
+            fired += processTick(runner);
+            nextTick++;
+            drainQueues();
+        }
+        return fired;
+    }
+
+    /**
+     * Cancels every pending task, e.g. when nothing will advance the wheel any more. Only call
+     * this from the owner thread, or with the owner's advances locked out.
+     *
+     * @return the number of tasks canceled
+     */
+    public int cancelAll() {
+        drainQueues();
+        int canceled = 0;
+        for (Slot[] level : levels) {
+            for (Slot slot : level) {
+                for (Timeout timeout = slot.takeAll(); timeout != null; ) {
+                    Timeout following = timeout.next;
+                    timeout.prev = null;
+                    timeout.next = null;
+                    if (timeout.state.compareAndSet(PENDING, CANCELLED)) {
+                        pending.decrementAndGet();
+                        canceled++;
+                    }
+                    timeout = following;
+                }
+            }
+        }
+        return canceled;
+    }
+
+    private int processTick(@Nonnull Consumer<Runnable> runner) {
+        // Cascade higher levels down whenever the level below wraps around
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = SLOT_BITS * level;
+            if ((nextTick & ((1L << shift) - 1)) != 0) {
+                break;
+            }
+            Timeout timeout = levels[level][(int) ((nextTick >>> shift) & MASK)].takeAll();
+            while (timeout != null) {
+                Timeout following = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                file(timeout);
+                timeout = following;
+            }
+        }
+
+        int fired = 0;
+        Timeout timeout = levels[0][(int) (nextTick & MASK)].takeAll();
+        while (timeout != null) {
+            Timeout following = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            if (timeout.deadlineTick > nextTick) {
+                // Parked at the edge of the top level; not due yet
+                file(timeout);
+            } else if (timeout.state.compareAndSet(PENDING, EXPIRED)) {
+                pending.decrementAndGet();
+                runner.accept(timeout.task);
+                fired++;
+            }
+            timeout = following;
+        }
+        return fired;
+    }
+
+    private void drainQueues() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.state.get() != PENDING) {
+                continue;
+            }
+            // Round up, so a task never runs early
+            long ticks = (timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos;
+            timeout.deadlineTick = Math.max(nextTick, ticks);
+            file(timeout);
+        }
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.slot != null) {
+                timeout.slot.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * Puts a timer into the slot for its deadline, relative to the next tick.
+     */
+    private void file(@Nonnull Timeout timeout) {
+        if (timeout.state.get() != PENDING) {
+            return;
+        }
+        long tick = Math.min(timeout.deadlineTick, nextTick + MAX_SPAN - 1);
+        long delta = tick - nextTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        levels[level][(int) ((tick >>> (SLOT_BITS * level)) & MASK)].add(timeout);
+    }
+}
@@ -1,5 +1,7 @@
 package com.nhulston.essentials.util;
 
+import com.nhulston.essentials.storage.AtomicFiles;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.IOException;
@@ -41,7 +43,8 @@ public class TomlMigrationHelper {
                 Log.info("Added missing section: [" + section + "] to " + userPath.getFileName());
             }
             
-            Files.writeString(userPath, newContent.toString(), StandardCharsets.UTF_8);
+            // Written synchronously: the caller parses the file right after migration
+            AtomicFiles.writeString(userPath, newContent.toString());
             Log.info("Migrated " + userPath.getFileName() + " with " + missing.size() + " new section(s).");
         } catch (Exception e) {
             Log.warning("Migration skipped for " + userPath.getFileName() + ": " + e.getMessage());
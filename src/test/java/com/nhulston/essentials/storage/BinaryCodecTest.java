@@ -0,0 +1,167 @@
+package com.nhulston.essentials.storage;
+
+import com.nhulston.essentials.models.Home;
+import com.nhulston.essentials.models.PlayerData;
+import com.nhulston.essentials.models.Spawn;
+import com.nhulston.essentials.models.Warp;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryCodecTest {
+
+    @Test
+    void playerDataRoundTrips() throws IOException {
+        Map<String, Home> homes = new LinkedHashMap<>();
+        homes.put("base", new Home("default", 0.1 + 0.2, 64.0, -1234.5678, 90.5F, -12.25F, 1_700_000_000_000L));
+        homes.put("mine", new Home("nether", -0.0, 12.0, 1e-9, 0.0F, 0.0F, 42L));
+        homes.put("nowhere", new Home(null, 1, 2, 3, 4, 5, 0L));
+        Map<String, Long> cooldowns = Map.of("starter", 123L, "daily", Long.MAX_VALUE);
+
+        PlayerData decoded = BinaryCodec.decodePlayerData(BinaryCodec.encodePlayerData(
+                new PlayerData(homes, cooldowns, 99L, 1L).snapshot()));
+
+        assertEquals(homes.keySet(), decoded.getHomes().keySet());
+        for (Map.Entry<String, Home> entry : homes.entrySet()) {
+            assertHomeEquals(entry.getValue(), decoded.getHome(entry.getKey()));
+        }
+        assertEquals(cooldowns, decoded.getKitCooldowns());
+        assertEquals(99L, decoded.getLastRepairTime());
+        assertEquals(1L, decoded.getLastRtpTime());
+    }
+
+    @Test
+    void emptyPlayerDataRoundTrips() throws IOException {
+        PlayerData decoded = BinaryCodec.decodePlayerData(BinaryCodec.encodePlayerData(new PlayerData().snapshot()));
+
+        assertTrue(decoded.getHomes().isEmpty());
+        assertTrue(decoded.getKitCooldowns().isEmpty());
+        assertNull(decoded.getLastRepairTime());
+        assertNull(decoded.getLastRtpTime());
+    }
+
+    @Test
+    void warpsRoundTrip() throws IOException {
+        Map<String, Warp> warps = new LinkedHashMap<>();
+        warps.put("spawn", new Warp("default", 0.5, 100, 0.5, 180, 0));
+        warps.put("shop", new Warp("default", -301.75, 70.0625, 88.125, -45.5F, 10F));
+        warps.put("arena", new Warp("pvp", 1e7, -64, -1e7, 0, -90));
+
+        Map<String, Warp> decoded = BinaryCodec.decodeWarps(BinaryCodec.encodeWarps(warps));
+
+        assertEquals(warps.keySet(), decoded.keySet());
+        for (Map.Entry<String, Warp> entry : warps.entrySet()) {
+            assertWarpEquals(entry.getValue(), decoded.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    void warpChangesKeepOrderAndDeletions() throws IOException {
+        Map<String, Warp> changes = new LinkedHashMap<>();
+        changes.put("b", new Warp("default", 1, 2, 3, 4, 5));
+        changes.put("a", null);
+        changes.put("c", new Warp("other", 6, 7, 8, 9, 10));
+
+        Map<String, Warp> decoded = BinaryCodec.decodeWarpChanges(BinaryCodec.encodeWarpChanges(changes));
+
+        assertEquals(List.of("b", "a", "c"), new ArrayList<>(decoded.keySet()));
+        assertTrue(decoded.containsKey("a"));
+        assertNull(decoded.get("a"));
+        assertWarpEquals(changes.get("b"), decoded.get("b"));
+        assertWarpEquals(changes.get("c"), decoded.get("c"));
+    }
+
+    @Test
+    void spawnRoundTrips() throws IOException {
+        Spawn spawn = new Spawn("default", 12.5, 80, -7.25, 33.3F, -1.5F);
+
+        Spawn decoded = BinaryCodec.decodeSpawn(BinaryCodec.encodeSpawn(spawn));
+
+        assertEquals(spawn.getWorld(), decoded.getWorld());
+        assertEquals(spawn.getX(), decoded.getX());
+        assertEquals(spawn.getY(), decoded.getY());
+        assertEquals(spawn.getZ(), decoded.getZ());
+        assertEquals(spawn.getYaw(), decoded.getYaw());
+        assertEquals(spawn.getPitch(), decoded.getPitch());
+    }
+
+    @Test
+    void rejectsEveryTruncation() {
+        Map<String, Home> homes = Map.of("base", new Home("default", 1, 2, 3, 4, 5, 6L));
+        byte[] encoded = BinaryCodec.encodePlayerData(new PlayerData(homes, Map.of("kit", 7L), 8L, 9L).snapshot());
+
+        for (int length = 0; length < encoded.length; length++) {
+            byte[] truncated = Arrays.copyOf(encoded, length);
+            assertThrows(IOException.class, () -> BinaryCodec.decodePlayerData(truncated),
+                    "prefix of " + length + " byte(s)");
+        }
+    }
+
+    @Test
+    void rejectsOtherKinds() {
+        byte[] spawn = BinaryCodec.encodeSpawn(new Spawn("default", 0, 0, 0, 0, 0));
+
+        assertThrows(IOException.class, () -> BinaryCodec.decodeWarps(spawn));
+        assertThrows(IOException.class, () -> BinaryCodec.decodePlayerData(spawn));
+    }
+
+    @Test
+    void rejectsNewerVersions() {
+        byte[] encoded = BinaryCodec.encodeWarps(Map.of("spawn", new Warp("default", 0, 0, 0, 0, 0)));
+        encoded[3] = 2;  // the version varint follows magic(2) and kind(1)
+
+        IOException error = assertThrows(IOException.class, () -> BinaryCodec.decodeWarps(encoded));
+        assertTrue(error.getMessage().contains("newer"));
+    }
+
+    @Test
+    void rejectsOutOfRangeWorldIndex() {
+        byte[] encoded = BinaryCodec.encodeSpawn(new Spawn("default", 0, 0, 0, 0, 0));
+        // magic(2) kind(1) version(1) tableSize(1) "default"(1 + 7), then the world index
+        encoded[13] = 5;
+
+        assertThrows(IOException.class, () -> BinaryCodec.decodeSpawn(encoded));
+    }
+
+    @Test
+    void tellsBinaryFromJson() {
+        assertTrue(BinaryCodec.isBinary(BinaryCodec.encodeSpawn(new Spawn("default", 0, 0, 0, 0, 0))));
+        assertFalse(BinaryCodec.isBinary("{\"homes\":{}}".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(BinaryCodec.isBinary(new byte[0]));
+        assertFalse(BinaryCodec.isBinary(null));
+    }
+
+    private static void assertHomeEquals(Home expected, Home actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getWorld(), actual.getWorld());
+        assertEquals(Double.doubleToRawLongBits(expected.getX()), Double.doubleToRawLongBits(actual.getX()));
+        assertEquals(Double.doubleToRawLongBits(expected.getY()), Double.doubleToRawLongBits(actual.getY()));
+        assertEquals(Double.doubleToRawLongBits(expected.getZ()), Double.doubleToRawLongBits(actual.getZ()));
+        assertEquals(expected.getYaw(), actual.getYaw());
+        assertEquals(expected.getPitch(), actual.getPitch());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+    }
+
+    private static void assertWarpEquals(Warp expected, Warp actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getWorld(), actual.getWorld());
+        assertArrayEquals(new double[]{expected.getX(), expected.getY(), expected.getZ()},
+                new double[]{actual.getX(), actual.getY(), actual.getZ()});
+        assertEquals(expected.getYaw(), actual.getYaw());
+        assertEquals(expected.getPitch(), actual.getPitch());
+    }
+}
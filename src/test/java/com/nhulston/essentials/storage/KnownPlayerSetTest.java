@@ -0,0 +1,72 @@
+package com.nhulston.essentials.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KnownPlayerSetTest {
+
+    @Test
+    void addsEachPlayerOnce() {
+        KnownPlayerSet set = new KnownPlayerSet(0);
+        UUID player = UUID.randomUUID();
+
+        assertFalse(set.contains(player));
+        assertTrue(set.add(player));
+        assertFalse(set.add(player));
+        assertTrue(set.contains(player));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void tracksTheNilUuidSeparately() {
+        KnownPlayerSet set = new KnownPlayerSet(4);
+        UUID nil = new UUID(0, 0);
+
+        assertFalse(set.contains(nil));
+        assertTrue(set.add(nil));
+        assertFalse(set.add(nil));
+        assertTrue(set.contains(nil));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void keepsEveryPlayerAcrossResizes() {
+        Random random = new Random(17);
+        List<UUID> players = new ArrayList<>();
+        KnownPlayerSet set = new KnownPlayerSet(0);
+        for (int i = 0; i < 10_000; i++) {
+            UUID player = new UUID(random.nextLong(), random.nextLong());
+            players.add(player);
+            assertTrue(set.add(player));
+        }
+
+        assertEquals(players.size(), set.size());
+        for (UUID player : players) {
+            assertTrue(set.contains(player));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertFalse(set.contains(new UUID(random.nextLong(), random.nextLong())));
+        }
+    }
+
+    @Test
+    void handlesCollidingHalves() {
+        // Same high or low half, so only the full pair tells them apart
+        KnownPlayerSet set = KnownPlayerSet.of(List.of(new UUID(1, 2), new UUID(1, 3), new UUID(2, 2)));
+
+        assertEquals(3, set.size());
+        assertTrue(set.contains(new UUID(1, 2)));
+        assertTrue(set.contains(new UUID(1, 3)));
+        assertTrue(set.contains(new UUID(2, 2)));
+        assertFalse(set.contains(new UUID(2, 3)));
+        assertFalse(set.contains(new UUID(0, 2)));
+    }
+}
@@ -0,0 +1,75 @@
+package com.nhulston.essentials.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordEnvelopeTest {
+    private static final byte[] PAYLOAD = "player data".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void roundTrips() throws IOException {
+        RecordEnvelope.Unwrapped unwrapped = RecordEnvelope.unwrap(RecordEnvelope.wrap(42, PAYLOAD));
+
+        assertEquals(42, unwrapped.generation());
+        assertArrayEquals(PAYLOAD, unwrapped.payload());
+        assertTrue(unwrapped.checked());
+    }
+
+    @Test
+    void emptyPayloadRoundTrips() throws IOException {
+        RecordEnvelope.Unwrapped unwrapped = RecordEnvelope.unwrap(RecordEnvelope.wrap(Long.MAX_VALUE, new byte[0]));
+
+        assertEquals(Long.MAX_VALUE, unwrapped.generation());
+        assertEquals(0, unwrapped.payload().length);
+    }
+
+    @Test
+    void detectsAFlippedBitAfterTheHeaderMagic() {
+        byte[] wrapped = RecordEnvelope.wrap(7, PAYLOAD);
+
+        // Magic and version aren't checksummed; everything from the generation on is
+        for (int i = 3; i < wrapped.length; i++) {
+            byte[] damaged = wrapped.clone();
+            damaged[i] ^= 0x10;
+            assertThrows(CorruptDataException.class, () -> RecordEnvelope.unwrap(damaged), "flipped byte " + i);
+        }
+    }
+
+    @Test
+    void detectsTruncation() {
+        byte[] wrapped = RecordEnvelope.wrap(7, PAYLOAD);
+
+        assertThrows(CorruptDataException.class, () -> RecordEnvelope.unwrap(Arrays.copyOf(wrapped, wrapped.length - 1)));
+        assertThrows(CorruptDataException.class, () -> RecordEnvelope.unwrap(Arrays.copyOf(wrapped, 10)));
+        assertThrows(CorruptDataException.class, () -> RecordEnvelope.unwrap(new byte[0]));
+    }
+
+    @Test
+    void acceptsDataFromBeforeEnvelopesUnchecked() throws IOException {
+        byte[] legacy = "{\"homes\":{}}".getBytes(StandardCharsets.UTF_8);
+
+        RecordEnvelope.Unwrapped unwrapped = RecordEnvelope.unwrap(legacy);
+
+        assertEquals(0, unwrapped.generation());
+        assertArrayEquals(legacy, unwrapped.payload());
+        assertFalse(unwrapped.checked());
+    }
+
+    @Test
+    void newerVersionIsNotReportedAsDamage() {
+        byte[] wrapped = RecordEnvelope.wrap(7, PAYLOAD);
+        wrapped[2] = 2;
+
+        IOException error = assertThrows(IOException.class, () -> RecordEnvelope.unwrap(wrapped));
+        assertFalse(error instanceof CorruptDataException);
+    }
+}
@@ -0,0 +1,197 @@
+package com.nhulston.essentials.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentPlayerStoreTest {
+    private static final int HEADER_SIZE = 29;
+    private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+    private static final UUID CAROL = UUID.fromString("00000000-0000-0000-0000-00000000000c");
+
+    @TempDir
+    Path folder;
+
+    private StorageExecutor ioExecutor;
+    private SegmentPlayerStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ioExecutor = new StorageExecutor(1, 16);
+        store = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+        ioExecutor.shutdown(5000);
+    }
+
+    @Test
+    void recordsSurviveReopening() throws IOException {
+        store.writeNow(ALICE, bytes("alice v1"));
+        store.writeNow(BOB, bytes("bob v1"));
+        store.writeNow(ALICE, bytes("alice v2"));
+
+        reopen();
+
+        assertArrayEquals(bytes("alice v2"), store.read(ALICE));
+        assertArrayEquals(bytes("alice v1"), store.readPrevious(ALICE));
+        assertArrayEquals(bytes("bob v1"), store.read(BOB));
+        assertNull(store.read(CAROL));
+        assertEquals(2, store.getPlayerUuids().size());
+    }
+
+    @Test
+    void tornTailOfNewestSegmentIsTruncated() throws IOException {
+        store.writeNow(ALICE, bytes("alice"));
+        store.writeNow(BOB, bytes("bob"));
+        store.close();
+        long intactSize = Files.size(segment(1));
+
+        // A crash halfway through appending the next record
+        byte[] torn = Arrays.copyOf(Files.readAllBytes(segment(1)), HEADER_SIZE + 2);
+        Files.write(segment(1), torn, StandardOpenOption.APPEND);
+        store = open();
+
+        assertEquals(intactSize, Files.size(segment(1)));
+        assertArrayEquals(bytes("alice"), store.read(ALICE));
+        assertArrayEquals(bytes("bob"), store.read(BOB));
+
+        // Later appends land right after the last whole record
+        store.writeNow(CAROL, bytes("carol"));
+        reopen();
+        assertArrayEquals(bytes("carol"), store.read(CAROL));
+    }
+
+    @Test
+    void damagedRecordInTheMiddleIsSkipped() throws IOException {
+        store.writeNow(ALICE, bytes("alice"));
+        store.writeNow(BOB, bytes("bob"));
+        store.writeNow(CAROL, bytes("carol"));
+        store.close();
+
+        byte[] data = Files.readAllBytes(segment(1));
+        int bobPayload = (HEADER_SIZE + "alice".length()) + HEADER_SIZE;
+        data[bobPayload] ^= 0x01;
+        Files.write(segment(1), data);
+        store = open();
+
+        assertArrayEquals(bytes("alice"), store.read(ALICE));
+        assertFalse(store.exists(BOB));
+        assertArrayEquals(bytes("carol"), store.read(CAROL));
+        // Nothing after the damage was cut off
+        assertEquals(data.length, Files.size(segment(1)));
+    }
+
+    @Test
+    void parseRecordsReportsTheSkippedRange() throws IOException {
+        store.writeNow(ALICE, bytes("alice"));
+        store.writeNow(BOB, bytes("bob"));
+        store.close();
+
+        byte[] records = Files.readAllBytes(segment(1));
+        int aliceSize = HEADER_SIZE + "alice".length();
+        byte[] garbage = new byte[13];
+        Arrays.fill(garbage, (byte) 0x7F);
+        byte[] data = new byte[records.length + garbage.length];
+        System.arraycopy(records, 0, data, 0, aliceSize);
+        System.arraycopy(garbage, 0, data, aliceSize, garbage.length);
+        System.arraycopy(records, aliceSize, data, aliceSize + garbage.length, records.length - aliceSize);
+
+        List<UUID> found = new ArrayList<>();
+        List<int[]> skipped = new ArrayList<>();
+        int end = SegmentPlayerStore.parseRecords(data, new SegmentPlayerStore.RecordVisitor() {
+            @Override
+            public void record(UUID uuid, int offset, int length) {
+                found.add(uuid);
+            }
+
+            @Override
+            public void skipped(int from, int to) {
+                skipped.add(new int[]{from, to});
+            }
+        });
+
+        assertEquals(List.of(ALICE, BOB), found);
+        assertEquals(1, skipped.size());
+        assertArrayEquals(new int[]{aliceSize, aliceSize + garbage.length}, skipped.getFirst());
+        assertEquals(data.length, end);
+    }
+
+    @Test
+    void findLatestRecordReturnsTheNewestValidCopy() throws IOException {
+        store.writeNow(ALICE, bytes("alice v1"));
+        store.writeNow(BOB, bytes("bob"));
+        store.writeNow(ALICE, bytes("alice v2"));
+        store.close();
+
+        byte[] data = Files.readAllBytes(segment(1));
+        assertArrayEquals(bytes("alice v2"), SegmentPlayerStore.findLatestRecord(data, ALICE));
+        assertNull(SegmentPlayerStore.findLatestRecord(data, CAROL));
+
+        // With the newest copy damaged, the one before it is the latest valid record
+        data[data.length - 1] ^= 0x01;
+        assertArrayEquals(bytes("alice v1"), SegmentPlayerStore.findLatestRecord(data, ALICE));
+    }
+
+    @Test
+    void compactionMovesLiveRecordsOutOfMostlyDeadSegments() throws IOException {
+        byte[] bobData = bytes("bob");
+        store.writeNow(BOB, bobData);
+
+        // Overwrite one large record until the first 16 MB segment is full and a second one starts
+        byte[] large = new byte[1024 * 1024];
+        for (int i = 0; i < 17; i++) {
+            Arrays.fill(large, (byte) i);
+            store.writeNow(ALICE, large.clone());
+        }
+        assertTrue(Files.exists(segment(2)));
+
+        // Compaction runs in its own lane; anything queued behind it runs after it
+        ioExecutor.execute(folder.resolve("compaction"), () -> {}).join();
+
+        assertFalse(Files.exists(segment(1)));
+        assertArrayEquals(large, store.read(ALICE));
+        assertArrayEquals(bobData, store.read(BOB));
+
+        reopen();
+        assertArrayEquals(large, store.read(ALICE));
+        assertArrayEquals(bobData, store.read(BOB));
+    }
+
+    private SegmentPlayerStore open() throws IOException {
+        return new SegmentPlayerStore(folder, ioExecutor, new StorageMetrics());
+    }
+
+    private void reopen() throws IOException {
+        store.close();
+        store = open();
+    }
+
+    private Path segment(int id) {
+        return folder.resolve(String.format("segment-%06d.dat", id));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,135 @@
+package com.nhulston.essentials.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void runsATaskOnceItsDeadlinePasses() {
+        TimerWheel wheel = new TimerWheel(10, TimeUnit.MILLISECONDS);
+        List<String> ran = new ArrayList<>();
+        long before = System.nanoTime();
+        TimerWheel.Timeout timeout = wheel.schedule(100, TimeUnit.MILLISECONDS, () -> ran.add("task"));
+        long after = System.nanoTime();
+
+        assertEquals(0, wheel.advance(before + 80 * MILLIS, Runnable::run));
+        assertTrue(ran.isEmpty());
+        assertEquals(1, wheel.size());
+
+        assertEquals(1, wheel.advance(after + 120 * MILLIS, Runnable::run));
+        assertEquals(List.of("task"), ran);
+        assertTrue(timeout.isExpired());
+        assertEquals(0, wheel.size());
+
+        // Never runs twice
+        assertEquals(0, wheel.advance(after + 1000 * MILLIS, Runnable::run));
+        assertEquals(1, ran.size());
+    }
+
+    @Test
+    void cascadesTimersFromEveryLevelInDeadlineOrder() {
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS);
+        // One delay per level: under 64 ticks, under 64², under 64³ and beyond
+        long[] delays = {30, 1_000, 200_000, 3_000_000};
+        List<Long> ran = new ArrayList<>();
+        long before = System.nanoTime();
+        for (int i = delays.length - 1; i >= 0; i--) {
+            long delay = delays[i];
+            wheel.schedule(delay, TimeUnit.MILLISECONDS, () -> ran.add(delay));
+        }
+        long after = System.nanoTime();
+
+        for (int i = 0; i < delays.length; i++) {
+            // Just short of the deadline nothing new has run; just past it, exactly this one has
+            wheel.advance(before + (delays[i] - 2) * MILLIS, Runnable::run);
+            assertEquals(i, ran.size(), "early at " + delays[i] + "ms");
+            wheel.advance(after + (delays[i] + 2) * MILLIS, Runnable::run);
+            assertEquals(i + 1, ran.size(), "late at " + delays[i] + "ms");
+        }
+        assertEquals(List.of(30L, 1_000L, 200_000L, 3_000_000L), ran);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void timersBeyondTheTopLevelWaitForTheirDeadline() {
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS);
+        long span = 1L << 24;  // ticks the four levels can hold
+        long delay = span + 5_000;
+        List<String> ran = new ArrayList<>();
+        long before = System.nanoTime();
+        wheel.schedule(delay, TimeUnit.MILLISECONDS, () -> ran.add("far"));
+        long after = System.nanoTime();
+
+        wheel.advance(before + span * MILLIS, Runnable::run);
+        assertTrue(ran.isEmpty());
+
+        wheel.advance(after + (delay + 2) * MILLIS, Runnable::run);
+        assertEquals(List.of("far"), ran);
+    }
+
+    @Test
+    void canceledTimersNeverRun() {
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS);
+        List<String> ran = new ArrayList<>();
+        long start = System.nanoTime();
+        TimerWheel.Timeout near = wheel.schedule(10, TimeUnit.MILLISECONDS, () -> ran.add("near"));
+        TimerWheel.Timeout far = wheel.schedule(10_000, TimeUnit.MILLISECONDS, () -> ran.add("far"));
+        wheel.schedule(20, TimeUnit.MILLISECONDS, () -> ran.add("kept"));
+
+        assertTrue(near.cancel());
+        assertFalse(near.cancel());
+        assertTrue(near.isCancelled());
+        assertEquals(2, wheel.size());
+
+        // Cancel the far one after it was filed in a higher level, before it cascades down
+        wheel.advance(start + 5_000 * MILLIS, Runnable::run);
+        assertEquals(List.of("kept"), ran);
+        assertTrue(far.cancel());
+
+        wheel.advance(System.nanoTime() + 20_000 * MILLIS, Runnable::run);
+        assertEquals(List.of("kept"), ran);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelAllDropsEveryPendingTimer() {
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS);
+        List<String> ran = new ArrayList<>();
+        long start = System.nanoTime();
+        TimerWheel.Timeout near = wheel.schedule(10, TimeUnit.MILLISECONDS, () -> ran.add("near"));
+        TimerWheel.Timeout far = wheel.schedule(100_000, TimeUnit.MILLISECONDS, () -> ran.add("far"));
+        wheel.advance(start, Runnable::run);
+        // Still in the schedule queue, not filed yet
+        TimerWheel.Timeout queued = wheel.schedule(50, TimeUnit.MILLISECONDS, () -> ran.add("queued"));
+
+        assertEquals(3, wheel.cancelAll());
+
+        assertTrue(near.isCancelled());
+        assertTrue(far.isCancelled());
+        assertTrue(queued.isCancelled());
+        assertEquals(0, wheel.size());
+        wheel.advance(System.nanoTime() + 200_000 * MILLIS, Runnable::run);
+        assertTrue(ran.isEmpty());
+    }
+
+    @Test
+    void cancelAfterRunningFails() {
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS);
+        TimerWheel.Timeout timeout = wheel.schedule(0, TimeUnit.MILLISECONDS, () -> {});
+
+        wheel.advance(System.nanoTime() + 5 * MILLIS, Runnable::run);
+
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        assertEquals(0, timeout.getRemaining(TimeUnit.MILLISECONDS));
+    }
+}